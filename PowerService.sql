@@ -43,6 +43,36 @@ CREATE TABLE IF NOT EXISTS HUB_REPAIR_TABLE(
     FOREIGN KEY(EMPLOYEE_ID) REFERENCES EMPLOYEES_TABLE(EMPLOYEE_ID)
 );
 
+CREATE TABLE IF NOT EXISTS REPAIR_LOG_CHECKPOINT_TABLE(
+	ID INT PRIMARY KEY,
+    LAST_SEQUENCE BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS HUB_REPAIR_ROLLUP_TABLE(
+	HUB_ID VARCHAR(256) PRIMARY KEY,
+    TOTAL_REPAIRS INT NOT NULL,
+    TOTAL_REPAIR_TIME DOUBLE NOT NULL,
+    OPEN_REPAIR_TIME DOUBLE NOT NULL,
+    RESTORATIONS INT NOT NULL,
+    RESTORED_REPAIR_TIME DOUBLE NOT NULL,
+    RESTORED_ESTIMATE DOUBLE NOT NULL,
+    FOREIGN KEY(HUB_ID) REFERENCES DISTRIBUTION_HUBS_TABLE(HUB_ID)
+);
+
+CREATE TABLE IF NOT EXISTS EMPLOYEE_REPAIR_ROLLUP_TABLE(
+	EMPLOYEE_ID VARCHAR(256) PRIMARY KEY,
+    TOTAL_REPAIRS INT NOT NULL,
+    TOTAL_REPAIR_TIME DOUBLE NOT NULL,
+    RESTORATIONS INT NOT NULL,
+    FOREIGN KEY(EMPLOYEE_ID) REFERENCES EMPLOYEES_TABLE(EMPLOYEE_ID)
+);
+
+CREATE TABLE IF NOT EXISTS RESTORATION_ROLLUP_TABLE(
+	PERIOD_START BIGINT PRIMARY KEY,
+    RESTORATIONS INT NOT NULL,
+    PEOPLE_RESTORED DOUBLE NOT NULL
+);
+
 -- insert dummy employees
 INSERT INTO EMPLOYEES_TABLE VALUES
 ("e1", "John", "Cena"),
@@ -53,6 +83,10 @@ INSERT INTO EMPLOYEES_TABLE VALUES
 
 -- drop table POSTAL_CODES_DISTRIBUTION_HUBS_TABLE;
 -- drop table HUB_REPAIR_TABLE;
+-- drop table REPAIR_LOG_CHECKPOINT_TABLE;
+-- drop table HUB_REPAIR_ROLLUP_TABLE;
+-- drop table EMPLOYEE_REPAIR_ROLLUP_TABLE;
+-- drop table RESTORATION_ROLLUP_TABLE;
 -- drop table EMPLOYEES_TABLE;
 -- drop table POSTAL_CODES_TABLE;
 -- drop table DISTRIBUTION_HUBS_TABLE;
\ No newline at end of file
@@ -0,0 +1,74 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * BenchDatabase prepares the db used by a benchmark. PowerService expects the employees table to be
+ * created by PowerService.sql, so it is created and filled here before PowerService is constructed.
+ */
+class BenchDatabase {
+
+    /**
+     * Load properties from property file
+     * @param propertyFileName
+     * @return
+     */
+    static Properties loadProperties(String propertyFileName) {
+        Properties properties = new Properties();
+        try (InputStream stream = new FileInputStream(propertyFileName)) {
+            properties.load(stream);
+            return properties;
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Get employee id with the given index, the first ids are the ones PowerService.sql inserts
+     * @param index
+     * @return
+     */
+    static String employeeID(int index) {
+        return "e" + (index+1);
+    }
+
+    /**
+     * Create employees table if not created yet and add employees to it
+     * @param properties
+     * @param count
+     */
+    static void createEmployees(Properties properties, int count) {
+        try {
+            Class.forName(properties.getProperty(Constants.DRIVER, Constants.JDBC));
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+        try (Connection connect = DriverManager.getConnection(properties.getProperty(Constants.DATABASE_PATH),
+                properties.getProperty(Constants.USERNAME), properties.getProperty(Constants.PASSWORD))) {
+            try (Statement statement = connect.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS "+Db.EMPLOYEES_TABLE+"(\n" +
+                        Db.EMPLOYEE_ID+" VARCHAR(256) PRIMARY KEY,\n" +
+                        "FIRST_NAME VARCHAR(256) NOT NULL,\n" +
+                        "LAST_NAME VARCHAR(256));");
+            }
+            try (PreparedStatement statement = connect.prepareStatement("INSERT INTO "+Db.EMPLOYEES_TABLE+" VALUES (?, ?, ?)\n" +
+                    "ON DUPLICATE KEY UPDATE FIRST_NAME=FIRST_NAME;")) {
+                for (int i = 0; i < count; i++) {
+                    statement.setString(1, employeeID(i));
+                    statement.setString(2, "Employee");
+                    statement.setString(3, String.valueOf(i+1));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,248 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * GridGenerator creates synthetic grids for benchmarks. The same seed always gives the same grid,
+ * so results of different runs and different versions of the code can be compared.
+ */
+class GridGenerator {
+
+    /**
+     * Layout decides where hubs are placed
+     */
+    enum Layout {
+        GRID, // hubs on a regular grid
+        CLUSTERED, // hubs around a few centres
+        DIAGONAL // hubs close to the diagonal, so that many paths are limited by the diagonal constraint
+    }
+
+    /**
+     * RepairPlanInput contains everything RepairPlan.getRepairPath needs
+     */
+    static class RepairPlanInput {
+        final String startHubID;
+        final String endHubID;
+        final List<HubInfo> faultyHubsList;
+        final Map<String, HubImpact> hubImpactMap;
+        final float maxTime;
+
+        RepairPlanInput(String startHubID, String endHubID, List<HubInfo> faultyHubsList, Map<String, HubImpact> hubImpactMap, float maxTime) {
+            this.startHubID = startHubID;
+            this.endHubID = endHubID;
+            this.faultyHubsList = faultyHubsList;
+            this.hubImpactMap = hubImpactMap;
+            this.maxTime = maxTime;
+        }
+    }
+
+    private static final int HUB_SPACING = 10; // average distance between neighbouring hubs
+    private static final int CLUSTER_COUNT = 8;
+
+    // internal attributes of the class
+    private final long seed;
+
+    /**
+     * Constructor
+     * @param seed
+     */
+    GridGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Get postal code with the given index, postal codes are 6 characters: letter digit letter digit letter digit
+     * @param index
+     * @return
+     */
+    static String postalCode(int index) {
+        char[] postalCode = new char[6];
+        for (int i = 5; i >= 0; i--) {
+            if (i%2==0) {
+                postalCode[i] = (char) ('A' + index%26);
+                index /= 26;
+            } else {
+                postalCode[i] = (char) ('0' + index%10);
+                index /= 10;
+            }
+        }
+        return new String(postalCode);
+    }
+
+    /**
+     * Get hub id with the given index
+     * @param index
+     * @return
+     */
+    static String hubID(int index) {
+        return "hub" + index;
+    }
+
+    /**
+     * Get side of the square that hubs are placed in
+     * @param hubCount
+     * @return
+     */
+    static int side(int hubCount) {
+        return Math.max(1, (int) Math.ceil(Math.sqrt(hubCount)))*HUB_SPACING;
+    }
+
+    /**
+     * Generate postal codes lazily, so that millions of them can be loaded without holding them in memory
+     * @param count
+     * @return
+     */
+    Iterator<PostalCode> postalCodes(int count) {
+        Random random = new Random(seed);
+        return new Iterator<PostalCode>() {
+            int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index<count;
+            }
+
+            @Override
+            public PostalCode next() {
+                if (hasNext()==false) {
+                    throw new NoSuchElementException();
+                }
+                return new PostalCode(postalCode(index++), 100+random.nextInt(20000), 1+random.nextInt(500));
+            }
+        };
+    }
+
+    /**
+     * Generate distribution hubs lazily. Every hub services postal codes near its own position in the list of
+     * postal codes, so that neighbouring hubs share postal codes.
+     * @param count
+     * @param postalCodeCount
+     * @param areasPerHub number of postal codes serviced by a hub
+     * @param layout
+     * @return
+     */
+    Iterator<DistributionHub> distributionHubs(int count, int postalCodeCount, int areasPerHub, Layout layout) {
+        Random random = new Random(seed+1);
+        int side = side(count);
+        int[][] clusters = clusters(random, side);
+        int window = Math.max(areasPerHub*2, (int) Math.ceil(2.0*postalCodeCount/count));
+        return new Iterator<DistributionHub>() {
+            int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index<count;
+            }
+
+            @Override
+            public DistributionHub next() {
+                if (hasNext()==false) {
+                    throw new NoSuchElementException();
+                }
+                Point location = location(random, layout, index, side, clusters);
+                long base = (long) index*postalCodeCount/count;
+                Set<String> servicedAreas = new LinkedHashSet<>();
+                for (int i = 0; i < Math.min(areasPerHub, postalCodeCount); i++) {
+                    servicedAreas.add(postalCode((int) ((base + random.nextInt(window)) % postalCodeCount)));
+                }
+                return new DistributionHub(hubID(index++), location, servicedAreas);
+            }
+        };
+    }
+
+    /**
+     * Generate input of a repair plan: damaged hubs inside the rectangle formed by start and end hub
+     * @param layout
+     * @param hubCount number of hubs including start and end hub
+     * @param maxTime
+     * @return
+     */
+    RepairPlanInput repairPlanInput(Layout layout, int hubCount, float maxTime) {
+        Random random = new Random(seed+2);
+        int side = side(hubCount);
+        int[][] clusters = clusters(random, side);
+
+        List<HubInfo> faultyHubsList = new ArrayList<>();
+        Map<String, HubImpact> hubImpactMap = new HashMap<>();
+        String startHubID = hubID(0);
+        String endHubID = hubID(hubCount-1);
+        faultyHubsList.add(new HubInfo(startHubID, 0, 0, false, repairEstimate(random)));
+        for (int i = 1; i < hubCount-1; i++) {
+            Point location = location(random, layout, i, side, clusters);
+            faultyHubsList.add(new HubInfo(hubID(i), location.getX(), location.getY(), false, repairEstimate(random)));
+        }
+        // end hub is somewhere in the list, as in a real plan
+        faultyHubsList.add(1+random.nextInt(faultyHubsList.size()), new HubInfo(endHubID, side, side, false, repairEstimate(random)));
+
+        for (HubInfo hubInfo : faultyHubsList) {
+            hubImpactMap.put(hubInfo.getHubID(), new HubImpact(hubInfo.getHubID(), 1+random.nextFloat()*1000));
+        }
+        return new RepairPlanInput(startHubID, endHubID, faultyHubsList, hubImpactMap, maxTime);
+    }
+
+    /**
+     * Get repair estimate of a damaged hub in hours
+     * @param random
+     * @return
+     */
+    static float repairEstimate(Random random) {
+        return 0.5f + random.nextInt(16)*0.25f;
+    }
+
+    /**
+     * Get centres of clusters for the clustered layout
+     * @param random
+     * @param side
+     * @return
+     */
+    private static int[][] clusters(Random random, int side) {
+        int[][] clusters = new int[CLUSTER_COUNT][2];
+        for (int[] cluster : clusters) {
+            cluster[0] = random.nextInt(side+1);
+            cluster[1] = random.nextInt(side+1);
+        }
+        return clusters;
+    }
+
+    /**
+     * Get location of hub with the given index inside the square [0, side] x [0, side]
+     * @param random
+     * @param layout
+     * @param index
+     * @param side
+     * @param clusters
+     * @return
+     */
+    private static Point location(Random random, Layout layout, int index, int side, int[][] clusters) {
+        switch (layout) {
+            case GRID:
+                int columns = side/HUB_SPACING;
+                return new Point((index%columns)*HUB_SPACING, Math.min(side, (index/columns%columns)*HUB_SPACING));
+            case CLUSTERED:
+                int[] cluster = clusters[random.nextInt(clusters.length)];
+                return new Point(clamp(cluster[0] + (int) (random.nextGaussian()*side/16), side),
+                        clamp(cluster[1] + (int) (random.nextGaussian()*side/16), side));
+            case DIAGONAL:
+                int position = random.nextInt(side+1);
+                return new Point(position, clamp(position + (int) (random.nextGaussian()*HUB_SPACING), side));
+            default:
+                throw new IllegalArgumentException("Invalid layout: " + layout);
+        }
+    }
+
+    /**
+     * Limit value to [0, side]
+     * @param value
+     * @param side
+     * @return
+     */
+    private static int clamp(int value, int side) {
+        return Math.max(0, Math.min(side, value));
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * LatencyHistogram counts latencies in buckets whose width grows with the latency, so that percentiles are
+ * known within about 1.5% whatever the range of latencies. A histogram is not thread safe, every thread
+ * records into its own histogram and they are merged at the end.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6; // 64 buckets for every power of two
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // internal attributes of the class
+    private final long[] counts = new long[(64-SUB_BUCKET_BITS+1)*SUB_BUCKETS];
+    private long count;
+    private long max;
+
+    /**
+     * Record a latency
+     * @param nanos
+     */
+    void record(long nanos) {
+        if (nanos<0) {
+            nanos = 0;
+        }
+        counts[bucketOf(nanos)]++;
+        count++;
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * Add counts of another histogram to this one
+     * @param other
+     */
+    void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Get number of recorded latencies
+     * @return
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * Get highest recorded latency
+     * @return
+     */
+    long max() {
+        return max;
+    }
+
+    /**
+     * Get latency below which the given fraction of latencies lie
+     * @param fraction between 0 and 1
+     * @return upper bound of the bucket that contains the percentile, in nanoseconds
+     */
+    long percentile(double fraction) {
+        if (count==0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction*count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen>=rank) {
+                return Math.min(max, upperBoundOf(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get bucket of a latency, latencies below SUB_BUCKETS get a bucket each
+     * @param nanos
+     * @return
+     */
+    private static int bucketOf(long nanos) {
+        if (nanos<SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int shift = 63-Long.numberOfLeadingZeros(nanos)-SUB_BUCKET_BITS;
+        return (shift+1)*SUB_BUCKETS + (int) ((nanos >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * Get highest latency of a bucket
+     * @param bucket
+     * @return
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket<SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket/SUB_BUCKETS-1;
+        long subBucket = bucket%SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket+1) << shift) - 1;
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * PowerServiceWorkload loads a synthetic grid through PowerService, damages part of it and runs the
+ * reporting methods. Parameters: propertyFile, postalCodes, hubs and seed.
+ */
+public class PowerServiceWorkload implements jmh.Workload {
+
+    private static final int AREAS_PER_HUB = 3;
+    private static final double DAMAGED_HUB_FRACTION = 0.2;
+    private static final int EMPLOYEE_COUNT = 4;
+
+    // internal attributes of the class
+    private PowerService powerService;
+    private int hubCount;
+
+    @Override
+    public void setUp(Map<String, String> params) {
+        String propertyFileName = params.get("propertyFile");
+        int postalCodeCount = Integer.parseInt(params.get("postalCodes"));
+        hubCount = Integer.parseInt(params.get("hubs"));
+        long seed = Long.parseLong(params.get("seed"));
+
+        Properties properties = BenchDatabase.loadProperties(propertyFileName);
+        BenchDatabase.createEmployees(properties, EMPLOYEE_COUNT);
+
+        powerService = new PowerService(propertyFileName);
+        GridGenerator generator = new GridGenerator(seed);
+        powerService.addPostalCodes(generator.postalCodes(postalCodeCount));
+        powerService.addDistributionHubs(
+                generator.distributionHubs(hubCount, postalCodeCount, AREAS_PER_HUB, GridGenerator.Layout.CLUSTERED));
+
+        Random random = new Random(seed+3);
+        int damagedHubCount = (int) (hubCount*DAMAGED_HUB_FRACTION);
+        for (int i = 0; i < damagedHubCount; i++) {
+            powerService.hubDamage(GridGenerator.hubID(random.nextInt(hubCount)), GridGenerator.repairEstimate(random));
+        }
+    }
+
+    @Override
+    public Object run(String operation) {
+        switch (operation) {
+            case "fixOrderLimit10":
+                return powerService.fixOrder(10);
+            case "fixOrderAll":
+                return powerService.fixOrder(hubCount);
+            case "peopleOutOfService":
+                return powerService.peopleOutOfService();
+            case "rateOfServiceRestoration":
+                return powerService.rateOfServiceRestoration(0.05f);
+            case "underservedPostalByPopulation":
+                return powerService.underservedPostalByPopulation(10);
+            case "underservedPostalByArea":
+                return powerService.underservedPostalByArea(10);
+            default:
+                throw new IllegalArgumentException("Invalid operation: " + operation);
+        }
+    }
+
+    @Override
+    public void tearDown() {
+        powerService.close();
+    }
+}
@@ -0,0 +1,126 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * RepairPlanEquivalence checks that RepairPlan returns the same path as the plain depth first search of
+ * OriginalRepairPlan, in the calling thread and on a fork join pool. Inputs are random rectangles, half of them
+ * with repair estimates and impacts from a few values so that many paths tie, and the GridGenerator layouts at
+ * hub counts the original search still finishes for. Mismatches are printed and make the exit status 1.
+ *
+ * Usage: java RepairPlanEquivalence [random inputs] [seed]
+ */
+public class RepairPlanEquivalence {
+
+    private static final int MAX_RANDOM_HUBS = 12;
+    private static final int[] LAYOUT_HUB_COUNTS = {8, 12, 16};
+    private static final float[] LAYOUT_MAX_TIMES = {4, 8, 16, 32};
+    private static final int MAX_REPORTED_MISMATCHES = 10;
+
+    // internal attributes of the class
+    private final ForkJoinPool pool = new ForkJoinPool();
+    private int checked;
+    private int mismatches;
+
+    public static void main(String[] args) {
+        int inputs = args.length>0 ? Integer.parseInt(args[0]) : 20000;
+        long seed = args.length>1 ? Long.parseLong(args[1]) : 42;
+
+        RepairPlanEquivalence equivalence = new RepairPlanEquivalence();
+        try {
+            Random random = new Random(seed);
+            for (int i = 0; i < inputs; i++) {
+                equivalence.check("random " + i, randomInput(random, 1+random.nextInt(MAX_RANDOM_HUBS), random.nextBoolean()));
+            }
+            GridGenerator generator = new GridGenerator(seed);
+            for (GridGenerator.Layout layout : GridGenerator.Layout.values()) {
+                for (int hubCount : LAYOUT_HUB_COUNTS) {
+                    for (float maxTime : LAYOUT_MAX_TIMES) {
+                        equivalence.check(layout + " hubs=" + hubCount + " maxTime=" + maxTime,
+                                generator.repairPlanInput(layout, hubCount, maxTime));
+                    }
+                }
+            }
+        } finally {
+            equivalence.pool.shutdown();
+        }
+        System.out.println(equivalence.checked + " inputs checked, " + equivalence.mismatches + " mismatches");
+        if (equivalence.mismatches>0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compare the paths of the original, sequential and parallel search for an input
+     * @param name
+     * @param input
+     */
+    private void check(String name, GridGenerator.RepairPlanInput input) {
+        String original = ids(new OriginalRepairPlan().getRepairPath(
+                input.startHubID, input.endHubID, input.faultyHubsList, input.hubImpactMap, input.maxTime));
+        String sequential = ids(new RepairPlan().getRepairPath(
+                input.startHubID, input.endHubID, input.faultyHubsList, input.hubImpactMap, input.maxTime));
+        String parallel = ids(new RepairPlan().getRepairPath(
+                input.startHubID, input.endHubID, input.faultyHubsList, input.hubImpactMap, input.maxTime, pool));
+        checked++;
+        if (original.equals(sequential)==false || original.equals(parallel)==false) {
+            if (++mismatches<=MAX_REPORTED_MISMATCHES) {
+                System.out.println("mismatch " + name + ": original " + original + " sequential " + sequential + " parallel " + parallel);
+            }
+        }
+    }
+
+    /**
+     * Generate hubs at random inside the rectangle formed by start and end hub, the end hub at a random
+     * position of the list
+     * @param random
+     * @param hubCount number of hubs other than start and end hub
+     * @param ties true to draw estimates and impacts from a few values
+     * @return
+     */
+    static GridGenerator.RepairPlanInput randomInput(Random random, int hubCount, boolean ties) {
+        int startX = random.nextInt(10);
+        int startY = random.nextInt(10);
+        int endX = startX + random.nextInt(13) - 6;
+        int endY = startY + random.nextInt(13) - 6;
+        if (endX==startX && endY==startY) {
+            endX++;
+        }
+        List<HubInfo> faultyHubsList = new ArrayList<>();
+        faultyHubsList.add(new HubInfo("S", startX, startY, false, 1+random.nextInt(5)));
+        int endPosition = 1+random.nextInt(hubCount+1);
+        for (int i = 0; i < hubCount+1; i++) {
+            float repairEstimate = ties ? 1+random.nextInt(4) : 0.5f+random.nextFloat()*5;
+            if (faultyHubsList.size()==endPosition) {
+                faultyHubsList.add(new HubInfo("E", endX, endY, false, repairEstimate));
+            } else {
+                int x = Math.min(startX, endX) + random.nextInt(Math.abs(endX-startX)+1);
+                int y = Math.min(startY, endY) + random.nextInt(Math.abs(endY-startY)+1);
+                faultyHubsList.add(new HubInfo("H" + i, x, y, false, repairEstimate));
+            }
+        }
+        Map<String, HubImpact> hubImpactMap = new HashMap<>();
+        for (HubInfo hubInfo : faultyHubsList) {
+            float impact = ties ? (1+random.nextInt(5))*0.1f : random.nextFloat()*100;
+            hubImpactMap.put(hubInfo.getHubID(), new HubImpact(hubInfo.getHubID(), impact));
+        }
+        float maxTime = ties ? 1+random.nextInt(12) : random.nextFloat()*20;
+        return new GridGenerator.RepairPlanInput("S", "E", faultyHubsList, hubImpactMap, maxTime);
+    }
+
+    /**
+     * Get hub ids of a path
+     * @param path
+     * @return
+     */
+    static String ids(List<HubImpact> path) {
+        StringBuilder ids = new StringBuilder();
+        for (HubImpact hub : path) {
+            ids.append(hub==null ? "null" : hub.getHubID()).append(' ');
+        }
+        return ids.toString().trim();
+    }
+}
@@ -0,0 +1,42 @@
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * RepairPlanWorkload searches the repair path of an input generated by GridGenerator, in the calling thread
+ * or on a fork join pool, or finds the approximate repair plan within the default deadline.
+ * Parameters: layout, hubCount, maxTime and seed.
+ */
+public class RepairPlanWorkload implements jmh.Workload {
+
+    // internal attributes of the class
+    private final RepairPlan planner = new RepairPlan();
+    private GridGenerator.RepairPlanInput input;
+    private ForkJoinPool pool;
+
+    @Override
+    public void setUp(Map<String, String> params) {
+        GridGenerator generator = new GridGenerator(Long.parseLong(params.get("seed")));
+        input = generator.repairPlanInput(GridGenerator.Layout.valueOf(params.get("layout")),
+                Integer.parseInt(params.get("hubCount")), Float.parseFloat(params.get("maxTime")));
+        pool = new ForkJoinPool();
+    }
+
+    @Override
+    public Object run(String operation) {
+        switch (operation) {
+            case "sequential":
+                return planner.getRepairPath(input.startHubID, input.endHubID, input.faultyHubsList, input.hubImpactMap, input.maxTime);
+            case "parallel":
+                return planner.getRepairPath(input.startHubID, input.endHubID, input.faultyHubsList, input.hubImpactMap, input.maxTime, pool);
+            case "approximate":
+                return planner.getApproximateRepairPlan(input.startHubID, input.endHubID, input.faultyHubsList, input.hubImpactMap, input.maxTime, null);
+            default:
+                throw new IllegalArgumentException("Invalid operation: " + operation);
+        }
+    }
+
+    @Override
+    public void tearDown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,342 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * StormLoadTest loads a synthetic grid through PowerService and replays storms against it from several threads.
+ * A storm is a burst of hubDamage calls, followed by hubRepair calls interleaved with fixOrder, repairPlan
+ * and peopleOutOfService until every damaged hub is repaired. Throughput and latency percentiles are reported
+ * for every operation.
+ *
+ * Usage: java StormLoadTest [property file] [postal codes] [hubs] [threads] [storms] [seed]
+ */
+public class StormLoadTest {
+
+    private static final int AREAS_PER_HUB = 4;
+    private static final double DAMAGED_HUBS_PER_STORM = 0.05; // fraction of hubs damaged by a storm
+    private static final double PARTIAL_REPAIR_RATE = 0.2; // fraction of repairs that leave the hub out of service
+    private static final int EMPLOYEE_COUNT = 16;
+    private static final int REPAIR_PLAN_MAX_DISTANCE = 50;
+    private static final float REPAIR_PLAN_MAX_TIME = 4;
+
+    // operations, and the operations of the repair phase with their relative weights
+    private static final String HUB_DAMAGE = "hubDamage";
+    private static final String HUB_REPAIR = "hubRepair";
+    private static final String FIX_ORDER = "fixOrder";
+    private static final String REPAIR_PLAN = "repairPlan";
+    private static final String PEOPLE_OUT_OF_SERVICE = "peopleOutOfService";
+    private static final String[] REPAIR_PHASE_OPERATIONS = {HUB_REPAIR, FIX_ORDER, REPAIR_PLAN, PEOPLE_OUT_OF_SERVICE};
+    private static final int[] REPAIR_PHASE_WEIGHTS = {40, 25, 10, 25};
+
+    /**
+     * Operation is a call whose latency is recorded, its result is kept so that the JIT cannot remove it
+     */
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    // results are written here so that the JIT cannot remove the measured calls
+    static volatile Object sink;
+
+    /**
+     * Stats of one operation recorded by one thread
+     */
+    private static class OperationStats {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        long errors;
+
+        void merge(OperationStats other) {
+            latencies.merge(other.latencies);
+            errors += other.errors;
+        }
+    }
+
+    // internal attributes of the class
+    private final PowerService powerService;
+    private final int hubCount;
+    private final AtomicIntegerArray damaged; // 1 if hub is damaged
+    private final ConcurrentLinkedQueue<Integer> repairQueue = new ConcurrentLinkedQueue<>(); // damaged hubs waiting for repair
+    private long damagePhaseNanos; // wall time of damage phases, for throughput
+    private long repairPhaseNanos; // wall time of repair phases, for throughput
+
+    StormLoadTest(PowerService powerService, int hubCount) {
+        this.powerService = powerService;
+        this.hubCount = hubCount;
+        this.damaged = new AtomicIntegerArray(hubCount);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String propertyFileName = args.length>0 ? args[0] : "bench/bench.prop";
+        int postalCodeCount = args.length>1 ? Integer.parseInt(args[1]) : 100000;
+        int hubCount = args.length>2 ? Integer.parseInt(args[2]) : 20000;
+        int threads = args.length>3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int storms = args.length>4 ? Integer.parseInt(args[4]) : 3;
+        long seed = args.length>5 ? Long.parseLong(args[5]) : 42;
+
+        Properties properties = BenchDatabase.loadProperties(propertyFileName);
+        BenchDatabase.createEmployees(properties, EMPLOYEE_COUNT);
+
+        PowerService powerService = new PowerService(propertyFileName);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            GridGenerator generator = new GridGenerator(seed);
+            long start = System.nanoTime();
+            BulkLoadResult postalCodes = powerService.addPostalCodes(generator.postalCodes(postalCodeCount));
+            long postalCodesLoaded = System.nanoTime();
+            BulkLoadResult hubs = powerService.addDistributionHubs(
+                    generator.distributionHubs(hubCount, postalCodeCount, AREAS_PER_HUB, GridGenerator.Layout.CLUSTERED));
+            long hubsLoaded = System.nanoTime();
+            System.out.println(String.format(Locale.ROOT, "loaded %d postal codes in %.1f s (%d rejected), %d hubs in %.1f s (%d rejected)",
+                    postalCodes.getLoaded(), (postalCodesLoaded-start)/1e9, postalCodes.getRejects().size(),
+                    hubs.getLoaded(), (hubsLoaded-postalCodesLoaded)/1e9, hubs.getRejects().size()));
+
+            StormLoadTest loadTest = new StormLoadTest(powerService, hubCount);
+            Map<String, OperationStats> stats = loadTest.run(executor, threads, storms, new Random(seed+3));
+            loadTest.report(stats);
+        } finally {
+            executor.shutdownNow();
+            powerService.close();
+        }
+    }
+
+    /**
+     * Replay storms
+     * @param executor
+     * @param threads
+     * @param storms
+     * @param random
+     * @return stats of every operation
+     * @throws Exception
+     */
+    Map<String, OperationStats> run(ExecutorService executor, int threads, int storms, Random random) throws Exception {
+        Map<String, OperationStats> stats = new LinkedHashMap<>();
+        List<Integer> hubIndexes = new ArrayList<>(hubCount);
+        for (int i = 0; i < hubCount; i++) {
+            hubIndexes.add(i);
+        }
+
+        for (int storm = 0; storm < storms; storm++) {
+            // storm damages distinct hubs
+            Collections.shuffle(hubIndexes, random);
+            int damagedHubCount = (int) Math.max(1, hubCount*DAMAGED_HUBS_PER_STORM);
+            ConcurrentLinkedQueue<Integer> damageQueue = new ConcurrentLinkedQueue<>(hubIndexes.subList(0, damagedHubCount));
+
+            long seed = random.nextLong();
+            long start = System.nanoTime();
+            merge(stats, runThreads(executor, threads, seed, (threadRandom, threadStats) -> damagePhase(damageQueue, threadRandom, threadStats)));
+            long damagedAt = System.nanoTime();
+            merge(stats, runThreads(executor, threads, seed+1, this::repairPhase));
+            long repairedAt = System.nanoTime();
+            damagePhaseNanos += damagedAt-start;
+            repairPhaseNanos += repairedAt-damagedAt;
+            System.out.println(String.format(Locale.ROOT, "storm %d: %d hubs damaged in %.2f s, repaired in %.2f s",
+                    storm+1, damagedHubCount, (damagedAt-start)/1e9, (repairedAt-damagedAt)/1e9));
+        }
+        return stats;
+    }
+
+    /**
+     * Damage hubs from the queue until it is empty
+     * @param damageQueue
+     * @param random
+     * @param stats
+     */
+    private void damagePhase(ConcurrentLinkedQueue<Integer> damageQueue, Random random, Map<String, OperationStats> stats) {
+        Integer hub;
+        while ((hub = damageQueue.poll())!=null) {
+            String hubID = GridGenerator.hubID(hub);
+            float repairEstimate = GridGenerator.repairEstimate(random);
+            boolean isDamaged = measure(stats, HUB_DAMAGE, () -> {
+                powerService.hubDamage(hubID, repairEstimate);
+                return null;
+            });
+            if (isDamaged) {
+                damaged.set(hub, 1);
+                repairQueue.add(hub);
+            }
+        }
+    }
+
+    /**
+     * Repair hubs and read reports until every damaged hub is back in service
+     * @param random
+     * @param stats
+     */
+    private void repairPhase(Random random, Map<String, OperationStats> stats) {
+        while (repairQueue.isEmpty()==false) {
+            String operation = pick(random);
+            switch (operation) {
+                case HUB_REPAIR:
+                    Integer hub = repairQueue.poll();
+                    if (hub==null) {
+                        break;
+                    }
+                    String hubID = GridGenerator.hubID(hub);
+                    boolean inService = random.nextDouble()>=PARTIAL_REPAIR_RATE;
+                    String employeeID = BenchDatabase.employeeID(random.nextInt(EMPLOYEE_COUNT));
+                    float repairTime = 0.25f + random.nextInt(8)*0.25f;
+                    boolean isRepaired = measure(stats, HUB_REPAIR, () -> {
+                        powerService.hubRepair(hubID, employeeID, repairTime, inService);
+                        return null;
+                    });
+                    if (isRepaired && inService) {
+                        damaged.set(hub, 0);
+                    } else if (isRepaired) {
+                        // hub is still out of service and needs another repair, a failed repair is not retried
+                        repairQueue.add(hub);
+                    }
+                    break;
+                case FIX_ORDER:
+                    measure(stats, FIX_ORDER, () -> powerService.fixOrder(10));
+                    break;
+                case REPAIR_PLAN:
+                    String startHub = randomDamagedHub(random);
+                    if (startHub!=null) {
+                        measure(stats, REPAIR_PLAN, () -> powerService.repairPlan(startHub, REPAIR_PLAN_MAX_DISTANCE, REPAIR_PLAN_MAX_TIME));
+                    }
+                    break;
+                default:
+                    measure(stats, PEOPLE_OUT_OF_SERVICE, powerService::peopleOutOfService);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Pick an operation of the repair phase by weight
+     * @param random
+     * @return
+     */
+    private static String pick(Random random) {
+        int totalWeight = 0;
+        for (int weight : REPAIR_PHASE_WEIGHTS) {
+            totalWeight += weight;
+        }
+        int value = random.nextInt(totalWeight);
+        for (int i = 0; i < REPAIR_PHASE_OPERATIONS.length; i++) {
+            value -= REPAIR_PHASE_WEIGHTS[i];
+            if (value<0) {
+                return REPAIR_PHASE_OPERATIONS[i];
+            }
+        }
+        return REPAIR_PHASE_OPERATIONS[REPAIR_PHASE_OPERATIONS.length-1];
+    }
+
+    /**
+     * Get a hub that is damaged at the moment, or null if none is found in a few tries
+     * @param random
+     * @return
+     */
+    private String randomDamagedHub(Random random) {
+        for (int i = 0; i < 64; i++) {
+            int hub = random.nextInt(hubCount);
+            if (damaged.get(hub)==1) {
+                return GridGenerator.hubID(hub);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Run an operation and record its latency, failures are counted as errors
+     * @param stats
+     * @param operation
+     * @param call
+     * @return true if operation succeeded
+     */
+    private static boolean measure(Map<String, OperationStats> stats, String operation, Operation call) {
+        OperationStats operationStats = stats.get(operation);
+        if (operationStats==null) {
+            operationStats = new OperationStats();
+            stats.put(operation, operationStats);
+        }
+        long start = System.nanoTime();
+        try {
+            sink = call.run();
+            operationStats.latencies.record(System.nanoTime()-start);
+            return true;
+        } catch (Exception e) {
+            operationStats.errors++;
+            return false;
+        }
+    }
+
+    /**
+     * Phase is the work of one thread in one phase of a storm
+     */
+    private interface Phase {
+        void run(Random random, Map<String, OperationStats> stats);
+    }
+
+    /**
+     * Run a phase on every thread and wait for all of them
+     * @param executor
+     * @param threads
+     * @param seed
+     * @param phase
+     * @return stats of all threads
+     * @throws Exception
+     */
+    private static Map<String, OperationStats> runThreads(ExecutorService executor, int threads, long seed, Phase phase) throws Exception {
+        List<Future<Map<String, OperationStats>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Random random = new Random(seed+i);
+            futures.add(executor.submit(() -> {
+                Map<String, OperationStats> stats = new LinkedHashMap<>();
+                phase.run(random, stats);
+                return stats;
+            }));
+        }
+        Map<String, OperationStats> stats = new LinkedHashMap<>();
+        for (Future<Map<String, OperationStats>> future : futures) {
+            merge(stats, future.get());
+        }
+        return stats;
+    }
+
+    /**
+     * Add stats of source to target
+     * @param target
+     * @param source
+     */
+    private static void merge(Map<String, OperationStats> target, Map<String, OperationStats> source) {
+        for (Map.Entry<String, OperationStats> entry : source.entrySet()) {
+            OperationStats operationStats = target.get(entry.getKey());
+            if (operationStats==null) {
+                operationStats = new OperationStats();
+                target.put(entry.getKey(), operationStats);
+            }
+            operationStats.merge(entry.getValue());
+        }
+    }
+
+    /**
+     * Print throughput and latency percentiles of every operation
+     * @param stats
+     */
+    void report(Map<String, OperationStats> stats) {
+        System.out.println(String.format(Locale.ROOT, "%-20s %10s %8s %12s %10s %10s %10s %10s",
+                "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map.Entry<String, OperationStats> entry : stats.entrySet()) {
+            String operation = entry.getKey();
+            LatencyHistogram latencies = entry.getValue().latencies;
+            // operations of the repair phase run side by side, so they share its wall time
+            long nanos = operation.equals(HUB_DAMAGE) ? damagePhaseNanos : repairPhaseNanos;
+            double throughput = nanos==0 ? 0 : latencies.count()/(nanos/1e9);
+            System.out.println(String.format(Locale.ROOT, "%-20s %10d %8d %12.1f %10.3f %10.3f %10.3f %10.3f",
+                    operation, latencies.count(), entry.getValue().errors, throughput,
+                    latencies.percentile(0.5)/1e6, latencies.percentile(0.99)/1e6,
+                    latencies.percentile(0.999)/1e6, latencies.max()/1e6));
+        }
+    }
+}
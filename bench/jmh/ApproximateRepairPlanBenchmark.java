@@ -0,0 +1,69 @@
+package jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ApproximateRepairPlanBenchmark measures RepairPlan.getApproximateRepairPlan on inputs whose exact search
+ * is large, such as the grid of 30 hubs from seed 1 at max time 32, so that a run shows whether the plan
+ * is found within the deadline whether it takes the exact search or the beam search.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApproximateRepairPlanBenchmark {
+
+    @Param({"GRID", "CLUSTERED", "DIAGONAL"})
+    public String layout;
+
+    @Param({"30", "60", "100"})
+    public int hubCount;
+
+    @Param({"32", "64"})
+    public float maxTime;
+
+    @Param("1")
+    public long seed;
+
+    // internal attributes of the class
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("layout", layout);
+        params.put("hubCount", String.valueOf(hubCount));
+        params.put("maxTime", String.valueOf(maxTime));
+        params.put("seed", String.valueOf(seed));
+        workload = Workload.create("RepairPlanWorkload", params);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public void approximate(Blackhole blackhole) throws Exception {
+        blackhole.consume(workload.run("approximate"));
+    }
+}
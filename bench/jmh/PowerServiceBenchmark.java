@@ -0,0 +1,94 @@
+package jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * PowerServiceBenchmark measures the reporting methods of PowerService over a synthetic grid that
+ * PowerServiceWorkload loads and partly damages. It runs against the db in the property file, the default
+ * bench/bench.prop is an in-memory H2 db in MySQL mode, so every fork starts from an empty db.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PowerServiceBenchmark {
+
+    @Param("bench/bench.prop")
+    public String propertyFile;
+
+    @Param("10000")
+    public int postalCodes;
+
+    @Param("2000")
+    public int hubs;
+
+    @Param("42")
+    public long seed;
+
+    // internal attributes of the class
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("propertyFile", propertyFile);
+        params.put("postalCodes", String.valueOf(postalCodes));
+        params.put("hubs", String.valueOf(hubs));
+        params.put("seed", String.valueOf(seed));
+        workload = Workload.create("PowerServiceWorkload", params);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public void fixOrderLimit10(Blackhole blackhole) throws Exception {
+        blackhole.consume(workload.run("fixOrderLimit10"));
+    }
+
+    @Benchmark
+    public void fixOrderAll(Blackhole blackhole) throws Exception {
+        blackhole.consume(workload.run("fixOrderAll"));
+    }
+
+    @Benchmark
+    public void peopleOutOfService(Blackhole blackhole) throws Exception {
+        blackhole.consume(workload.run("peopleOutOfService"));
+    }
+
+    @Benchmark
+    public void rateOfServiceRestoration(Blackhole blackhole) throws Exception {
+        blackhole.consume(workload.run("rateOfServiceRestoration"));
+    }
+
+    @Benchmark
+    public void underservedPostalByPopulation(Blackhole blackhole) throws Exception {
+        blackhole.consume(workload.run("underservedPostalByPopulation"));
+    }
+
+    @Benchmark
+    public void underservedPostalByArea(Blackhole blackhole) throws Exception {
+        blackhole.consume(workload.run("underservedPostalByArea"));
+    }
+}
@@ -0,0 +1,74 @@
+package jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * RepairPlanBenchmark measures RepairPlan.getRepairPath on synthetic layouts for a range of hub counts and
+ * max times, in the calling thread and on a fork join pool. The input is generated by RepairPlanWorkload
+ * from the seed, so runs of different versions of the code search the same input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepairPlanBenchmark {
+
+    @Param({"GRID", "CLUSTERED", "DIAGONAL"})
+    public String layout;
+
+    @Param({"10", "20", "40"})
+    public int hubCount;
+
+    @Param({"4", "8", "16", "32", "64"})
+    public float maxTime;
+
+    @Param("42")
+    public long seed;
+
+    // internal attributes of the class
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("layout", layout);
+        params.put("hubCount", String.valueOf(hubCount));
+        params.put("maxTime", String.valueOf(maxTime));
+        params.put("seed", String.valueOf(seed));
+        workload = Workload.create("RepairPlanWorkload", params);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) throws Exception {
+        blackhole.consume(workload.run("sequential"));
+    }
+
+    @Benchmark
+    public void parallel(Blackhole blackhole) throws Exception {
+        blackhole.consume(workload.run("parallel"));
+    }
+}
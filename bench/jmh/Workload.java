@@ -0,0 +1,44 @@
+package jmh;
+
+import java.util.Map;
+
+/**
+ * Workload is the code a benchmark measures. JMH only runs benchmarks that are in a package, while the service
+ * and the workloads that drive it are in the default package, which a package cannot import. A benchmark
+ * therefore creates its workload by class name and calls it through this interface.
+ */
+public interface Workload {
+
+    /**
+     * Prepare the data the operations run on
+     * @param params parameters of the benchmark by name
+     * @throws Exception
+     */
+    void setUp(Map<String, String> params) throws Exception;
+
+    /**
+     * Run an operation once
+     * @param operation name of the operation
+     * @return result of the operation, to be consumed by the benchmark
+     * @throws Exception
+     */
+    Object run(String operation) throws Exception;
+
+    /**
+     * Release what setUp acquired
+     */
+    void tearDown();
+
+    /**
+     * Create the workload of the given class in the default package and set it up
+     * @param className
+     * @param params
+     * @return
+     * @throws Exception
+     */
+    static Workload create(String className, Map<String, String> params) throws Exception {
+        Workload workload = (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+        workload.setUp(params);
+        return workload;
+    }
+}
@@ -0,0 +1,134 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * RepairPlanTest checks the exact, parallel and approximate repair plans against OriginalRepairPlan, the plain
+ * depth first search RepairPlan started from. RepairPlanEquivalence runs the same comparison on more inputs.
+ */
+public class RepairPlanTest {
+
+    private static final int RANDOM_INPUTS = 2000;
+    private static final int[] LAYOUT_HUB_COUNTS = {8, 12};
+    private static final float[] LAYOUT_MAX_TIMES = {4, 8, 16};
+    private static final double EPSILON = 1e-3;
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void exactPlanIsOriginalPlanOnRandomInputs() {
+        Random random = new Random(42);
+        for (int i = 0; i < RANDOM_INPUTS; i++) {
+            GridGenerator.RepairPlanInput input = RepairPlanEquivalence.randomInput(random, 1+random.nextInt(10), random.nextBoolean());
+            assertExactIsOriginal("random " + i, input);
+        }
+    }
+
+    @Test
+    public void exactPlanIsOriginalPlanOnGeneratedLayouts() {
+        GridGenerator generator = new GridGenerator(42);
+        for (GridGenerator.Layout layout : GridGenerator.Layout.values()) {
+            for (int hubCount : LAYOUT_HUB_COUNTS) {
+                for (float maxTime : LAYOUT_MAX_TIMES) {
+                    assertExactIsOriginal(layout + " hubs=" + hubCount + " maxTime=" + maxTime,
+                            generator.repairPlanInput(layout, hubCount, maxTime));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void approximatePlanIsExactPlanWhenSearchIsSmall() {
+        RepairPlan planner = new RepairPlan();
+        Random random = new Random(7);
+        for (int i = 0; i < RANDOM_INPUTS/4; i++) {
+            GridGenerator.RepairPlanInput input = RepairPlanEquivalence.randomInput(random, 1+random.nextInt(8), random.nextBoolean());
+            RepairPlanResult exact = planner.getRepairPlan(input.startHubID, input.endHubID, input.faultyHubsList,
+                    input.hubImpactMap, input.maxTime, null);
+            RepairPlanResult approximate = planner.getApproximateRepairPlan(input.startHubID, input.endHubID, input.faultyHubsList,
+                    input.hubImpactMap, input.maxTime, null);
+            assertTrue("random " + i, approximate.isExact());
+            assertEquals("random " + i, RepairPlanEquivalence.ids(exact.getRepairPath()),
+                    RepairPlanEquivalence.ids(approximate.getRepairPath()));
+        }
+    }
+
+    @Test
+    public void beamSearchPlanIsBoundedByExactPlan() {
+        // no exact search is small enough, so every plan comes from beam search
+        RepairPlan planner = new RepairPlan(Metrics.DISABLED, 0, 4, 1000);
+        RepairPlan exactPlanner = new RepairPlan();
+        Random random = new Random(11);
+        for (int i = 0; i < RANDOM_INPUTS/4; i++) {
+            GridGenerator.RepairPlanInput input = RepairPlanEquivalence.randomInput(random, 1+random.nextInt(10), random.nextBoolean());
+            RepairPlanResult exact = exactPlanner.getRepairPlan(input.startHubID, input.endHubID, input.faultyHubsList,
+                    input.hubImpactMap, input.maxTime, null);
+            RepairPlanResult approximate = planner.getApproximateRepairPlan(input.startHubID, input.endHubID, input.faultyHubsList,
+                    input.hubImpactMap, input.maxTime, null);
+            String name = "random " + i;
+            assertTrue(name, approximate.getImpactSum()<=exact.getImpactSum()+EPSILON);
+            assertTrue(name, approximate.getUpperBound()>=exact.getImpactSum()-EPSILON);
+            assertTrue(name, approximate.getGap()>=0 && approximate.getGap()<=1);
+            assertEquals(name, impactSum(approximate.getRepairPath()), approximate.getImpactSum(), EPSILON);
+        }
+    }
+
+    @Test
+    public void approximatePlanOfLargeLayoutEndsAtEndHub() {
+        RepairPlan planner = new RepairPlan(Metrics.DISABLED, 100000, 16, 200);
+        GridGenerator generator = new GridGenerator(1);
+        for (GridGenerator.Layout layout : GridGenerator.Layout.values()) {
+            GridGenerator.RepairPlanInput input = generator.repairPlanInput(layout, 100, 64);
+            RepairPlanResult result = planner.getApproximateRepairPlan(input.startHubID, input.endHubID, input.faultyHubsList,
+                    input.hubImpactMap, input.maxTime, POOL);
+            assertNotNull(layout.toString(), result);
+            List<HubImpact> path = result.getRepairPath();
+            if (path.size()>1) {
+                assertEquals(layout.toString(), input.startHubID, path.get(0).getHubID());
+                assertEquals(layout.toString(), input.endHubID, path.get(path.size()-1).getHubID());
+            }
+            assertTrue(layout.toString(), result.getImpactSum()<=result.getUpperBound()+EPSILON);
+        }
+    }
+
+    /**
+     * Check that the sequential and parallel search return the path of the original search
+     * @param name
+     * @param input
+     */
+    private static void assertExactIsOriginal(String name, GridGenerator.RepairPlanInput input) {
+        String original = RepairPlanEquivalence.ids(new OriginalRepairPlan().getRepairPath(
+                input.startHubID, input.endHubID, input.faultyHubsList, input.hubImpactMap, input.maxTime));
+        String sequential = RepairPlanEquivalence.ids(new RepairPlan().getRepairPath(
+                input.startHubID, input.endHubID, input.faultyHubsList, input.hubImpactMap, input.maxTime));
+        String parallel = RepairPlanEquivalence.ids(new RepairPlan().getRepairPath(
+                input.startHubID, input.endHubID, input.faultyHubsList, input.hubImpactMap, input.maxTime, POOL));
+        assertEquals(name, original, sequential);
+        assertEquals(name, original, parallel);
+    }
+
+    /**
+     * Get sum of impacts of the hubs of a path
+     * @param path
+     * @return
+     */
+    private static double impactSum(List<HubImpact> path) {
+        double impactSum = 0;
+        for (HubImpact hub : path) {
+            impactSum += hub.getImpact();
+        }
+        return impactSum;
+    }
+}
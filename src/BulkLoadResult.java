@@ -0,0 +1,68 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * BulkLoadResult contains the number of rows loaded by a bulk load and the rows that were rejected
+ */
+
+public class BulkLoadResult {
+
+    /**
+     * Reject contains a row that could not be loaded and the reason for it
+     */
+    public static class Reject {
+        private int rowIndex;
+        private String key;
+        private String reason;
+
+        // constructor with parameters
+        public Reject(int rowIndex, String key, String reason) {
+            this.rowIndex = rowIndex;
+            this.key = key;
+            this.reason = reason;
+        }
+
+        // getters
+
+        /**
+         * @return position of the row in the input, starting from 0
+         */
+        public int getRowIndex() {
+            return rowIndex;
+        }
+
+        /**
+         * @return postal code or hub id of the row, may be null if row itself is null
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    // internal attributes of the class
+    private int loaded;
+    private List<Reject> rejects = new ArrayList<>();
+
+    // getters
+
+    public int getLoaded() {
+        return loaded;
+    }
+
+    public List<Reject> getRejects() {
+        return Collections.unmodifiableList(rejects);
+    }
+
+    void addLoaded(int count) {
+        loaded += count;
+    }
+
+    void addReject(Reject reject) {
+        rejects.add(reject);
+    }
+}
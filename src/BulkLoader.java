@@ -0,0 +1,327 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * BulkLoader inserts postal codes and distribution hubs in JDBC batches and commits them in chunks.
+ * If a chunk fails, its rows are retried one by one so that only the failing rows are rejected.
+ *
+ * A chunk is written, committed and handed to onLoaded while it holds the write locks of its keys, so that
+ * writes of single rows with the same keys are applied to db and to grid model in the same order. Writes of its
+ * keys that were accepted earlier but are still on their way to db, such as queued hub repairs, are waited for
+ * once the locks are held, as the single row writes do. Locks are taken in the order of their index, so loads
+ * running at the same time do not deadlock.
+ */
+class BulkLoader {
+
+    /**
+     * RowChecker validates a row in memory before it is sent to db
+     */
+    private interface RowChecker<T> {
+        void check(T row); // throws IllegalArgumentException if row is invalid
+    }
+
+    /**
+     * ChunkWriter adds rows of a chunk to db using the given connection, without committing
+     */
+    private interface ChunkWriter<T> {
+        void write(Connection connect, List<T> rows) throws SQLException;
+    }
+
+    /**
+     * KeyExtractor gives the key used to report a rejected row and to find its write lock
+     */
+    private interface KeyExtractor<T> {
+        String keyOf(T row);
+    }
+
+    /**
+     * LockedWrite is the part of writing a chunk that runs while the write locks of the chunk are held
+     */
+    private interface LockedWrite {
+        void run() throws SQLException;
+    }
+
+    private static final CompletableFuture<Void> NOTHING_PENDING = CompletableFuture.completedFuture(null);
+
+    // internal attributes of the class
+    private final ConnectionPool connectionPool;
+    private final int chunkSize;
+    private final Object[] writeLocks; // locks of writes of single rows, striped by key
+    private final GridModel gridModel; // a chunk is a write of the model from its commit till onLoaded
+
+    /**
+     * Constructor
+     * @param connectionPool
+     * @param chunkSize number of rows committed together
+     * @param writeLocks locks that serialise the writes of a key, a key uses the lock of PowerService.writeLockStripe
+     * @param gridModel
+     */
+    BulkLoader(ConnectionPool connectionPool, int chunkSize, Object[] writeLocks, GridModel gridModel) {
+        if (chunkSize<=0) {
+            throw new IllegalArgumentException("Invalid bulk load chunk size: " + chunkSize);
+        }
+        this.connectionPool = connectionPool;
+        this.chunkSize = chunkSize;
+        this.writeLocks = writeLocks;
+        this.gridModel = gridModel;
+    }
+
+    /**
+     * Add or update postal codes
+     * @param postalCodes
+     * @param onLoaded called for every row once it is committed, before its locks are released
+     * @return
+     */
+    BulkLoadResult loadPostalCodes(Iterator<PostalCode> postalCodes, Consumer<PostalCode> onLoaded) {
+        return load(postalCodes,
+                PostalCode::getPostalCode,
+                row -> PowerService.validatePostalCode(row.getPostalCode(), row.getPopulation(), row.getArea()),
+                this::writePostalCodes,
+                row -> NOTHING_PENDING,
+                onLoaded);
+    }
+
+    /**
+     * Add or update distribution hubs and replace their serviced areas
+     * @param distributionHubs
+     * @param pendingWrites gives the writes of the hub accepted earlier that must reach db before the row
+     * @param onLoaded called for every row once it is committed, before its locks are released
+     * @return
+     */
+    BulkLoadResult loadDistributionHubs(Iterator<DistributionHub> distributionHubs,
+                                        Function<DistributionHub, CompletableFuture<Void>> pendingWrites,
+                                        Consumer<DistributionHub> onLoaded) {
+        // serviced areas are validated against postal codes present in db when load starts
+        Set<String> knownPostalCodes = getPostalCodes();
+        return load(distributionHubs,
+                DistributionHub::getHubID,
+                row -> {
+                    PowerService.validateDistributionHub(row.getHubID(), row.getLocation(), row.getServicedAreas());
+                    for (String postalCode : row.getServicedAreas()) {
+                        if (knownPostalCodes.contains(postalCode)==false) {
+                            throw new IllegalArgumentException("Invalid postal code:"+postalCode);
+                        }
+                    }
+                },
+                this::writeDistributionHubs,
+                pendingWrites,
+                onLoaded);
+    }
+
+    /**
+     * Validate rows and write them to db chunk by chunk
+     * @param rows
+     * @param keyExtractor
+     * @param rowChecker
+     * @param chunkWriter
+     * @param pendingWrites
+     * @param onLoaded
+     * @return
+     */
+    private <T> BulkLoadResult load(Iterator<T> rows, KeyExtractor<T> keyExtractor, RowChecker<T> rowChecker, ChunkWriter<T> chunkWriter,
+                                    Function<T, CompletableFuture<Void>> pendingWrites, Consumer<T> onLoaded) {
+        BulkLoadResult result = new BulkLoadResult();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkRowIndexes = new ArrayList<>(chunkSize);
+        int rowIndex = 0;
+
+        try (Connection connect = connectionPool.getConnection()) {
+            connect.setAutoCommit(false);
+
+            while (rows.hasNext()) {
+                T row = rows.next();
+                try {
+                    if (row==null) {
+                        throw new IllegalArgumentException("Row is null");
+                    }
+                    rowChecker.check(row);
+                    chunk.add(row);
+                    chunkRowIndexes.add(rowIndex);
+                } catch (IllegalArgumentException e) {
+                    result.addReject(new BulkLoadResult.Reject(rowIndex, row==null ? null : keyExtractor.keyOf(row), e.getMessage()));
+                }
+                rowIndex++;
+
+                if (chunk.size()==chunkSize) {
+                    writeChunk(connect, chunk, chunkRowIndexes, keyExtractor, chunkWriter, pendingWrites, onLoaded, result);
+                }
+            }
+            writeChunk(connect, chunk, chunkRowIndexes, keyExtractor, chunkWriter, pendingWrites, onLoaded, result);
+
+            connect.setAutoCommit(true);
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Write a chunk in one transaction, if it fails retry each row in its own transaction.
+     * The write locks of the rows are held from before the write till the rows are handed to onLoaded,
+     * the pending writes of all the rows are waited for once the locks are held and before the write.
+     * @param connect
+     * @param chunk
+     * @param chunkRowIndexes
+     * @param keyExtractor
+     * @param chunkWriter
+     * @param pendingWrites
+     * @param onLoaded
+     * @param result
+     * @throws SQLException
+     */
+    private <T> void writeChunk(Connection connect, List<T> chunk, List<Integer> chunkRowIndexes, KeyExtractor<T> keyExtractor,
+                                ChunkWriter<T> chunkWriter, Function<T, CompletableFuture<Void>> pendingWrites, Consumer<T> onLoaded,
+                                BulkLoadResult result) throws SQLException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        boolean[] isLocked = new boolean[writeLocks.length];
+        for (T row : chunk) {
+            isLocked[PowerService.writeLockStripe(keyExtractor.keyOf(row), writeLocks.length)] = true;
+        }
+        withLocks(isLocked, 0, () -> {
+            // no new write of these keys can be accepted now, so the chunk waits for the earlier ones only
+            List<CompletableFuture<Void>> pending = new ArrayList<>(chunk.size());
+            for (T row : chunk) {
+                pending.add(pendingWrites.apply(row));
+            }
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+            gridModel.beginWrite();
+            try {
+                chunkWriter.write(connect, chunk);
+                connect.commit();
+                result.addLoaded(chunk.size());
+                chunk.forEach(onLoaded);
+            } catch (SQLException chunkException) {
+                connect.rollback();
+                // find the rows that caused the chunk to fail
+                for (int i = 0; i < chunk.size(); i++) {
+                    T row = chunk.get(i);
+                    try {
+                        chunkWriter.write(connect, Collections.singletonList(row));
+                        connect.commit();
+                        result.addLoaded(1);
+                        onLoaded.accept(row);
+                    } catch (SQLException rowException) {
+                        connect.rollback();
+                        result.addReject(new BulkLoadResult.Reject(chunkRowIndexes.get(i), keyExtractor.keyOf(row), rowException.getMessage()));
+                    }
+                }
+            } finally {
+                gridModel.endWrite();
+            }
+        });
+
+        chunk.clear();
+        chunkRowIndexes.clear();
+    }
+
+    /**
+     * Run a write holding the marked write locks from the given index on, taken in the order of their index
+     * @param isLocked
+     * @param from
+     * @param write
+     * @throws SQLException
+     */
+    private void withLocks(boolean[] isLocked, int from, LockedWrite write) throws SQLException {
+        int stripe = from;
+        while (stripe<isLocked.length && isLocked[stripe]==false) {
+            stripe++;
+        }
+        if (stripe==isLocked.length) {
+            write.run();
+            return;
+        }
+        synchronized (writeLocks[stripe]) {
+            withLocks(isLocked, stripe+1, write);
+        }
+    }
+
+    /**
+     * Add or update postal codes of a chunk
+     * @param connect
+     * @param postalCodes
+     * @throws SQLException
+     */
+    private void writePostalCodes(Connection connect, List<PostalCode> postalCodes) throws SQLException {
+        try (PreparedStatement statement = connect.prepareStatement(Db.addPostalCodeQuery())) {
+            for (PostalCode postalCode : postalCodes) {
+                statement.setString(1, postalCode.getPostalCode());
+                statement.setInt(2, postalCode.getPopulation());
+                statement.setInt(3, postalCode.getArea());
+                statement.setInt(4, postalCode.getPopulation());
+                statement.setInt(5, postalCode.getArea());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Add or update distribution hubs of a chunk and replace their serviced areas
+     * @param connect
+     * @param distributionHubs
+     * @throws SQLException
+     */
+    private void writeDistributionHubs(Connection connect, List<DistributionHub> distributionHubs) throws SQLException {
+        // insert/update hubs
+        try (PreparedStatement statement = connect.prepareStatement(Db.addDistributionHubQuery())) {
+            for (DistributionHub hub : distributionHubs) {
+                statement.setString(1, hub.getHubID());
+                statement.setInt(2, hub.getLocation().getX());
+                statement.setInt(3, hub.getLocation().getY());
+                statement.setInt(4, hub.getLocation().getX());
+                statement.setInt(5, hub.getLocation().getY());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        //remove previously serviced areas of hubs if any
+        try (PreparedStatement statement = connect.prepareStatement(Db.removeEntriesOfHubFromPostalCodeDistributionHubQuery())) {
+            for (DistributionHub hub : distributionHubs) {
+                statement.setString(1, hub.getHubID());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        //add new serviced areas of hubs
+        try (PreparedStatement statement = connect.prepareStatement(Db.addPostalCodeDistributionHubQuery())) {
+            for (DistributionHub hub : distributionHubs) {
+                for (String postalCode : hub.getServicedAreas()) {
+                    statement.setString(1, postalCode);
+                    statement.setString(2, hub.getHubID());
+                    statement.addBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Get all postal codes present in db
+     * @return
+     */
+    private Set<String> getPostalCodes() {
+        Set<String> postalCodes = new HashSet<>();
+        try (Connection connect = connectionPool.getConnection();
+             PreparedStatement statement = connect.prepareStatement(Db.getPostalCodeIdsQuery())) {
+            RowMapper.forEach(statement, chunkSize, resultSet -> postalCodes.add(resultSet.getString(1)));
+            return postalCodes;
+        } catch (SQLException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,490 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * ConnectionPool keeps connections to db open so that they can be reused by PowerService
+ * instead of opening a new connection for every query.
+ * Connections handed out by the pool are returned to it when they are closed.
+ */
+public class ConnectionPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    /**
+     * PooledConnection holds a physical connection and its bookkeeping information
+     */
+    private class PooledConnection {
+        final Connection physical;
+        Connection proxy; // connection handed out to the caller, null when idle
+        long lastUsedAt; // time at which connection was last returned to the pool
+        long borrowedAt; // time at which connection was borrowed
+        Throwable borrowedBy; // stack trace of the borrower, used to report leaks
+        boolean isLeakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Handler for the connection proxy, close() returns the connection to the pool
+     * and every other call is delegated to the physical connection
+     */
+    private class ConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooledConnection;
+        private boolean isClosed;
+
+        ConnectionHandler(PooledConnection pooledConnection) {
+            this.pooledConnection = pooledConnection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                if (isClosed==false) {
+                    isClosed = true;
+                    release(pooledConnection);
+                }
+                return null;
+            }
+            if (name.equals("isClosed")) {
+                return isClosed || pooledConnection.physical.isClosed();
+            }
+            if (name.equals("equals")) {
+                return proxy==args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (name.equals("toString")) {
+                return "Pooled" + pooledConnection.physical;
+            }
+            if (isClosed) {
+                throw new SQLException("Connection is closed");
+            }
+            Object result;
+            try {
+                result = method.invoke(pooledConnection.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            // statements are wrapped only when metrics are recorded
+            if (metrics.isEnabled() && Statement.class.isAssignableFrom(method.getReturnType())) {
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[] {method.getReturnType()}, new StatementHandler((Statement) result, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Handler for the statement proxy, every execute call is counted and timed as a round trip to db
+     * and every other call is delegated to the statement
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final Connection connection; // connection proxy that created the statement
+
+        StatementHandler(Statement statement, Connection connection) {
+            this.statement = statement;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                return connection;
+            }
+            if (name.equals("equals")) {
+                return proxy==args[0];
+            }
+            boolean isRoundTrip = name.startsWith("execute");
+            long start = isRoundTrip ? queryTimer.start() : 0;
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (isRoundTrip) {
+                    queryTimer.stop(start);
+                }
+            }
+        }
+    }
+
+    // internal attributes of the class
+    private final String path;
+    private final Properties connectionProperties;
+    private final int minSize;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final boolean validateOnBorrow;
+    private final int validationTimeoutSeconds;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final Metrics metrics;
+    private final Metrics.Timer acquireTimer; // time taken by getConnection
+    private final Metrics.Timer queryTimer; // time taken by execute calls of statements, one per round trip to db
+
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private final Map<PooledConnection, Boolean> borrowedConnections = new IdentityHashMap<>();
+    private int totalConnections; // idle + borrowed + being opened
+    private boolean isClosed;
+    private final ScheduledExecutorService housekeeper;
+
+    /**
+     * Constructor, reads pool configuration from the properties loaded from property file
+     * @param properties
+     */
+    public ConnectionPool(Properties properties) {
+        this(properties, Metrics.DISABLED);
+    }
+
+    /**
+     * Constructor, reads pool configuration from the properties loaded from property file
+     * and records connection and query metrics into the given registry
+     * @param properties
+     * @param metrics
+     */
+    public ConnectionPool(Properties properties, Metrics metrics) {
+        this.metrics = metrics;
+        this.acquireTimer = metrics.timer("connectionPool.acquire");
+        this.queryTimer = metrics.timer("db.query");
+        metrics.gauge("connectionPool.total", this::getTotalConnections);
+        metrics.gauge("connectionPool.borrowed", this::getBorrowedConnections);
+        this.path = properties.getProperty(Constants.DATABASE_PATH);
+        this.connectionProperties = new Properties();
+        connectionProperties.setProperty("user", properties.getProperty(Constants.USERNAME));
+        connectionProperties.setProperty("password", properties.getProperty(Constants.PASSWORD));
+        // driver specific properties, e.g. jdbc.cachePrepStmts=true is passed to driver as cachePrepStmts=true
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(Constants.DRIVER_PROPERTY_PREFIX)) {
+                connectionProperties.setProperty(key.substring(Constants.DRIVER_PROPERTY_PREFIX.length()), properties.getProperty(key));
+            }
+        }
+
+        this.minSize = PowerService.intProperty(properties, Constants.POOL_MIN_SIZE, Constants.DEFAULT_POOL_MIN_SIZE);
+        this.maxSize = PowerService.intProperty(properties, Constants.POOL_MAX_SIZE, Constants.DEFAULT_POOL_MAX_SIZE);
+        this.maxWaitMillis = PowerService.intProperty(properties, Constants.POOL_MAX_WAIT_MILLIS, Constants.DEFAULT_POOL_MAX_WAIT_MILLIS);
+        this.validateOnBorrow = Boolean.parseBoolean(properties.getProperty(Constants.POOL_VALIDATE_ON_BORROW, "true"));
+        this.validationTimeoutSeconds = PowerService.intProperty(properties, Constants.POOL_VALIDATION_TIMEOUT_SECONDS, Constants.DEFAULT_POOL_VALIDATION_TIMEOUT_SECONDS);
+        this.idleTimeoutMillis = PowerService.intProperty(properties, Constants.POOL_IDLE_TIMEOUT_MILLIS, Constants.DEFAULT_POOL_IDLE_TIMEOUT_MILLIS);
+        this.leakThresholdMillis = PowerService.intProperty(properties, Constants.POOL_LEAK_THRESHOLD_MILLIS, Constants.DEFAULT_POOL_LEAK_THRESHOLD_MILLIS);
+
+        if (path==null || minSize<0 || maxSize<=0 || minSize>maxSize) {
+            throw new IllegalArgumentException("Invalid connection pool configuration");
+        }
+
+        try {
+            Class.forName(properties.getProperty(Constants.DRIVER, Constants.JDBC));
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+
+        // open min number of connections upfront
+        for (int i = 0; i < minSize; i++) {
+            try {
+                PooledConnection pooledConnection = new PooledConnection(openPhysicalConnection());
+                synchronized (this) {
+                    totalConnections++;
+                    idleConnections.push(pooledConnection);
+                }
+            } catch (SQLException e) {
+                close();
+                throw new RuntimeException(e.getMessage());
+            }
+        }
+
+        // evict idle connections, refill to min size and report leaks in background
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, Constants.POOL_HOUSEKEEPING_PERIOD_MILLIS));
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the pool, waits if max number of connections are already borrowed.
+     * The connection must be closed by the caller to return it to the pool.
+     * @return Connection
+     * @throws SQLException if no connection could be obtained
+     */
+    public Connection getConnection() throws SQLException {
+        long start = acquireTimer.start();
+        try {
+            return borrow();
+        } finally {
+            acquireTimer.stop(start);
+        }
+    }
+
+    /**
+     * Take an idle connection, open a new one or wait for one to be returned
+     * @return
+     * @throws SQLException
+     */
+    private Connection borrow() throws SQLException {
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+
+        while (true) {
+            PooledConnection pooledConnection = null;
+            boolean shouldOpen = false;
+
+            synchronized (this) {
+                while (isClosed==false && idleConnections.isEmpty() && totalConnections>=maxSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining<=0) {
+                        throw new SQLException("Timed out waiting for a connection, pool size is " + maxSize);
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a connection");
+                    }
+                }
+                if (isClosed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                if (idleConnections.isEmpty()==false) {
+                    // most recently used connection is the most likely to still be alive
+                    pooledConnection = idleConnections.pop();
+                } else {
+                    // reserve slot for a new connection
+                    totalConnections++;
+                    shouldOpen = true;
+                }
+            }
+
+            if (shouldOpen) {
+                try {
+                    pooledConnection = new PooledConnection(openPhysicalConnection());
+                } catch (SQLException e) {
+                    discard();
+                    throw e;
+                }
+            } else if (validateOnBorrow && isValid(pooledConnection)==false) {
+                // stale connection, drop it and try again
+                closeQuietly(pooledConnection.physical);
+                discard();
+                continue;
+            }
+
+            return lend(pooledConnection);
+        }
+    }
+
+    /**
+     * Close all idle connections and stop handing out new ones,
+     * borrowed connections are closed when they are returned
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+        synchronized (this) {
+            isClosed = true;
+            toClose = new ArrayList<>(idleConnections);
+            totalConnections -= idleConnections.size();
+            idleConnections.clear();
+            notifyAll();
+        }
+        if (housekeeper!=null) {
+            housekeeper.shutdownNow();
+        }
+        for (PooledConnection pooledConnection : toClose) {
+            closeQuietly(pooledConnection.physical);
+        }
+    }
+
+    /**
+     * Number of connections currently open (idle and borrowed)
+     * @return
+     */
+    public synchronized int getTotalConnections() {
+        return totalConnections;
+    }
+
+    /**
+     * Number of connections currently borrowed
+     * @return
+     */
+    public synchronized int getBorrowedConnections() {
+        return borrowedConnections.size();
+    }
+
+    /**
+     * Hand out a proxy of the pooled connection to the caller
+     * @param pooledConnection
+     * @return
+     */
+    private Connection lend(PooledConnection pooledConnection) {
+        pooledConnection.borrowedAt = System.currentTimeMillis();
+        pooledConnection.borrowedBy = leakThresholdMillis>0 ? new Throwable("Connection borrowed here") : null;
+        pooledConnection.isLeakReported = false;
+        pooledConnection.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new ConnectionHandler(pooledConnection));
+        synchronized (this) {
+            borrowedConnections.put(pooledConnection, Boolean.TRUE);
+        }
+        return pooledConnection.proxy;
+    }
+
+    /**
+     * Return a borrowed connection to the pool after resetting its state
+     * @param pooledConnection
+     */
+    private void release(PooledConnection pooledConnection) {
+        boolean isReusable = true;
+        try {
+            // a caller may have left a transaction open
+            if (pooledConnection.physical.getAutoCommit()==false) {
+                pooledConnection.physical.rollback();
+                pooledConnection.physical.setAutoCommit(true);
+            }
+            pooledConnection.physical.clearWarnings();
+        } catch (SQLException e) {
+            isReusable = false;
+        }
+
+        synchronized (this) {
+            borrowedConnections.remove(pooledConnection);
+            pooledConnection.proxy = null;
+            pooledConnection.borrowedBy = null;
+            pooledConnection.lastUsedAt = System.currentTimeMillis();
+            if (isReusable && isClosed==false) {
+                idleConnections.push(pooledConnection);
+                notifyAll();
+                return;
+            }
+            totalConnections--;
+            notifyAll();
+        }
+        closeQuietly(pooledConnection.physical);
+    }
+
+    /**
+     * Give up the slot held by a connection that could not be opened or is no longer valid
+     */
+    private synchronized void discard() {
+        totalConnections--;
+        notifyAll();
+    }
+
+    /**
+     * Close connections idle for longer than idle timeout, refill the pool to min size
+     * and log connections borrowed for longer than leak threshold
+     */
+    private void houseKeep() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> toClose = new ArrayList<>();
+        int toOpen;
+
+        synchronized (this) {
+            if (isClosed) {
+                return;
+            }
+            // idle connections are ordered from most to least recently used
+            Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+            while (iterator.hasNext() && totalConnections>minSize) {
+                PooledConnection pooledConnection = iterator.next();
+                if (now-pooledConnection.lastUsedAt<idleTimeoutMillis) {
+                    break;
+                }
+                iterator.remove();
+                totalConnections--;
+                toClose.add(pooledConnection);
+            }
+
+            if (leakThresholdMillis>0) {
+                for (PooledConnection pooledConnection : borrowedConnections.keySet()) {
+                    if (pooledConnection.isLeakReported==false && now-pooledConnection.borrowedAt>leakThresholdMillis) {
+                        pooledConnection.isLeakReported = true;
+                        LOGGER.log(Level.WARNING, "Connection borrowed for more than " + leakThresholdMillis
+                                + " ms, possible leak", pooledConnection.borrowedBy);
+                    }
+                }
+            }
+
+            toOpen = Math.max(0, minSize-totalConnections);
+            totalConnections += toOpen;
+        }
+
+        for (PooledConnection pooledConnection : toClose) {
+            closeQuietly(pooledConnection.physical);
+        }
+
+        for (int i = 0; i < toOpen; i++) {
+            try {
+                PooledConnection pooledConnection = new PooledConnection(openPhysicalConnection());
+                synchronized (this) {
+                    if (isClosed==false) {
+                        idleConnections.addLast(pooledConnection);
+                        notifyAll();
+                        continue;
+                    }
+                    totalConnections--;
+                }
+                closeQuietly(pooledConnection.physical);
+            } catch (SQLException e) {
+                discard();
+            }
+        }
+    }
+
+    /**
+     * Open a new connection to db
+     * @return
+     * @throws SQLException
+     */
+    private Connection openPhysicalConnection() throws SQLException {
+        return DriverManager.getConnection(path, connectionProperties);
+    }
+
+    /**
+     * Check if connection to db is still alive
+     * @param pooledConnection
+     * @return
+     */
+    private boolean isValid(PooledConnection pooledConnection) {
+        try {
+            return pooledConnection.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Close connection ignoring any exception
+     * @param connection
+     */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // connection is discarded anyway
+        }
+    }
+}
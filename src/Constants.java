@@ -7,5 +7,77 @@ public final class Constants {
     public static final String DATABASE_PATH = "path";
     public static final String USERNAME = "username";
     public static final String PASSWORD = "password";
+    public static final String DRIVER = "driver";
+    public static final String DRIVER_PROPERTY_PREFIX = "jdbc.";
     public static final int POSTAL_CODE_LENGTH = 6;
+
+    // connection pool properties and their default values
+    public static final String POOL_MIN_SIZE = "pool.minSize";
+    public static final String POOL_MAX_SIZE = "pool.maxSize";
+    public static final String POOL_MAX_WAIT_MILLIS = "pool.maxWaitMillis";
+    public static final String POOL_VALIDATE_ON_BORROW = "pool.validateOnBorrow";
+    public static final String POOL_VALIDATION_TIMEOUT_SECONDS = "pool.validationTimeoutSeconds";
+    public static final String POOL_IDLE_TIMEOUT_MILLIS = "pool.idleTimeoutMillis";
+    public static final String POOL_LEAK_THRESHOLD_MILLIS = "pool.leakThresholdMillis";
+    public static final int DEFAULT_POOL_MIN_SIZE = 2;
+    public static final int DEFAULT_POOL_MAX_SIZE = 10;
+    public static final int DEFAULT_POOL_MAX_WAIT_MILLIS = 30000;
+    public static final int DEFAULT_POOL_VALIDATION_TIMEOUT_SECONDS = 2;
+    public static final int DEFAULT_POOL_IDLE_TIMEOUT_MILLIS = 600000;
+    public static final int DEFAULT_POOL_LEAK_THRESHOLD_MILLIS = 60000;
+    public static final long POOL_HOUSEKEEPING_PERIOD_MILLIS = 30000;
+
+    // bulk load properties and their default values
+    public static final String BULK_CHUNK_SIZE = "bulk.chunkSize";
+    public static final int DEFAULT_BULK_CHUNK_SIZE = 1000;
+
+    // rows fetched per round trip to db by scans of whole tables, with MySQL only if jdbc.useCursorFetch=true
+    public static final String DB_FETCH_SIZE = "db.fetchSize";
+    public static final int DEFAULT_DB_FETCH_SIZE = 1000;
+
+    // rows read from grid model at a time by the streams of reports
+    public static final String REPORT_PAGE_SIZE = "report.pageSize";
+    public static final int DEFAULT_REPORT_PAGE_SIZE = 1000;
+
+    // grid model properties and their default values
+    public static final String MODEL_RECONCILIATION_INTERVAL_MILLIS = "model.reconciliationIntervalMillis";
+    public static final int DEFAULT_MODEL_RECONCILIATION_INTERVAL_MILLIS = 300000;
+    public static final double RECONCILIATION_TOLERANCE = 0.5; // people
+    public static final double QUERY_DIVISION_SCALE = 10000; // db rounds results of division to 4 decimal places
+
+    // repair plan properties, parallelism defaults to the number of available processors
+    public static final String REPAIR_PLAN_PARALLELISM = "repairPlan.parallelism";
+    public static final String REPAIR_PLAN_APPROXIMATE = "repairPlan.approximate";
+    public static final String REPAIR_PLAN_EXACT_MAX_NODES = "repairPlan.exactMaxNodes";
+    public static final String REPAIR_PLAN_BEAM_WIDTH = "repairPlan.beamWidth";
+    public static final String REPAIR_PLAN_DEADLINE_MILLIS = "repairPlan.deadlineMillis";
+    public static final int DEFAULT_REPAIR_PLAN_EXACT_MAX_NODES = 100000;
+    public static final int DEFAULT_REPAIR_PLAN_BEAM_WIDTH = 64;
+    public static final int DEFAULT_REPAIR_PLAN_DEADLINE_MILLIS = 200;
+
+    // writes of the same hub or postal code are serialised by one of this many locks
+    public static final int WRITE_LOCK_STRIPES = 64;
+
+    // metrics properties, nothing is recorded or exported unless metrics are enabled
+    public static final String METRICS_ENABLED = "metrics.enabled";
+    public static final String METRICS_JMX = "metrics.jmx";
+    public static final String METRICS_HTTP_PORT = "metrics.http.port"; // text format served on localhost, off if not set
+    public static final String METRICS_EXPORTERS = "metrics.exporters"; // comma separated class names of more exporters
+
+    // async facade properties, threads default to the max size of the connection pool
+    public static final String ASYNC_THREADS = "async.threads";
+
+    // repair log properties and their default values
+    public static final String REPAIR_LOG_JOURNAL = "repairLog.journal";
+    public static final String REPAIR_LOG_BATCH_SIZE = "repairLog.batchSize";
+    public static final String REPAIR_LOG_QUEUE_CAPACITY = "repairLog.queueCapacity";
+    public static final String REPAIR_LOG_SYNC_JOURNAL = "repairLog.syncJournal"; // false to only flush journal to the operating system instead of forcing it to disk in groups
+    public static final String DEFAULT_REPAIR_LOG_JOURNAL = "hubRepair.journal";
+    public static final int DEFAULT_REPAIR_LOG_BATCH_SIZE = 500;
+    public static final int DEFAULT_REPAIR_LOG_QUEUE_CAPACITY = 10000;
+    public static final long RESTORATION_PERIOD_MILLIS = 3600000; // restorations are summed per hour of wall clock time in which their repair was submitted
+    public static final double ESTIMATE_PRIOR_HOURS = 8; // weight of the factor of all hubs in the correction factor of a hub
+    public static final double MIN_ESTIMATE_FACTOR = 0.25; // bounds of the correction factor of a repair estimate
+    public static final double MAX_ESTIMATE_FACTOR = 4;
+    public static final double MIN_REMAINING_FRACTION = 0.1; // part of a corrected estimate that is left while the hub is out of service
 }
@@ -1,7 +1,7 @@
-import java.util.Set;
-
 /**
  * Db class contains queries needed to insert/read/update the data from database.
+ * Values are never concatenated into the queries, they are bound by the caller to the
+ * '?' placeholders of a PreparedStatement in the order listed with each query.
  */
 public class Db {
 
@@ -29,6 +29,18 @@ public class Db {
     public static final String TOTAL_POPULATION = "TOTAL_POPULATION";
     public static final String HUBS_OUT_OF_SERVICE = "HUBS_OUT_OF_SERVICE";
     public static final String TOTAL_HUBS ="TOTAL_HUBS";
+    public static final String REPAIR_LOG_CHECKPOINT_TABLE = "REPAIR_LOG_CHECKPOINT_TABLE";
+    public static final String LAST_SEQUENCE = "LAST_SEQUENCE";
+    public static final String HUB_REPAIR_ROLLUP_TABLE = "HUB_REPAIR_ROLLUP_TABLE";
+    public static final String EMPLOYEE_REPAIR_ROLLUP_TABLE = "EMPLOYEE_REPAIR_ROLLUP_TABLE";
+    public static final String RESTORATION_ROLLUP_TABLE = "RESTORATION_ROLLUP_TABLE";
+    public static final String TOTAL_REPAIR_TIME = "TOTAL_REPAIR_TIME";
+    public static final String OPEN_REPAIR_TIME = "OPEN_REPAIR_TIME";
+    public static final String RESTORATIONS = "RESTORATIONS";
+    public static final String RESTORED_REPAIR_TIME = "RESTORED_REPAIR_TIME";
+    public static final String RESTORED_ESTIMATE = "RESTORED_ESTIMATE";
+    public static final String PERIOD_START = "PERIOD_START";
+    public static final String PEOPLE_RESTORED = "PEOPLE_RESTORED";
 
     // Make constructor private so no object of this class can be created
     private Db() {
@@ -97,234 +109,371 @@ public class Db {
                 ");";
     }
 
+    /**
+     * Query to create repair log checkpoint table, its only row holds the sequence number
+     * of the last hub repair written from the repair log journal
+     * @return
+     */
+    public static  String createRepairLogCheckpointTable() {
+        return "CREATE TABLE IF NOT EXISTS " + REPAIR_LOG_CHECKPOINT_TABLE +
+                "(" +
+                ID + " INT PRIMARY KEY," +
+                LAST_SEQUENCE + " BIGINT NOT NULL" +
+                ");";
+    }
+
+    /**
+     * Query to create hub repair rollup table, which keeps the totals of the repairs of every hub.
+     * OPEN_REPAIR_TIME is the repair time spent on the hub since it last went out of service,
+     * RESTORED_REPAIR_TIME and RESTORED_ESTIMATE sum the actual and estimated repair time of the damages
+     * after which the hub came back in service
+     * @return
+     */
+    public static  String createHubRepairRollupTable() {
+        return "CREATE TABLE IF NOT EXISTS " + HUB_REPAIR_ROLLUP_TABLE +
+                "(" +
+                HUB_ID + " VARCHAR(256) PRIMARY KEY," +
+                TOTAL_REPAIRS + " INT NOT NULL," +
+                TOTAL_REPAIR_TIME + " DOUBLE NOT NULL," +
+                OPEN_REPAIR_TIME + " DOUBLE NOT NULL," +
+                RESTORATIONS + " INT NOT NULL," +
+                RESTORED_REPAIR_TIME + " DOUBLE NOT NULL," +
+                RESTORED_ESTIMATE + " DOUBLE NOT NULL," +
+                "FOREIGN KEY(" + HUB_ID + ") REFERENCES " + DISTRIBUTION_HUBS_TABLE + "(" + HUB_ID + ")" +
+                ");";
+    }
+
+    /**
+     * Query to create employee repair rollup table, which keeps the totals of the repairs of every employee
+     * @return
+     */
+    public static  String createEmployeeRepairRollupTable() {
+        return "CREATE TABLE IF NOT EXISTS " + EMPLOYEE_REPAIR_ROLLUP_TABLE +
+                "(" +
+                EMPLOYEE_ID + " VARCHAR(256) PRIMARY KEY," +
+                TOTAL_REPAIRS + " INT NOT NULL," +
+                TOTAL_REPAIR_TIME + " DOUBLE NOT NULL," +
+                RESTORATIONS + " INT NOT NULL," +
+                "FOREIGN KEY(" + EMPLOYEE_ID + ") REFERENCES " + EMPLOYEES_TABLE + "(" + EMPLOYEE_ID + ")" +
+                ");";
+    }
+
+    /**
+     * Query to create restoration rollup table, which keeps the hubs brought back in service and the people
+     * who regained service in every period of wall clock time, PERIOD_START is in milliseconds since epoch
+     * @return
+     */
+    public static  String createRestorationRollupTable() {
+        return "CREATE TABLE IF NOT EXISTS " + RESTORATION_ROLLUP_TABLE +
+                "(" +
+                PERIOD_START + " BIGINT PRIMARY KEY," +
+                RESTORATIONS + " INT NOT NULL," +
+                PEOPLE_RESTORED + " DOUBLE NOT NULL" +
+                ");";
+    }
+
     /**
      * Query to add/update postal code in postal codes table
+     * Parameters: postal code, population, area, population, area
      * @return
      */
-    public static  String addPostalCodeQuery(String postalCode, int population, int area) {
+    public static  String addPostalCodeQuery() {
         return "INSERT INTO "+POSTAL_CODES_TABLE+"("+POSTAL_CODE+", "+POPULATION+", "+AREA+") VALUES\n" +
-                "(\""+postalCode+"\", "+population+", "+area+")\n" +
+                "(?, ?, ?)\n" +
                 "ON DUPLICATE KEY UPDATE \n" +
-                POPULATION+"="+population+",\n" +
-                AREA+"="+area+";";
+                POPULATION+"=?,\n" +
+                AREA+"=?;";
     }
 
     /**
      * Query to add/update distribution hub in distribution hubs table
+     * Parameters: hub id, location x, location y, location x, location y
      * @return
      */
-    public static  String addDistributionHubQuery(String hubIdentifier, Point location) {
+    public static  String addDistributionHubQuery() {
         return "INSERT INTO "+DISTRIBUTION_HUBS_TABLE+"("+HUB_ID+", "+LOCATION_X+", "+LOCATION_Y+") VALUES\n" +
-                "(\""+hubIdentifier+"\", "+location.getX()+", "+location.getY()+")\n" +
+                "(?, ?, ?)\n" +
                 "ON DUPLICATE KEY UPDATE \n" +
-                LOCATION_X+"="+location.getX()+",\n" +
-                LOCATION_Y+"="+location.getY()+",\n" +
+                LOCATION_X+"=?,\n" +
+                LOCATION_Y+"=?,\n" +
                 IN_SERVICE+"=TRUE,\n" +
                 REPAIR_ESTIMATE+"=0"+";";
     }
 
     /**
-     * Query to add entry to postal codes and distribution hubs junction table
+     * Query to add entry to postal codes and distribution hubs junction table,
+     * executed in a batch with one entry per serviced area
+     * Parameters: postal code, hub id
      * @return
      */
-    public static  String addPostalCodeDistributionHubQuery(String hubIdentifier, Set<String> servicedAreas) {
-        StringBuilder query = new StringBuilder();
-        query.append("INSERT INTO "+POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+"("+POSTAL_CODE+", "+HUB_ID+") VALUES ");
-        for (String postalCode : servicedAreas) {
-            query.append("(\"").append(postalCode).append("\", ");
-            query.append("\"").append(hubIdentifier).append("\"), ");
-        }
-        query.replace(query.length() - 2, query.length(), ";");
-        return query.toString();
+    public static  String addPostalCodeDistributionHubQuery() {
+        return "INSERT INTO "+POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+"("+POSTAL_CODE+", "+HUB_ID+") VALUES (?, ?);";
     }
 
     /**
      * Query to fetch all info from postal codes table
+     * Columns: postal code, population, area
      * @return
      */
     public static  String getPostalCodesQuery() {
-        return "SELECT * from "+POSTAL_CODES_TABLE+";";
+        return "SELECT "+POSTAL_CODE+", "+POPULATION+", "+AREA+" from "+POSTAL_CODES_TABLE+";";
+    }
+
+    /**
+     * Query to fetch all postal codes from postal codes table
+     * Columns: postal code
+     * @return
+     */
+    public static  String getPostalCodeIdsQuery() {
+        return "SELECT "+POSTAL_CODE+" from "+POSTAL_CODES_TABLE+";";
     }
 
     /**
      * Query to fetch all info from distribution hubs table
+     * Columns: hub id, location x, location y, in service, repair estimate
      * @return
      */
     public static  String getDistributionHubsQuery() {
-        return "SELECT * from "+DISTRIBUTION_HUBS_TABLE+";";
+        return "SELECT "+HUB_ID+", "+LOCATION_X+", "+LOCATION_Y+", "+IN_SERVICE+", "+REPAIR_ESTIMATE+" from "+DISTRIBUTION_HUBS_TABLE+";";
+    }
+
+    /**
+     * Query to fetch all entries of postal codes and distribution hubs junction table
+     * Columns: postal code, hub id
+     * @return
+     */
+    public static  String getPostalCodesDistributionHubsQuery() {
+        return "SELECT "+POSTAL_CODE+", "+HUB_ID+" from "+POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+";";
     }
 
     /**
-     * Query to fetch all info from employees table
+     * Query to check if a postal code exists, looks up the primary key only
+     * Parameters: postal code
      * @return
      */
-    public static  String getEmployeesQuery() {
-        return "SELECT * from "+EMPLOYEES_TABLE+";";
+    public static  String doesPostalCodeExistQuery() {
+        return "SELECT 1 FROM "+POSTAL_CODES_TABLE+" WHERE "+POSTAL_CODE+"=? LIMIT 1;";
+    }
+
+    /**
+     * Query to check if a distribution hub exists, looks up the primary key only
+     * Parameters: hub id
+     * @return
+     */
+    public static  String doesHubExistQuery() {
+        return "SELECT 1 FROM "+DISTRIBUTION_HUBS_TABLE+" WHERE "+HUB_ID+"=? LIMIT 1;";
+    }
+
+    /**
+     * Query to check if an employee exists, looks up the primary key only
+     * Parameters: employee id
+     * @return
+     */
+    public static  String doesEmployeeExistQuery() {
+        return "SELECT 1 FROM "+EMPLOYEES_TABLE+" WHERE "+EMPLOYEE_ID+"=? LIMIT 1;";
     }
 
     /**
      * Query to delete entries from postal codes and distribution hubs junction table having HUB_ID=hubID
+     * Parameters: hub id
      * @return
      */
-    public static  String removeEntriesOfHubFromPostalCodeDistributionHubQuery(String hubID) {
+    public static  String removeEntriesOfHubFromPostalCodeDistributionHubQuery() {
         return "DELETE FROM "+POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+
-                "  WHERE "+HUB_ID+"=\""+hubID+"\";";
+                "  WHERE "+HUB_ID+"=?;";
     }
 
     /**
      * Query to update estimated repair time of a hub
+     * Parameters: repair estimate, hub id
      * @return
      */
-    public static  String setHubDamageQuery(String hubID, float repairEstimate) {
+    public static  String setHubDamageQuery() {
         return "UPDATE DISTRIBUTION_HUBS_TABLE\n" +
-                "\tSET "+IN_SERVICE+"=FALSE, REPAIR_ESTIMATE="+repairEstimate+"\n" +
-                " WHERE HUB_ID=\""+hubID+"\";";
+                "\tSET "+IN_SERVICE+"=FALSE, REPAIR_ESTIMATE=?\n" +
+                " WHERE HUB_ID=?;";
     }
 
     /**
      * Query to add hub repair information to hub repair table
+     * Parameters: hub id, employee id, repair time, in service
      * @return
      */
-    public static  String addHubRepairQuery(String hubIdentifier, String employeeId, float repairTime, boolean inService) {
+    public static  String addHubRepairQuery() {
         return "INSERT INTO "+HUB_REPAIR_TABLE+"("+HUB_ID+", "+EMPLOYEE_ID+", "+REPAIR_TIME+", "+IN_SERVICE+")\n" +
-                "VALUES (\""+hubIdentifier+"\", \""+employeeId+"\", "+repairTime+", "+inService+");";
+                "VALUES (?, ?, ?, ?);";
     }
 
     /**
-     * Querty to update status of hub to in service in distribution hubs table
-     * @param hubID
+     * Query to fetch the sequence number of the last hub repair written from the repair log journal
      * @return
      */
-    public static  String setHubInServiceQuery(String hubID) {
-        return "UPDATE "+DISTRIBUTION_HUBS_TABLE+"\n" +
-                "\tSET "+IN_SERVICE+"=TRUE, "+REPAIR_ESTIMATE+"=0\n" +
-                "    WHERE "+HUB_ID+"=\""+hubID+"\";";
+    public static  String getRepairLogCheckpointQuery() {
+        return "SELECT "+LAST_SEQUENCE+" FROM "+REPAIR_LOG_CHECKPOINT_TABLE+" WHERE "+ID+"=1;";
     }
 
     /**
-     * Query to fetch total number of people who are out of service
+     * Query to set the sequence number of the last hub repair written from the repair log journal
+     * Parameters: sequence, sequence
      * @return
      */
-    public static  String peopleOutOfServiceQuery() {
-        return "WITH T1 AS\n" +
-                "\t(SELECT *\n" +
-                "\t\tFROM "+POSTAL_CODES_TABLE+" JOIN "+POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+" USING("+POSTAL_CODE+")\n" +
-                "\t\tJOIN "+DISTRIBUTION_HUBS_TABLE+" USING ("+HUB_ID+")),\n" +
-                "T2 AS\n" +
-                "\t(SELECT "+POSTAL_CODE+", COUNT(*) as TOTAL_HUBS, "+POPULATION+"\n" +
-                "\t\tFROM T1\n" +
-                "        GROUP BY "+POSTAL_CODE+"),\n" +
-                "T3 AS\n" +
-                "\t(SELECT "+POSTAL_CODE+", COUNT(*) as "+HUBS_OUT_OF_SERVICE+"\n" +
-                "\t\tFROM T1 WHERE "+IN_SERVICE+"=FALSE\n" +
-                "        GROUP BY "+POSTAL_CODE+")\n" +
-                "SELECT COALESCE(SUM((POPULATION*"+HUBS_OUT_OF_SERVICE+")/"+TOTAL_HUBS+"), 0) AS "+PEOPLE_OUT_OF_SERVICE+"\n" +
-                "   FROM T2 JOIN T3 USING("+POSTAL_CODE+");";
+    public static  String setRepairLogCheckpointQuery() {
+        return "INSERT INTO "+REPAIR_LOG_CHECKPOINT_TABLE+"("+ID+", "+LAST_SEQUENCE+") VALUES\n" +
+                "(1, ?)\n" +
+                "ON DUPLICATE KEY UPDATE \n" +
+                LAST_SEQUENCE+"=?;";
+    }
+
+    /**
+     * Query to add a repair to the totals of its hub, executed in a batch with one entry per repair in the order
+     * of the repairs. The values are the totals of a hub having only this repair, restorations is 1 if the repair
+     * brought the hub back in service and 0 otherwise.
+     * Parameters: hub id, repair time, open repair time, restorations, restored repair time, restored estimate
+     * @return
+     */
+    public static  String addHubRepairRollupQuery() {
+        return "INSERT INTO "+HUB_REPAIR_ROLLUP_TABLE+"("+HUB_ID+", "+TOTAL_REPAIRS+", "+TOTAL_REPAIR_TIME+", "+OPEN_REPAIR_TIME+", "+
+                RESTORATIONS+", "+RESTORED_REPAIR_TIME+", "+RESTORED_ESTIMATE+") VALUES\n" +
+                "(?, 1, ?, ?, ?, ?, ?)\n" +
+                "ON DUPLICATE KEY UPDATE \n" +
+                TOTAL_REPAIRS+"="+TOTAL_REPAIRS+"+1,\n" +
+                TOTAL_REPAIR_TIME+"="+TOTAL_REPAIR_TIME+"+VALUES("+TOTAL_REPAIR_TIME+"),\n" +
+                // time spent since the hub went out of service is closed before OPEN_REPAIR_TIME is reset
+                RESTORED_REPAIR_TIME+"="+RESTORED_REPAIR_TIME+"+VALUES("+RESTORED_REPAIR_TIME+")+"+OPEN_REPAIR_TIME+"*VALUES("+RESTORATIONS+"),\n" +
+                RESTORED_ESTIMATE+"="+RESTORED_ESTIMATE+"+VALUES("+RESTORED_ESTIMATE+"),\n" +
+                OPEN_REPAIR_TIME+"=(1-VALUES("+RESTORATIONS+"))*"+OPEN_REPAIR_TIME+"+VALUES("+OPEN_REPAIR_TIME+"),\n" +
+                RESTORATIONS+"="+RESTORATIONS+"+VALUES("+RESTORATIONS+");";
+    }
+
+    /**
+     * Query to forget the repair time logged for the previous damage of a hub when it is damaged again
+     * Parameters: hub id
+     * @return
+     */
+    public static  String resetOpenRepairTimeQuery() {
+        return "UPDATE "+HUB_REPAIR_ROLLUP_TABLE+" SET "+OPEN_REPAIR_TIME+"=0 WHERE "+HUB_ID+"=?;";
     }
 
     /**
-     * Query to fetch information of limit number of most damaged postal codes
+     * Query to get the repair totals of all hubs, used to correct repair estimates
+     * Parameters: none
+     * Columns: hub id, open repair time, restored repair time, restored estimate
      * @return
      */
-    public static  String mostDamagedPostalCodesQuery(int limit) {
-        String q = "SELECT "+POSTAL_CODE+", SUM("+REPAIR_ESTIMATE+") AS "+TOTAL_REPAIRS+"\n" +
-                "\tFROM "+POSTAL_CODES_TABLE+" JOIN "+POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+" USING("+POSTAL_CODE+")\n" +
-                "\tJOIN "+DISTRIBUTION_HUBS_TABLE+" USING ("+HUB_ID+")\n" +
-                "\tGROUP BY "+POSTAL_CODE+"\n" +
-                "    HAVING "+TOTAL_REPAIRS+">0\n" +
-                "\tORDER BY "+TOTAL_REPAIRS+" DESC\n" +
-                "\tLIMIT "+limit+";";
-        return q;
+    public static  String getHubRepairRollupsQuery() {
+        return "SELECT "+HUB_ID+", "+OPEN_REPAIR_TIME+", "+RESTORED_REPAIR_TIME+", "+RESTORED_ESTIMATE+" FROM "+HUB_REPAIR_ROLLUP_TABLE+";";
+    }
+
+    /**
+     * Query to add a repair to the totals of its employee, executed in a batch with one entry per repair
+     * Parameters: employee id, repair time, restorations
+     * @return
+     */
+    public static  String addEmployeeRepairRollupQuery() {
+        return "INSERT INTO "+EMPLOYEE_REPAIR_ROLLUP_TABLE+"("+EMPLOYEE_ID+", "+TOTAL_REPAIRS+", "+TOTAL_REPAIR_TIME+", "+RESTORATIONS+") VALUES\n" +
+                "(?, 1, ?, ?)\n" +
+                "ON DUPLICATE KEY UPDATE \n" +
+                TOTAL_REPAIRS+"="+TOTAL_REPAIRS+"+1,\n" +
+                TOTAL_REPAIR_TIME+"="+TOTAL_REPAIR_TIME+"+VALUES("+TOTAL_REPAIR_TIME+"),\n" +
+                RESTORATIONS+"="+RESTORATIONS+"+VALUES("+RESTORATIONS+");";
     }
 
     /**
-     * Query to fetch fix order of hubs that are out of service
+     * Query to add restored hubs and people to the totals of a period
+     * Parameters: period start, restorations, people restored
      * @return
      */
-    public static  String fixOrderQuery() {
-        return "WITH T1 AS " +
-                "(SELECT * "+
-                "FROM "+POSTAL_CODES_TABLE+" JOIN "+POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+" USING("+POSTAL_CODE+") "+
-                "JOIN "+DISTRIBUTION_HUBS_TABLE+" USING("+HUB_ID+")), "+
-                "T2 AS "+
-                "(SELECT "+POSTAL_CODE+", "+POPULATION+"/COUNT(*) AS POPULATION_PER_HUB "+
-                "FROM T1 GROUP BY "+POSTAL_CODE+"), "+
-                "T3 AS "+
-                "(SELECT "+HUB_ID+", "+POSTAL_CODE+", "+REPAIR_ESTIMATE+
-                " FROM T1 WHERE "+IN_SERVICE+"=FALSE)"+
-                "SELECT "+HUB_ID+", "+REPAIR_ESTIMATE+", SUM(POPULATION_PER_HUB)/"+REPAIR_ESTIMATE+" AS "+HUB_IMPACT+
-                " FROM T2 JOIN T3 USING("+POSTAL_CODE+") "+
-                "GROUP BY "+HUB_ID+
-                " ORDER BY "+HUB_IMPACT+" DESC;";
+    public static  String addRestorationRollupQuery() {
+        return "INSERT INTO "+RESTORATION_ROLLUP_TABLE+"("+PERIOD_START+", "+RESTORATIONS+", "+PEOPLE_RESTORED+") VALUES\n" +
+                "(?, ?, ?)\n" +
+                "ON DUPLICATE KEY UPDATE \n" +
+                RESTORATIONS+"="+RESTORATIONS+"+VALUES("+RESTORATIONS+"),\n" +
+                PEOPLE_RESTORED+"="+PEOPLE_RESTORED+"+VALUES("+PEOPLE_RESTORED+");";
     }
 
     /**
-     * Query to fetch total population in all postal codes
+     * Query to fetch repair totals of the hubs that came back in service at least once, in descending order
+     * of the hours their repairs took beyond the estimate
+     * Parameters: limit
+     * Columns: hub id, total repairs, total repair time, restorations, restored repair time, restored estimate
      * @return
      */
-    public static  String totalPopulationQuery() {
-        return "SELECT SUM("+POPULATION+") AS "+TOTAL_POPULATION+" FROM "+POSTAL_CODES_TABLE+";";
+    public static  String hubRepairStatsQuery() {
+        return "SELECT "+HUB_ID+", "+TOTAL_REPAIRS+", "+TOTAL_REPAIR_TIME+", "+RESTORATIONS+", "+RESTORED_REPAIR_TIME+", "+RESTORED_ESTIMATE+"\n" +
+                "\tFROM "+HUB_REPAIR_ROLLUP_TABLE+"\n" +
+                "\tWHERE "+RESTORATIONS+">0\n" +
+                "\tORDER BY "+RESTORED_REPAIR_TIME+"-"+RESTORED_ESTIMATE+" DESC, "+HUB_ID+"\n" +
+                "\tLIMIT ?;";
     }
 
     /**
-     * Query to fetch hubs and their repair estimates from distribution hubs table
+     * Query to fetch repair totals of employees in descending order of hubs brought back in service
+     * and then of repairs done
+     * Parameters: limit
+     * Columns: employee id, total repairs, total repair time, restorations
      * @return
      */
-    public static  String hubsRepairEstimatesQuery() {
-        return "SELECT "+HUB_ID+", "+REPAIR_ESTIMATE+" FROM "+DISTRIBUTION_HUBS_TABLE+";";
+    public static  String employeeRepairStatsQuery() {
+        return "SELECT "+EMPLOYEE_ID+", "+TOTAL_REPAIRS+", "+TOTAL_REPAIR_TIME+", "+RESTORATIONS+"\n" +
+                "\tFROM "+EMPLOYEE_REPAIR_ROLLUP_TABLE+"\n" +
+                "\tORDER BY "+RESTORATIONS+" DESC, "+TOTAL_REPAIRS+" DESC, "+EMPLOYEE_ID+"\n" +
+                "\tLIMIT ?;";
     }
 
     /**
-     * Query to fetch information of a hub from distribution hubs table
-     * @param hubID
+     * Query to fetch the restoration totals of the periods in a range of wall clock time, in order of time
+     * Parameters: from period start, to period start
+     * Columns: period start, restorations, people restored
      * @return
      */
-    public static String getHubInfoQuery(String hubID) {
-        return "SELECT * FROM "+DISTRIBUTION_HUBS_TABLE+"\n" +
-                "WHERE "+HUB_ID+"='"+hubID+"';";
+    public static  String restorationRollupQuery() {
+        return "SELECT "+PERIOD_START+", "+RESTORATIONS+", "+PEOPLE_RESTORED+"\n" +
+                "\tFROM "+RESTORATION_ROLLUP_TABLE+"\n" +
+                "\tWHERE "+PERIOD_START+">=? AND "+PERIOD_START+"<?\n" +
+                "\tORDER BY "+PERIOD_START+";";
     }
 
     /**
-     * Query to fetch faulty hubs within max distance from start hub
-     * @param startHubInfo
-     * @param maxDist
+     * Query to fetch the restoration totals of all the periods before a moment of wall clock time
+     * Parameters: from period start
+     * Columns: restorations, people restored
      * @return
      */
-    public static String getFaultyHubsWithinMaxDistQuery(HubInfo startHubInfo, int maxDist) {
-        return "SELECT * FROM "+DISTRIBUTION_HUBS_TABLE+"\n" +
-                "WHERE "+HUB_ID+"!='"+startHubInfo.getHubID()+"' AND "+IN_SERVICE+"=FALSE AND\n" +
-                "ABS("+LOCATION_X+"-"+startHubInfo.getLocationX()+") + ABS("+LOCATION_Y+"-"+startHubInfo.getLocationY()+") <= "+maxDist+";";
+    public static  String restorationBeforeQuery() {
+        return "SELECT COALESCE(SUM("+RESTORATIONS+"), 0) AS "+RESTORATIONS+", COALESCE(SUM("+PEOPLE_RESTORED+"), 0) AS "+PEOPLE_RESTORED+"\n" +
+                "\tFROM "+RESTORATION_ROLLUP_TABLE+"\n" +
+                "\tWHERE "+PERIOD_START+"<?;";
     }
 
     /**
-     * Query to fetch limit number of most underserved postal codes by population
-     * @param limit
+     * Querty to update status of hub to in service in distribution hubs table
+     * Parameters: hub id
      * @return
      */
-    public static  String underservedPostalByPopulationQuery(int limit) {
-        return "WITH T1 AS " +
-                "(SELECT * "+
-                "FROM "+POSTAL_CODES_TABLE+" JOIN "+POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+" USING("+POSTAL_CODE+") "+
-                "JOIN "+DISTRIBUTION_HUBS_TABLE+" USING("+HUB_ID+")) "+
-                "SELECT "+POSTAL_CODE+"," + "COUNT(*)/"+POPULATION+" AS HUBS_PER_PERSON "+
-                "FROM T1 GROUP BY "+POSTAL_CODE+" "+
-                "ORDER BY HUBS_PER_PERSON "+
-                "LIMIT "+limit+";";
+    public static  String setHubInServiceQuery() {
+        return "UPDATE "+DISTRIBUTION_HUBS_TABLE+"\n" +
+                "\tSET "+IN_SERVICE+"=TRUE, "+REPAIR_ESTIMATE+"=0\n" +
+                "    WHERE "+HUB_ID+"=?;";
     }
 
     /**
-     * Query to fetch limit number of most underserved postal codes by area
-     * @param limit
+     * Query to fetch total number of people who are out of service
      * @return
      */
-    public static  String underservedPostalByAreaQuery(int limit) {
-        return "WITH T1 AS " +
-                "(SELECT * "+
-                "FROM "+POSTAL_CODES_TABLE+" JOIN "+POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+" USING("+POSTAL_CODE+") "+
-                "JOIN "+DISTRIBUTION_HUBS_TABLE+" USING("+HUB_ID+")) "+
-                "SELECT "+POSTAL_CODE+"," + "COUNT(*)/"+AREA+" AS HUBS_PER_AREA "+
-                "FROM T1 GROUP BY "+POSTAL_CODE+" "+
-                "ORDER BY HUBS_PER_AREA "+
-                "LIMIT "+limit+";";
+    public static  String peopleOutOfServiceQuery() {
+        return "WITH T1 AS\n" +
+                "\t(SELECT *\n" +
+                "\t\tFROM "+POSTAL_CODES_TABLE+" JOIN "+POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+" USING("+POSTAL_CODE+")\n" +
+                "\t\tJOIN "+DISTRIBUTION_HUBS_TABLE+" USING ("+HUB_ID+")),\n" +
+                "T2 AS\n" +
+                "\t(SELECT "+POSTAL_CODE+", COUNT(*) as TOTAL_HUBS, "+POPULATION+"\n" +
+                "\t\tFROM T1\n" +
+                "        GROUP BY "+POSTAL_CODE+"),\n" +
+                "T3 AS\n" +
+                "\t(SELECT "+POSTAL_CODE+", COUNT(*) as "+HUBS_OUT_OF_SERVICE+"\n" +
+                "\t\tFROM T1 WHERE "+IN_SERVICE+"=FALSE\n" +
+                "        GROUP BY "+POSTAL_CODE+")\n" +
+                "SELECT COALESCE(SUM((POPULATION*"+HUBS_OUT_OF_SERVICE+")/"+TOTAL_HUBS+"), 0) AS "+PEOPLE_OUT_OF_SERVICE+"\n" +
+                "   FROM T2 JOIN T3 USING("+POSTAL_CODE+");";
     }
 }
@@ -0,0 +1,33 @@
+import java.util.Set;
+
+/**
+ * DistributionHub class contains a distribution hub, its location and the postal codes it services
+ */
+
+public class DistributionHub {
+
+    // internal attributes of the class
+    private String hubID;
+    private Point location;
+    private Set<String> servicedAreas;
+
+    // constructor with parameters
+    public DistributionHub(String hubID, Point location, Set<String> servicedAreas) {
+        this.hubID = hubID;
+        this.location = location;
+        this.servicedAreas = servicedAreas;
+    }
+
+    // getters
+    public String getHubID() {
+        return hubID;
+    }
+
+    public Point getLocation() {
+        return location;
+    }
+
+    public Set<String> getServicedAreas() {
+        return servicedAreas;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * EmployeeRepairStats contains setters/getters of the repair totals of an employee
+ */
+
+public class EmployeeRepairStats {
+
+    // internal attributes of the class
+    private String employeeID;
+    private int repairs;
+    private double repairTime;
+    private int restorations;
+
+    /**
+     * Constructor with parameters
+     * @param employeeID
+     * @param repairs number of repairs done by the employee
+     * @param repairTime hours of all repairs done by the employee
+     * @param restorations number of repairs after which the hub came back in service
+     */
+    public EmployeeRepairStats(String employeeID, int repairs, double repairTime, int restorations) {
+        this.employeeID = employeeID;
+        this.repairs = repairs;
+        this.repairTime = repairTime;
+        this.restorations = restorations;
+    }
+
+    // Getters and Setters
+    public String getEmployeeID() {
+        return employeeID;
+    }
+
+    public void setEmployeeID(String employeeID) {
+        this.employeeID = employeeID;
+    }
+
+    public int getRepairs() {
+        return repairs;
+    }
+
+    public void setRepairs(int repairs) {
+        this.repairs = repairs;
+    }
+
+    public double getRepairTime() {
+        return repairTime;
+    }
+
+    public void setRepairTime(double repairTime) {
+        this.repairTime = repairTime;
+    }
+
+    public int getRestorations() {
+        return restorations;
+    }
+
+    public void setRestorations(int restorations) {
+        this.restorations = restorations;
+    }
+}
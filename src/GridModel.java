@@ -0,0 +1,904 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * GridModel is an in-memory copy of postal codes, distribution hubs and the areas they service.
+ * It is loaded once from db and then updated by PowerService after every successful write, so that
+ * the impact of every damaged hub, the number of people out of service, the damaged hubs
+ * near a location and the most damaged and underserved postal codes are always known and can be read
+ * without querying db.
+ *
+ * GridModel can be used by many threads. Writes and reads of more than one value hold the lock of the model,
+ * the number of people out of service is published after every write and read without the lock.
+ *
+ * reload builds a new copy from a snapshot of db without the lock and swaps it in, so the model keeps serving
+ * reads and writes meanwhile. A write holds beginWrite from before its commit till it is applied to the model,
+ * and the snapshot starts while no write holds it, so every write is either in the snapshot or committed after
+ * it. The writes applied while the copy is built are replayed on the copy before it is swapped in.
+ */
+class GridModel {
+
+    /**
+     * PostalCodeState contains a postal code and the hubs that service it
+     */
+    private static class PostalCodeState {
+        final String postalCode;
+        int population;
+        int area;
+        final Set<HubState> hubs = new LinkedHashSet<>();
+        int hubsOutOfService;
+        double repairEstimate; // sum of repair estimates of its hubs, valid only while postal code is in report indexes
+        int hubCount; // number of its hubs, valid only while postal code is in report indexes
+
+        PostalCodeState(String postalCode) {
+            this.postalCode = postalCode;
+        }
+    }
+
+    /**
+     * HubState contains a distribution hub, the postal codes it services and its current impact
+     */
+    private static class HubState {
+        final String hubID;
+        int locationX;
+        int locationY;
+        boolean inService = true;
+        float repairEstimate; // as reported with the damage
+        float repairTimeSpent; // hours logged for the damage while hub is still out of service
+        final Set<PostalCodeState> servicedAreas = new LinkedHashSet<>();
+        double impact; // valid only while hub is in fix order index
+
+        HubState(String hubID) {
+            this.hubID = hubID;
+        }
+    }
+
+    /**
+     * RestorationSnapshot contains everything needed to compute the rate of service restoration,
+     * taken at one moment: damaged hubs in fix order with their impact and repair estimate,
+     * people out of service and total population
+     */
+    static class RestorationSnapshot {
+        final float[] impacts;
+        final float[] repairEstimates;
+        final double peopleOutOfService;
+        final long totalPopulation;
+
+        RestorationSnapshot(float[] impacts, float[] repairEstimates, double peopleOutOfService, long totalPopulation) {
+            this.impacts = impacts;
+            this.repairEstimates = repairEstimates;
+            this.peopleOutOfService = peopleOutOfService;
+            this.totalPopulation = totalPopulation;
+        }
+    }
+
+    /**
+     * PageIterator walks an index a page at a time, so that a report over the whole grid holds one page in memory
+     * and does not hold the lock of the model while the caller consumes it. Every page is read under the lock and
+     * the next page starts after a copy of the key of the last entry, like a keyset cursor of db.
+     * The index is looked up on every page, as reload replaces it. An entry whose rank changes between two pages
+     * may be missed or returned twice. Every page read is recorded by the page timer, as the caller consumes
+     * the report lazily.
+     */
+    private class PageIterator<S, T> implements Iterator<T> {
+        private final Supplier<NavigableSet<S>> index; // current index of the model, read under its lock
+        private final Function<S, S> keyOf; // copy of the fields the index orders by
+        private final Function<S, T> valueOf;
+        private final int pageSize;
+        private final Metrics.Timer pageTimer;
+        private Iterator<T> page = new ArrayList<T>().iterator();
+        private S lastKey; // key of the last entry read, null before the first page
+        private boolean isLastPage;
+
+        PageIterator(Supplier<NavigableSet<S>> index, Function<S, S> keyOf, Function<S, T> valueOf, int pageSize,
+                     Metrics.Timer pageTimer) {
+            this.index = index;
+            this.keyOf = keyOf;
+            this.valueOf = valueOf;
+            this.pageSize = pageSize;
+            this.pageTimer = pageTimer;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (page.hasNext()==false && isLastPage==false) {
+                readPage();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (hasNext()==false) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        private void readPage() {
+            long start = pageTimer.start();
+            try {
+                page = readValues();
+            } finally {
+                pageTimer.stop(start);
+            }
+        }
+
+        private Iterator<T> readValues() {
+            List<T> values = new ArrayList<>(pageSize);
+            synchronized (GridModel.this) {
+                NavigableSet<S> current = index.get();
+                Iterator<S> iterator = (lastKey==null ? current : current.tailSet(lastKey, false)).iterator();
+                S entry = null;
+                while (iterator.hasNext() && values.size()<pageSize) {
+                    entry = iterator.next();
+                    values.add(valueOf.apply(entry));
+                }
+                isLastPage = iterator.hasNext()==false;
+                if (entry!=null) {
+                    lastKey = keyOf.apply(entry);
+                }
+            }
+            return values.iterator();
+        }
+    }
+
+    // hubs in descending order of impact, ties are broken by hub id so that order is deterministic
+    private static final Comparator<HubState> FIX_ORDER = (h1, h2) -> {
+        int compare = Double.compare(h2.impact, h1.impact);
+        return compare!=0 ? compare : h1.hubID.compareTo(h2.hubID);
+    };
+
+    // postal codes in descending order of repair estimate, ties are broken by postal code
+    private static final Comparator<PostalCodeState> MOST_DAMAGED = (p1, p2) -> {
+        int compare = Double.compare(p2.repairEstimate, p1.repairEstimate);
+        return compare!=0 ? compare : p1.postalCode.compareTo(p2.postalCode);
+    };
+
+    // postal codes in ascending order of hubs per person, ties are broken by postal code
+    private static final Comparator<PostalCodeState> UNDERSERVED_BY_POPULATION = (p1, p2) -> {
+        int compare = Long.compare((long) p1.hubCount*p2.population, (long) p2.hubCount*p1.population);
+        return compare!=0 ? compare : p1.postalCode.compareTo(p2.postalCode);
+    };
+
+    // postal codes in ascending order of hubs per area, ties are broken by postal code
+    private static final Comparator<PostalCodeState> UNDERSERVED_BY_AREA = (p1, p2) -> {
+        int compare = Long.compare((long) p1.hubCount*p2.area, (long) p2.hubCount*p1.area);
+        return compare!=0 ? compare : p1.postalCode.compareTo(p2.postalCode);
+    };
+
+    // internal attributes of the class, the state is replaced as a whole by reload
+    private Map<String, PostalCodeState> postalCodes = new HashMap<>();
+    private Map<String, HubState> hubs = new HashMap<>();
+    private TreeSet<HubState> fixOrderIndex = new TreeSet<>(FIX_ORDER); // damaged hubs that service at least one postal code
+    private double peopleOutOfService; // sum of people out of service over all postal codes
+    private long totalPopulation; // sum of population over all postal codes
+    private volatile double publishedPeopleOutOfService; // peopleOutOfService as of the last completed write, read without lock
+    private SpatialIndex<HubState> faultyHubIndex = new SpatialIndex<>(); // hubs out of service by location
+    private TreeSet<PostalCodeState> mostDamagedIndex = new TreeSet<>(MOST_DAMAGED); // postal codes with repair estimate above 0
+    private TreeSet<PostalCodeState> underservedByPopulationIndex = new TreeSet<>(UNDERSERVED_BY_POPULATION); // postal codes with at least one hub
+    private TreeSet<PostalCodeState> underservedByAreaIndex = new TreeSet<>(UNDERSERVED_BY_AREA); // postal codes with at least one hub
+    private RepairEstimator repairEstimator = new RepairEstimator(); // corrects repair estimates with logged repair times
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock(); // shared by writes, exclusive while a snapshot starts
+    private List<Consumer<GridModel>> replay; // writes applied while reload builds its copy, null if no reload runs
+
+    /**
+     * Load postal codes, hubs and serviced areas from db
+     * @param connect
+     * @param fetchSize number of rows fetched per round trip to db, 0 to leave it to the driver
+     * @throws SQLException
+     */
+    synchronized void load(Connection connect, int fetchSize) throws SQLException {
+        postalCodes.clear();
+        hubs.clear();
+        fixOrderIndex.clear();
+        faultyHubIndex.clear();
+        mostDamagedIndex.clear();
+        underservedByPopulationIndex.clear();
+        underservedByAreaIndex.clear();
+        peopleOutOfService = 0;
+        totalPopulation = 0;
+        repairEstimator.clear();
+
+        // columns are read by position, in the order the queries of Db list them
+        try (PreparedStatement statement = connect.prepareStatement(Db.getPostalCodesQuery())) {
+            RowMapper.forEach(statement, fetchSize, resultSet -> {
+                PostalCodeState postalCode = new PostalCodeState(resultSet.getString(1));
+                postalCode.population = resultSet.getInt(2);
+                postalCode.area = resultSet.getInt(3);
+                postalCodes.put(postalCode.postalCode, postalCode);
+                return null;
+            });
+        }
+
+        try (PreparedStatement statement = connect.prepareStatement(Db.getDistributionHubsQuery())) {
+            RowMapper.forEach(statement, fetchSize, resultSet -> {
+                HubState hub = new HubState(resultSet.getString(1));
+                hub.locationX = resultSet.getInt(2);
+                hub.locationY = resultSet.getInt(3);
+                hub.inService = resultSet.getBoolean(4);
+                hub.repairEstimate = resultSet.getFloat(5);
+                hubs.put(hub.hubID, hub);
+                return null;
+            });
+        }
+
+        try (PreparedStatement statement = connect.prepareStatement(Db.getPostalCodesDistributionHubsQuery())) {
+            RowMapper.forEach(statement, fetchSize, resultSet -> {
+                PostalCodeState postalCode = postalCodes.get(resultSet.getString(1));
+                HubState hub = hubs.get(resultSet.getString(2));
+                postalCode.hubs.add(hub);
+                hub.servicedAreas.add(postalCode);
+                if (hub.inService==false) {
+                    postalCode.hubsOutOfService++;
+                }
+                return null;
+            });
+        }
+
+        try (PreparedStatement statement = connect.prepareStatement(Db.getHubRepairRollupsQuery())) {
+            RowMapper.forEach(statement, fetchSize, resultSet -> {
+                HubState hub = hubs.get(resultSet.getString(1));
+                if (hub!=null) {
+                    repairEstimator.observe(hub.hubID, resultSet.getDouble(3), resultSet.getDouble(4));
+                    if (hub.inService==false) {
+                        hub.repairTimeSpent = resultSet.getFloat(2);
+                    }
+                }
+                return null;
+            });
+        }
+        repairEstimator.refreshGlobalFactor();
+
+        for (HubState hub : hubs.values()) {
+            index(hub);
+            if (hub.inService==false) {
+                faultyHubIndex.add(hub, hub.locationX, hub.locationY);
+            }
+        }
+        for (PostalCodeState postalCode : postalCodes.values()) {
+            peopleOutOfService += peopleOutOfService(postalCode);
+            totalPopulation += postalCode.population;
+            indexReports(postalCode);
+        }
+        publish();
+    }
+
+    /**
+     * Reload postal codes, hubs and serviced areas from db without holding the lock of the model while db is read.
+     * A copy is built from one snapshot of db, the writes applied to the model meanwhile are replayed on it
+     * and it replaces the state of the model at once.
+     * @param connect
+     * @param fetchSize number of rows fetched per round trip to db, 0 to leave it to the driver
+     * @throws SQLException
+     */
+    void reload(Connection connect, int fetchSize) throws SQLException {
+        GridModel copy = new GridModel();
+        int isolation = connect.getTransactionIsolation();
+        // in MySQL a repeatable read transaction reads every table as of its first read
+        connect.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        connect.setAutoCommit(false);
+        try {
+            // no write is between its commit and the model while the snapshot starts
+            commitLock.writeLock().lock();
+            try {
+                try (PreparedStatement statement = connect.prepareStatement(Db.getRepairLogCheckpointQuery())) {
+                    statement.executeQuery().close();
+                }
+                synchronized (this) {
+                    replay = new ArrayList<>();
+                }
+            } finally {
+                commitLock.writeLock().unlock();
+            }
+
+            copy.load(connect, fetchSize);
+            connect.commit();
+
+            synchronized (this) {
+                for (Consumer<GridModel> write : replay) {
+                    write.accept(copy);
+                }
+                postalCodes = copy.postalCodes;
+                hubs = copy.hubs;
+                fixOrderIndex = copy.fixOrderIndex;
+                peopleOutOfService = copy.peopleOutOfService;
+                totalPopulation = copy.totalPopulation;
+                faultyHubIndex = copy.faultyHubIndex;
+                mostDamagedIndex = copy.mostDamagedIndex;
+                underservedByPopulationIndex = copy.underservedByPopulationIndex;
+                underservedByAreaIndex = copy.underservedByAreaIndex;
+                repairEstimator = copy.repairEstimator;
+                publish();
+            }
+        } finally {
+            synchronized (this) {
+                replay = null;
+            }
+            if (connect.getAutoCommit()==false) {
+                connect.rollback();
+            }
+            connect.setAutoCommit(true);
+            connect.setTransactionIsolation(isolation);
+        }
+    }
+
+    /**
+     * Start a write, to be called before the write is committed to db. The write must call endWrite once it
+     * is applied to the model, or once it failed.
+     */
+    void beginWrite() {
+        commitLock.readLock().lock();
+    }
+
+    /**
+     * End a write started by beginWrite
+     */
+    void endWrite() {
+        commitLock.readLock().unlock();
+    }
+
+    /**
+     * Remember a write for the copy that reload is building, holding the lock of the model
+     * @param write
+     */
+    private void record(Consumer<GridModel> write) {
+        if (replay!=null) {
+            replay.add(write);
+        }
+    }
+
+    /**
+     * Add or update a postal code
+     * @param postalCode
+     * @param population
+     * @param area
+     */
+    synchronized void addPostalCode(String postalCode, int population, int area) {
+        record(model -> model.addPostalCode(postalCode, population, area));
+        PostalCodeState postalCodeState = postalCodes.get(postalCode);
+        if (postalCodeState==null) {
+            postalCodeState = new PostalCodeState(postalCode);
+            postalCodes.put(postalCode, postalCodeState);
+        }
+        // population per hub changes for every hub of the postal code
+        Set<HubState> affectedHubs = unindexHubsOf(postalCodeState);
+        unindexReports(postalCodeState);
+        peopleOutOfService -= peopleOutOfService(postalCodeState);
+        totalPopulation += population - postalCodeState.population;
+        postalCodeState.population = population;
+        postalCodeState.area = area;
+        peopleOutOfService += peopleOutOfService(postalCodeState);
+        index(affectedHubs);
+        indexReports(postalCodeState);
+        publish();
+    }
+
+    /**
+     * Add or update a distribution hub, the hub is in service and replaces its serviced areas
+     * @param hubID
+     * @param location
+     * @param servicedAreas
+     */
+    synchronized void addDistributionHub(String hubID, Point location, Set<String> servicedAreas) {
+        record(model -> model.addDistributionHub(hubID, location, servicedAreas));
+        HubState hub = hubs.get(hubID);
+        if (hub==null) {
+            hub = new HubState(hubID);
+            hubs.put(hubID, hub);
+        }
+
+        // population per hub and hub counts change for every hub of old and new serviced areas
+        Set<PostalCodeState> affectedPostalCodes = new LinkedHashSet<>(hub.servicedAreas);
+        for (String postalCode : servicedAreas) {
+            affectedPostalCodes.add(postalCodes.get(postalCode));
+        }
+        Set<HubState> affectedHubs = new LinkedHashSet<>();
+        affectedHubs.add(hub);
+        for (PostalCodeState postalCode : affectedPostalCodes) {
+            affectedHubs.addAll(unindexHubsOf(postalCode));
+            unindexReports(postalCode);
+            peopleOutOfService -= peopleOutOfService(postalCode);
+        }
+        fixOrderIndex.remove(hub);
+
+        for (PostalCodeState postalCode : hub.servicedAreas) {
+            postalCode.hubs.remove(hub);
+            if (hub.inService==false) {
+                postalCode.hubsOutOfService--;
+            }
+        }
+        hub.servicedAreas.clear();
+        if (hub.inService==false) {
+            faultyHubIndex.remove(hub, hub.locationX, hub.locationY);
+        }
+        for (String postalCode : servicedAreas) {
+            PostalCodeState postalCodeState = postalCodes.get(postalCode);
+            hub.servicedAreas.add(postalCodeState);
+            postalCodeState.hubs.add(hub);
+        }
+        hub.locationX = location.getX();
+        hub.locationY = location.getY();
+        hub.inService = true;
+        hub.repairEstimate = 0;
+        hub.repairTimeSpent = 0;
+
+        for (PostalCodeState postalCode : affectedPostalCodes) {
+            peopleOutOfService += peopleOutOfService(postalCode);
+            indexReports(postalCode);
+        }
+        index(affectedHubs);
+        publish();
+    }
+
+    /**
+     * Mark hub as damaged with the given repair estimate
+     * @param hubID
+     * @param repairEstimate
+     */
+    synchronized void hubDamage(String hubID, float repairEstimate) {
+        record(model -> model.hubDamage(hubID, repairEstimate));
+        HubState hub = hubs.get(hubID);
+        if (hub==null) {
+            return;
+        }
+        fixOrderIndex.remove(hub);
+        unindexReports(hub.servicedAreas);
+        setInService(hub, false);
+        hub.repairEstimate = repairEstimate;
+        hub.repairTimeSpent = 0;
+        index(hub);
+        indexReports(hub.servicedAreas);
+        publish();
+    }
+
+    /**
+     * Record a repair of the hub, the hub is back in service if inService is true.
+     * A repair that leaves the hub out of service lowers the time still needed for it,
+     * a repair that brings it back in service teaches the estimator how long the damage took.
+     * @param hubID
+     * @param repairTime
+     * @param inService
+     */
+    synchronized void hubRepair(String hubID, float repairTime, boolean inService) {
+        record(model -> model.hubRepair(hubID, repairTime, inService));
+        HubState hub = hubs.get(hubID);
+        if (hub==null || hub.inService) {
+            return;
+        }
+        fixOrderIndex.remove(hub);
+        if (inService==false) {
+            hub.repairTimeSpent += repairTime;
+            index(hub);
+            return;
+        }
+        repairEstimator.observe(hub.hubID, hub.repairTimeSpent + repairTime, hub.repairEstimate);
+        unindexReports(hub.servicedAreas);
+        setInService(hub, true);
+        hub.repairEstimate = 0;
+        hub.repairTimeSpent = 0;
+        indexReports(hub.servicedAreas);
+        publish();
+    }
+
+    /**
+     * Get repair estimate of a hub as it was reported with the damage
+     * @param hubID
+     * @return 0 if hub does not exist or is in service
+     */
+    synchronized float reportedRepairEstimate(String hubID) {
+        HubState hub = hubs.get(hubID);
+        return hub==null || hub.inService ? 0 : hub.repairEstimate;
+    }
+
+    /**
+     * Get 'limit' damaged hubs with the highest impact in descending order of impact
+     * @param limit
+     * @return
+     */
+    synchronized List<HubImpact> fixOrder(int limit) {
+        List<HubImpact> hubImpacts = new ArrayList<>(Math.min(limit, fixOrderIndex.size()));
+        Iterator<HubState> iterator = fixOrderIndex.iterator();
+        while (iterator.hasNext() && hubImpacts.size()<limit) {
+            HubState hub = iterator.next();
+            hubImpacts.add(new HubImpact(hub.hubID, (float) hub.impact));
+        }
+        return hubImpacts;
+    }
+
+    /**
+     * Get 'limit' postal codes with a repair estimate in descending order of the sum of repair estimates of their hubs
+     * @param limit
+     * @return
+     */
+    synchronized List<DamagedPostalCodes> mostDamagedPostalCodes(int limit) {
+        List<DamagedPostalCodes> damagedPostalCodes = new ArrayList<>(Math.min(limit, mostDamagedIndex.size()));
+        Iterator<PostalCodeState> iterator = mostDamagedIndex.iterator();
+        while (iterator.hasNext() && damagedPostalCodes.size()<limit) {
+            PostalCodeState postalCode = iterator.next();
+            damagedPostalCodes.add(new DamagedPostalCodes(postalCode.postalCode, (float) postalCode.repairEstimate));
+        }
+        return damagedPostalCodes;
+    }
+
+    /**
+     * Get 'limit' postal codes with at least one hub in ascending order of hubs per person
+     * @param limit
+     * @return
+     */
+    synchronized List<String> underservedPostalByPopulation(int limit) {
+        return firstPostalCodes(underservedByPopulationIndex, limit);
+    }
+
+    /**
+     * Get 'limit' postal codes with at least one hub in ascending order of hubs per area
+     * @param limit
+     * @return
+     */
+    synchronized List<String> underservedPostalByArea(int limit) {
+        return firstPostalCodes(underservedByAreaIndex, limit);
+    }
+
+    /**
+     * Iterate over all damaged hubs in descending order of impact, reading pageSize hubs at a time
+     * @param pageSize
+     * @param pageTimer records every page read
+     * @return
+     */
+    Iterator<HubImpact> fixOrderIterator(int pageSize, Metrics.Timer pageTimer) {
+        return new PageIterator<>(() -> fixOrderIndex, hub -> {
+            HubState key = new HubState(hub.hubID);
+            key.impact = hub.impact;
+            return key;
+        }, hub -> new HubImpact(hub.hubID, (float) hub.impact), pageSize, pageTimer);
+    }
+
+    /**
+     * Iterate over all postal codes with a repair estimate in descending order of repair estimate,
+     * reading pageSize postal codes at a time
+     * @param pageSize
+     * @param pageTimer records every page read
+     * @return
+     */
+    Iterator<DamagedPostalCodes> mostDamagedPostalCodesIterator(int pageSize, Metrics.Timer pageTimer) {
+        return new PageIterator<>(() -> mostDamagedIndex, GridModel::reportKeyOf,
+                postalCode -> new DamagedPostalCodes(postalCode.postalCode, (float) postalCode.repairEstimate), pageSize, pageTimer);
+    }
+
+    /**
+     * Iterate over all postal codes with at least one hub in ascending order of hubs per person,
+     * reading pageSize postal codes at a time
+     * @param pageSize
+     * @param pageTimer records every page read
+     * @return
+     */
+    Iterator<String> underservedPostalByPopulationIterator(int pageSize, Metrics.Timer pageTimer) {
+        return new PageIterator<>(() -> underservedByPopulationIndex, GridModel::reportKeyOf, postalCode -> postalCode.postalCode,
+                pageSize, pageTimer);
+    }
+
+    /**
+     * Iterate over all postal codes with at least one hub in ascending order of hubs per area,
+     * reading pageSize postal codes at a time
+     * @param pageSize
+     * @param pageTimer records every page read
+     * @return
+     */
+    Iterator<String> underservedPostalByAreaIterator(int pageSize, Metrics.Timer pageTimer) {
+        return new PageIterator<>(() -> underservedByAreaIndex, GridModel::reportKeyOf, postalCode -> postalCode.postalCode,
+                pageSize, pageTimer);
+    }
+
+    /**
+     * Run reader while no write can change grid model, so that all the reads it makes see the same state
+     * @param reader
+     * @return result of reader
+     */
+    synchronized <T> T read(Function<GridModel, T> reader) {
+        return reader.apply(this);
+    }
+
+    /**
+     * Get info of a hub
+     * @param hubID
+     * @return null if hub does not exist
+     */
+    synchronized HubInfo hubInfo(String hubID) {
+        HubState hub = hubs.get(hubID);
+        if (hub==null) {
+            return null;
+        }
+        return new HubInfo(hub.hubID, hub.locationX, hub.locationY, hub.inService, remainingEstimate(hub));
+    }
+
+    /**
+     * Get impact of a hub
+     * @param hubID
+     * @return impact, 0 if hub is not damaged or does not service any postal code
+     */
+    synchronized HubImpact hubImpact(String hubID) {
+        HubState hub = hubs.get(hubID);
+        if (hub==null || fixOrderIndex.contains(hub)==false) {
+            return new HubImpact(hubID, 0);
+        }
+        return new HubImpact(hub.hubID, (float) hub.impact);
+    }
+
+    /**
+     * Get number of people who regain service if a hub comes back in service
+     * @param hubID
+     * @return 0 if hub does not exist or is in service
+     */
+    synchronized double peopleRestoredBy(String hubID) {
+        HubState hub = hubs.get(hubID);
+        if (hub==null || hub.inService) {
+            return 0;
+        }
+        double people = 0;
+        for (PostalCodeState postalCode : hub.servicedAreas) {
+            people += (double) postalCode.population / postalCode.hubs.size();
+        }
+        return people;
+    }
+
+    /**
+     * Get the given hubs that are in fix order, in fix order
+     * @param hubIDs
+     * @return
+     */
+    synchronized List<String> inFixOrder(List<String> hubIDs) {
+        List<HubState> indexedHubs = new ArrayList<>();
+        for (String hubID : hubIDs) {
+            HubState hub = hubs.get(hubID);
+            if (hub!=null && fixOrderIndex.contains(hub)) {
+                indexedHubs.add(hub);
+            }
+        }
+        indexedHubs.sort(FIX_ORDER);
+        List<String> indexedHubIDs = new ArrayList<>(indexedHubs.size());
+        for (HubState hub : indexedHubs) {
+            indexedHubIDs.add(hub.hubID);
+        }
+        return indexedHubIDs;
+    }
+
+    /**
+     * Get damaged hubs in fix order together with people out of service and total population, all from the same moment
+     * @return
+     */
+    synchronized RestorationSnapshot restorationSnapshot() {
+        float[] impacts = new float[fixOrderIndex.size()];
+        float[] repairEstimates = new float[fixOrderIndex.size()];
+        int i = 0;
+        for (HubState hub : fixOrderIndex) {
+            impacts[i] = (float) hub.impact;
+            repairEstimates[i] = remainingEstimate(hub);
+            i++;
+        }
+        return new RestorationSnapshot(impacts, repairEstimates, peopleOutOfService, totalPopulation);
+    }
+
+    /**
+     * Get the hubs that are out of service within manhattan distance maxDist from (x, y), in order of hub id
+     * @param hubID hub to exclude
+     * @param x
+     * @param y
+     * @param maxDist
+     * @return
+     */
+    synchronized List<HubInfo> faultyHubsWithinDistance(String hubID, int x, int y, int maxDist) {
+        List<HubState> faultyHubs = faultyHubIndex.withinDistance(x, y, maxDist);
+        faultyHubs.sort(Comparator.comparing(hub -> hub.hubID));
+        List<HubInfo> hubInfos = new ArrayList<>(faultyHubs.size());
+        for (HubState hub : faultyHubs) {
+            if (hub.hubID.equals(hubID)==false) {
+                hubInfos.add(new HubInfo(hub.hubID, hub.locationX, hub.locationY, hub.inService, remainingEstimate(hub)));
+            }
+        }
+        return hubInfos;
+    }
+
+    /**
+     * Get number of people who are out of service, where people of a postal code are out of service
+     * in proportion to the hubs of the postal code that are out of service.
+     * The count is read without the lock, so a report does not wait for a write in progress.
+     * @return
+     */
+    double peopleOutOfService() {
+        return publishedPeopleOutOfService;
+    }
+
+    /**
+     * Make the counters of a completed write visible to lock free readers
+     */
+    private void publish() {
+        publishedPeopleOutOfService = peopleOutOfService;
+    }
+
+    /**
+     * Change service status of hub, update out of service counts of its postal codes and the index of faulty hubs
+     * @param hub
+     * @param inService
+     */
+    private void setInService(HubState hub, boolean inService) {
+        if (hub.inService==inService) {
+            return;
+        }
+        for (PostalCodeState postalCode : hub.servicedAreas) {
+            peopleOutOfService -= peopleOutOfService(postalCode);
+            postalCode.hubsOutOfService += inService ? -1 : 1;
+            peopleOutOfService += peopleOutOfService(postalCode);
+        }
+        hub.inService = inService;
+        if (inService) {
+            faultyHubIndex.remove(hub, hub.locationX, hub.locationY);
+        } else {
+            faultyHubIndex.add(hub, hub.locationX, hub.locationY);
+        }
+    }
+
+    /**
+     * Get number of people of a postal code who are out of service
+     * @param postalCode
+     * @return
+     */
+    private static double peopleOutOfService(PostalCodeState postalCode) {
+        if (postalCode.hubsOutOfService==0) {
+            return 0;
+        }
+        return (double) postalCode.population * postalCode.hubsOutOfService / postalCode.hubs.size();
+    }
+
+    /**
+     * Remove the hubs of a postal code from fix order index before the postal code changes
+     * @param postalCode
+     * @return the hubs of the postal code
+     */
+    private Set<HubState> unindexHubsOf(PostalCodeState postalCode) {
+        for (HubState hub : postalCode.hubs) {
+            fixOrderIndex.remove(hub);
+        }
+        return new LinkedHashSet<>(postalCode.hubs);
+    }
+
+    /**
+     * Get the first 'limit' postal codes of a report index
+     * @param index
+     * @param limit
+     * @return
+     */
+    private static List<String> firstPostalCodes(TreeSet<PostalCodeState> index, int limit) {
+        List<String> postalCodes = new ArrayList<>(Math.min(limit, index.size()));
+        Iterator<PostalCodeState> iterator = index.iterator();
+        while (iterator.hasNext() && postalCodes.size()<limit) {
+            postalCodes.add(iterator.next().postalCode);
+        }
+        return postalCodes;
+    }
+
+    /**
+     * Copy the fields report indexes order a postal code by
+     * @param postalCode
+     * @return
+     */
+    private static PostalCodeState reportKeyOf(PostalCodeState postalCode) {
+        PostalCodeState key = new PostalCodeState(postalCode.postalCode);
+        key.population = postalCode.population;
+        key.area = postalCode.area;
+        key.repairEstimate = postalCode.repairEstimate;
+        key.hubCount = postalCode.hubCount;
+        return key;
+    }
+
+    /**
+     * Remove postal codes from report indexes before their hubs, population, area or repair estimates change
+     * @param postalCodes
+     */
+    private void unindexReports(Set<PostalCodeState> postalCodes) {
+        for (PostalCodeState postalCode : postalCodes) {
+            unindexReports(postalCode);
+        }
+    }
+
+    /**
+     * Remove a postal code from report indexes before its hubs, population, area or repair estimates change
+     * @param postalCode
+     */
+    private void unindexReports(PostalCodeState postalCode) {
+        mostDamagedIndex.remove(postalCode);
+        underservedByPopulationIndex.remove(postalCode);
+        underservedByAreaIndex.remove(postalCode);
+    }
+
+    /**
+     * Add postal codes to report indexes
+     * @param postalCodes
+     */
+    private void indexReports(Set<PostalCodeState> postalCodes) {
+        for (PostalCodeState postalCode : postalCodes) {
+            indexReports(postalCode);
+        }
+    }
+
+    /**
+     * Compute repair estimate of a postal code and add it to the report indexes it belongs to.
+     * The postal code must not be in the indexes when this method is called.
+     * @param postalCode
+     */
+    private void indexReports(PostalCodeState postalCode) {
+        if (postalCode.hubs.isEmpty()) {
+            postalCode.repairEstimate = 0;
+            postalCode.hubCount = 0;
+            return;
+        }
+        double repairEstimate = 0;
+        for (HubState hub : postalCode.hubs) {
+            repairEstimate += hub.repairEstimate;
+        }
+        postalCode.repairEstimate = repairEstimate;
+        postalCode.hubCount = postalCode.hubs.size();
+        if (repairEstimate>0) {
+            mostDamagedIndex.add(postalCode);
+        }
+        underservedByPopulationIndex.add(postalCode);
+        underservedByAreaIndex.add(postalCode);
+    }
+
+    /**
+     * Compute impact of hubs and add them to fix order index
+     * @param hubs
+     */
+    private void index(Set<HubState> hubs) {
+        for (HubState hub : hubs) {
+            index(hub);
+        }
+    }
+
+    /**
+     * Compute impact of a hub and add it to fix order index if it is damaged and services any postal code.
+     * Impact is the number of people who regain service per hour of repair still needed, where the population of a
+     * postal code is divided equally among the hubs that service it.
+     * The hub must not be in the index when this method is called.
+     * @param hub
+     */
+    private void index(HubState hub) {
+        if (hub.inService || hub.servicedAreas.isEmpty()) {
+            return;
+        }
+        double populationServed = 0;
+        for (PostalCodeState postalCode : hub.servicedAreas) {
+            populationServed += (double) postalCode.population / postalCode.hubs.size();
+        }
+        hub.impact = populationServed / remainingEstimate(hub);
+        fixOrderIndex.add(hub);
+    }
+
+    /**
+     * Get hours still needed to repair a hub, its reported estimate corrected by the repairs logged till now
+     * @param hub
+     * @return 0 if hub is in service
+     */
+    private float remainingEstimate(HubState hub) {
+        if (hub.inService) {
+            return hub.repairEstimate;
+        }
+        return repairEstimator.remaining(hub.hubID, hub.repairEstimate, hub.repairTimeSpent);
+    }
+}
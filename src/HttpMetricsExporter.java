@@ -0,0 +1,75 @@
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HttpMetricsExporter serves the metrics of a service in text format at http://localhost:&lt;port&gt;/metrics.
+ * The server listens on the loopback address only and answers from a single daemon thread.
+ */
+class HttpMetricsExporter implements MetricsExporter {
+
+    // internal attributes of the class
+    private final int port;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructor
+     * @param port port to listen on, 0 for any free port
+     */
+    HttpMetricsExporter(int port) {
+        this.port = port;
+    }
+
+    @Override
+    public void start(Metrics metrics) {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+        server.createContext("/metrics", exchange -> {
+            try {
+                StringWriter text = new StringWriter();
+                metrics.writeText(text);
+                byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "power-service-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        if (server!=null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get port the server listens on, useful when it was started on any free port
+     * @return
+     */
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+}
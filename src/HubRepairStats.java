@@ -0,0 +1,82 @@
+/**
+ * HubRepairStats contains setters/getters of the repair totals of a hub: the repairs done to it and
+ * the actual and estimated repair time of the damages after which it came back in service
+ */
+
+public class HubRepairStats {
+
+    // internal attributes of the class
+    private String hubID;
+    private int repairs;
+    private double repairTime;
+    private int restorations;
+    private double restoredRepairTime;
+    private double restoredEstimate;
+
+    /**
+     * Constructor with parameters
+     * @param hubID
+     * @param repairs number of repairs done to the hub
+     * @param repairTime hours of all repairs done to the hub
+     * @param restorations number of times the hub came back in service
+     * @param restoredRepairTime hours of repair of the damages after which the hub came back in service
+     * @param restoredEstimate estimated hours of repair of the same damages
+     */
+    public HubRepairStats(String hubID, int repairs, double repairTime, int restorations, double restoredRepairTime, double restoredEstimate) {
+        this.hubID = hubID;
+        this.repairs = repairs;
+        this.repairTime = repairTime;
+        this.restorations = restorations;
+        this.restoredRepairTime = restoredRepairTime;
+        this.restoredEstimate = restoredEstimate;
+    }
+
+    // Getters and Setters
+    public String getHubID() {
+        return hubID;
+    }
+
+    public void setHubID(String hubID) {
+        this.hubID = hubID;
+    }
+
+    public int getRepairs() {
+        return repairs;
+    }
+
+    public void setRepairs(int repairs) {
+        this.repairs = repairs;
+    }
+
+    public double getRepairTime() {
+        return repairTime;
+    }
+
+    public void setRepairTime(double repairTime) {
+        this.repairTime = repairTime;
+    }
+
+    public int getRestorations() {
+        return restorations;
+    }
+
+    public void setRestorations(int restorations) {
+        this.restorations = restorations;
+    }
+
+    public double getRestoredRepairTime() {
+        return restoredRepairTime;
+    }
+
+    public void setRestoredRepairTime(double restoredRepairTime) {
+        this.restoredRepairTime = restoredRepairTime;
+    }
+
+    public double getRestoredEstimate() {
+        return restoredEstimate;
+    }
+
+    public void setRestoredEstimate(double restoredEstimate) {
+        this.restoredEstimate = restoredEstimate;
+    }
+}
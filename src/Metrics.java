@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Metrics is the registry of the timers, counters and gauges recorded by PowerService, its connection pool and
+ * its repair planner. Exporters read the registry through snapshot() or writeText().
+ *
+ * Timers and counters are looked up once when their owner is created and kept in a field. The timers and counters
+ * of a disabled registry record nothing and a disabled timer does not even read the clock, so instrumented code
+ * costs a branch on a final field when metrics are off.
+ */
+public class Metrics {
+
+    /**
+     * Timer counts durations in buckets whose width grows with the duration, 8 buckets for every power of two,
+     * so that percentiles are known within about 10% whatever the range of durations
+     */
+    static final class Timer {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        // internal attributes of the class
+        private final boolean enabled;
+        private final AtomicLongArray counts = new AtomicLongArray((64-SUB_BUCKET_BITS+1)*SUB_BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Timer(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Start timing
+         * @return start time to pass to stop, 0 if timer is disabled
+         */
+        long start() {
+            return enabled ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Record the time since start
+         * @param start
+         */
+        void stop(long start) {
+            if (enabled) {
+                record(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Record a duration
+         * @param nanos
+         */
+        void record(long nanos) {
+            if (enabled==false) {
+                return;
+            }
+            if (nanos<0) {
+                nanos = 0;
+            }
+            counts.incrementAndGet(bucketOf(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos>max && maxNanos.compareAndSet(max, nanos)==false) {
+                max = maxNanos.get();
+            }
+        }
+
+        /**
+         * Add the values of timer to snapshot
+         * @param name
+         * @param snapshot
+         */
+        private void addTo(String name, Map<String, Number> snapshot) {
+            long n = count.sum();
+            snapshot.put(name + ".count", n);
+            snapshot.put(name + ".totalMillis", totalNanos.sum() / 1e6);
+            long max = maxNanos.get();
+            snapshot.put(name + ".maxMillis", max / 1e6);
+            long[] bucketCounts = new long[counts.length()];
+            for (int i = 0; i < bucketCounts.length; i++) {
+                bucketCounts[i] = counts.get(i);
+            }
+            // a percentile is the upper bound of its bucket, which can lie above the max
+            snapshot.put(name + ".p50Millis", Math.min(percentile(bucketCounts, 0.5), max) / 1e6);
+            snapshot.put(name + ".p99Millis", Math.min(percentile(bucketCounts, 0.99), max) / 1e6);
+        }
+
+        /**
+         * Get duration below which the given fraction of durations lie
+         * @param bucketCounts
+         * @param fraction
+         * @return upper bound of the bucket that contains the percentile, in nanoseconds
+         */
+        private static long percentile(long[] bucketCounts, double fraction) {
+            long total = 0;
+            for (long bucketCount : bucketCounts) {
+                total += bucketCount;
+            }
+            if (total==0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen>=rank) {
+                    return upperBoundOf(i);
+                }
+            }
+            return upperBoundOf(bucketCounts.length-1);
+        }
+
+        private static int bucketOf(long nanos) {
+            if (nanos<SUB_BUCKETS) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+            int subBucket = (int) (nanos >>> exponent) - SUB_BUCKETS;
+            return (exponent+1)*SUB_BUCKETS + subBucket;
+        }
+
+        private static long upperBoundOf(int bucket) {
+            if (bucket<SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = bucket/SUB_BUCKETS - 1;
+            long subBucket = bucket%SUB_BUCKETS + SUB_BUCKETS;
+            return ((subBucket+1) << exponent) - 1;
+        }
+    }
+
+    /**
+     * Counter counts events
+     */
+    static final class Counter {
+
+        // internal attributes of the class
+        private final boolean enabled;
+        private final LongAdder count = new LongAdder();
+
+        Counter(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        void increment() {
+            if (enabled) {
+                count.increment();
+            }
+        }
+
+        void add(long n) {
+            if (enabled) {
+                count.add(n);
+            }
+        }
+
+        long get() {
+            return count.sum();
+        }
+    }
+
+    // registry that records nothing, used when metrics are not enabled
+    public static final Metrics DISABLED = new Metrics(false);
+
+    // internal attributes of the class
+    private final boolean enabled;
+    private final Timer disabledTimer = new Timer(false);
+    private final Counter disabledCounter = new Counter(false);
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of a registry that records
+     */
+    public Metrics() {
+        this(true);
+    }
+
+    private Metrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Check if registry records anything
+     * @return
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get timer of the given name, created on first use
+     * @param name
+     * @return
+     */
+    Timer timer(String name) {
+        return enabled ? timers.computeIfAbsent(name, key -> new Timer(true)) : disabledTimer;
+    }
+
+    /**
+     * Get counter of the given name, created on first use
+     * @param name
+     * @return
+     */
+    Counter counter(String name) {
+        return enabled ? counters.computeIfAbsent(name, key -> new Counter(true)) : disabledCounter;
+    }
+
+    /**
+     * Register a value that is read when metrics are exported
+     * @param name
+     * @param gauge
+     */
+    void gauge(String name, DoubleSupplier gauge) {
+        if (enabled) {
+            gauges.put(name, gauge);
+        }
+    }
+
+    /**
+     * Get current values of all metrics by name, a timer contributes its count, total, max,
+     * median and 99th percentile
+     * @return
+     */
+    public SortedMap<String, Number> snapshot() {
+        SortedMap<String, Number> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Timer> timer : timers.entrySet()) {
+            timer.getValue().addTo(timer.getKey(), snapshot);
+        }
+        for (Map.Entry<String, Counter> counter : counters.entrySet()) {
+            snapshot.put(counter.getKey(), counter.getValue().get());
+        }
+        for (Map.Entry<String, DoubleSupplier> gauge : gauges.entrySet()) {
+            snapshot.put(gauge.getKey(), gauge.getValue().getAsDouble());
+        }
+        return snapshot;
+    }
+
+    /**
+     * Write current values of all metrics one per line as name and value separated by a space, where the
+     * characters of the name other than letters, digits and underscore are replaced by underscore.
+     * This is the text format of Prometheus for metrics without type.
+     * @param writer
+     * @throws IOException
+     */
+    public void writeText(Writer writer) throws IOException {
+        for (Map.Entry<String, Number> metric : snapshot().entrySet()) {
+            writer.write(metric.getKey().replaceAll("[^A-Za-z0-9_]", "_"));
+            writer.write(' ');
+            writer.write(metric.getValue().toString());
+            writer.write('\n');
+        }
+    }
+}
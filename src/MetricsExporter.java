@@ -0,0 +1,17 @@
+/**
+ * MetricsExporter publishes the metrics of a PowerService. Exporters named in the metrics.exporters property
+ * are created with their no argument constructor, started once the service is ready and closed with the service.
+ */
+public interface MetricsExporter {
+
+    /**
+     * Start publishing metrics
+     * @param metrics
+     */
+    void start(Metrics metrics);
+
+    /**
+     * Stop publishing metrics and release what the exporter holds
+     */
+    void close();
+}
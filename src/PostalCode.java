@@ -0,0 +1,31 @@
+/**
+ * PostalCode class contains information related to a postal code
+ */
+
+public class PostalCode {
+
+    // internal attributes of the class
+    private String postalCode;
+    private int population;
+    private int area;
+
+    // constructor with parameters
+    public PostalCode(String postalCode, int population, int area) {
+        this.postalCode = postalCode;
+        this.population = population;
+        this.area = area;
+    }
+
+    // getters
+    public String getPostalCode() {
+        return postalCode;
+    }
+
+    public int getPopulation() {
+        return population;
+    }
+
+    public int getArea() {
+        return area;
+    }
+}
@@ -1,39 +1,246 @@
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.logging.Logger;
 
 /**
  * PowerService Class handles data entry, reporting and planning methods related to
  * distribution hubs and postal codes
+ *
+ * One instance can be shared by many threads. Writes of the same hub or postal code hold a lock striped by key,
+ * so that db and grid model apply them in the same order, while writes of different keys run concurrently.
  */
 
 public class PowerService {
 
+    private static final Logger LOGGER = Logger.getLogger(PowerService.class.getName());
+
+    /**
+     * RepairPlanInput contains the hubs a repair plan is searched over, all read from the same state of grid model
+     */
+    private static class RepairPlanInput {
+        final String startHubId;
+        final String endHubId;
+        final int faultyHubsWithinMaxDistCount;
+        final List<HubInfo> faultyHubsInsideRectangleList;
+        final Map<String, HubImpact> hubImpactMap;
+
+        RepairPlanInput(String startHubId, String endHubId, int faultyHubsWithinMaxDistCount,
+                        List<HubInfo> faultyHubsInsideRectangleList, Map<String, HubImpact> hubImpactMap) {
+            this.startHubId = startHubId;
+            this.endHubId = endHubId;
+            this.faultyHubsWithinMaxDistCount = faultyHubsWithinMaxDistCount;
+            this.faultyHubsInsideRectangleList = faultyHubsInsideRectangleList;
+            this.hubImpactMap = hubImpactMap;
+        }
+    }
+
+    /**
+     * RepairPlanArea contains the faulty hubs a crew can reach from its start hub and their impacts,
+     * read from one state of grid model, from which the input of a plan is made with some hubs left out
+     */
+    private static class RepairPlanArea {
+        final HubInfo startHubInfo;
+        final List<HubInfo> faultyHubsWithinMaxDistList;
+        final List<String> endHubCandidates; // faulty hubs within max distance that are in fix order, in fix order
+        final Map<String, HubImpact> hubImpactMap; // impacts of start hub and faulty hubs within max distance
+
+        RepairPlanArea(HubInfo startHubInfo, List<HubInfo> faultyHubsWithinMaxDistList, List<String> endHubCandidates,
+                       Map<String, HubImpact> hubImpactMap) {
+            this.startHubInfo = startHubInfo;
+            this.faultyHubsWithinMaxDistList = faultyHubsWithinMaxDistList;
+            this.endHubCandidates = endHubCandidates;
+            this.hubImpactMap = hubImpactMap;
+        }
+    }
+
+    // internal attributes of the class
+    private final Properties properties; // properties loaded from property file
+    private final ConnectionPool connectionPool; // pool of reusable connections to db
+    private final BulkLoader bulkLoader; // loads postal codes and hubs in batches
+    private final GridModel gridModel = new GridModel(); // in-memory copy of the grid, kept in sync with db writes
+    private final ScheduledExecutorService maintenance; // runs reconciliation of grid model with db
+    private final ForkJoinPool repairPlanPool; // runs parallel repair plan searches
+    private final RepairLogWriter repairLogWriter; // writes hub repairs to db in group commits
+    private final Object[] writeLocks = new Object[Constants.WRITE_LOCK_STRIPES]; // locks of writes, striped by hub id or postal code
+    private int reconciliationMismatches; // number of consecutive reconciliations that found a mismatch
+    private final Metrics metrics; // records nothing unless metrics.enabled is true
+    private final List<MetricsExporter> metricsExporters; // publish metrics, started once the service is ready
+    private final RepairPlan repairPlanner; // stateless planner that counts the nodes of its searches
+    private final boolean approximateRepairPlan; // true if large repair plans are found by beam search within a deadline
+    private final int fetchSize; // rows fetched per round trip to db by scans of whole tables
+    private final int reportPageSize; // rows read from grid model at a time by report streams
+
+    // time taken by the public methods
+    private final Metrics.Timer addPostalCodeTimer;
+    private final Metrics.Timer addDistributionHubTimer;
+    private final Metrics.Timer addPostalCodesTimer;
+    private final Metrics.Timer addDistributionHubsTimer;
+    private final Metrics.Timer hubDamageTimer;
+    private final Metrics.Timer hubRepairTimer;
+    private final Metrics.Timer submitHubRepairTimer;
+    private final Metrics.Timer peopleOutOfServiceTimer;
+    private final Metrics.Timer mostDamagedPostalCodesTimer;
+    private final Metrics.Timer mostDamagedPostalCodesStreamTimer; // records every page read by the stream
+    private final Metrics.Timer fixOrderTimer;
+    private final Metrics.Timer fixOrderStreamTimer;
+    private final Metrics.Timer rateOfServiceRestorationTimer;
+    private final Metrics.Timer repairPlanTimer;
+    private final Metrics.Timer repairPlansTimer;
+    private final Metrics.Timer hubRepairStatsTimer;
+    private final Metrics.Timer employeeRepairStatsTimer;
+    private final Metrics.Timer restorationOverTimeTimer;
+    private final Metrics.Timer underservedPostalByPopulationTimer;
+    private final Metrics.Timer underservedPostalByPopulationStreamTimer;
+    private final Metrics.Timer underservedPostalByAreaTimer;
+    private final Metrics.Timer underservedPostalByAreaStreamTimer;
+
     /**
      * Constructor
      */
     public PowerService() {
+        this(Constants.PROPERTY_FILENAME);
+    }
+
+    /**
+     * Constructor that reads db and service properties from the given property file
+     * @param propertyFileName
+     */
+    public PowerService(String propertyFileName) {
+        for (int i = 0; i < writeLocks.length; i++) {
+            writeLocks[i] = new Object();
+        }
+
+        // properties and pool are set up once and reused by all methods
+        properties = loadProperties(propertyFileName);
+        metrics = Boolean.parseBoolean(properties.getProperty(Constants.METRICS_ENABLED, "false")) ? new Metrics() : Metrics.DISABLED;
+        addPostalCodeTimer = metrics.timer("powerService.addPostalCode");
+        addDistributionHubTimer = metrics.timer("powerService.addDistributionHub");
+        addPostalCodesTimer = metrics.timer("powerService.addPostalCodes");
+        addDistributionHubsTimer = metrics.timer("powerService.addDistributionHubs");
+        hubDamageTimer = metrics.timer("powerService.hubDamage");
+        hubRepairTimer = metrics.timer("powerService.hubRepair");
+        submitHubRepairTimer = metrics.timer("powerService.submitHubRepair");
+        peopleOutOfServiceTimer = metrics.timer("powerService.peopleOutOfService");
+        mostDamagedPostalCodesTimer = metrics.timer("powerService.mostDamagedPostalCodes");
+        mostDamagedPostalCodesStreamTimer = metrics.timer("powerService.mostDamagedPostalCodesStream");
+        fixOrderTimer = metrics.timer("powerService.fixOrder");
+        fixOrderStreamTimer = metrics.timer("powerService.fixOrderStream");
+        rateOfServiceRestorationTimer = metrics.timer("powerService.rateOfServiceRestoration");
+        repairPlanTimer = metrics.timer("powerService.repairPlan");
+        repairPlansTimer = metrics.timer("powerService.repairPlans");
+        hubRepairStatsTimer = metrics.timer("powerService.hubRepairStats");
+        employeeRepairStatsTimer = metrics.timer("powerService.employeeRepairStats");
+        restorationOverTimeTimer = metrics.timer("powerService.restorationOverTime");
+        underservedPostalByPopulationTimer = metrics.timer("powerService.underservedPostalByPopulation");
+        underservedPostalByPopulationStreamTimer = metrics.timer("powerService.underservedPostalByPopulationStream");
+        underservedPostalByAreaTimer = metrics.timer("powerService.underservedPostalByArea");
+        underservedPostalByAreaStreamTimer = metrics.timer("powerService.underservedPostalByAreaStream");
+        metricsExporters = createMetricsExporters(properties);
+        fetchSize = intProperty(properties, Constants.DB_FETCH_SIZE, Constants.DEFAULT_DB_FETCH_SIZE);
+        reportPageSize = intProperty(properties, Constants.REPORT_PAGE_SIZE, Constants.DEFAULT_REPORT_PAGE_SIZE);
+        if (reportPageSize<=0) {
+            throw new IllegalArgumentException("Invalid value for " + Constants.REPORT_PAGE_SIZE + ": " + reportPageSize);
+        }
+        approximateRepairPlan = Boolean.parseBoolean(properties.getProperty(Constants.REPAIR_PLAN_APPROXIMATE, "false"));
+        repairPlanner = new RepairPlan(metrics,
+                intProperty(properties, Constants.REPAIR_PLAN_EXACT_MAX_NODES, Constants.DEFAULT_REPAIR_PLAN_EXACT_MAX_NODES),
+                intProperty(properties, Constants.REPAIR_PLAN_BEAM_WIDTH, Constants.DEFAULT_REPAIR_PLAN_BEAM_WIDTH),
+                intProperty(properties, Constants.REPAIR_PLAN_DEADLINE_MILLIS, Constants.DEFAULT_REPAIR_PLAN_DEADLINE_MILLIS));
+        connectionPool = new ConnectionPool(properties, metrics);
+        bulkLoader = new BulkLoader(connectionPool, intProperty(properties, Constants.BULK_CHUNK_SIZE, Constants.DEFAULT_BULK_CHUNK_SIZE),
+                writeLocks, gridModel);
+        int parallelism = intProperty(properties, Constants.REPAIR_PLAN_PARALLELISM, Runtime.getRuntime().availableProcessors());
+        if (parallelism<=0) {
+            connectionPool.close();
+            throw new IllegalArgumentException("Invalid value for " + Constants.REPAIR_PLAN_PARALLELISM + ": " + parallelism);
+        }
+
         /**
          * Create all required tables in db if not created yet
          */
-        Connection connect = getDbConnection();
-
-        try {
-            Statement statement = connect.createStatement();
+        try (Connection connect = getDbConnection();
+             Statement statement = connect.createStatement()) {
             statement.addBatch(Db.createPostalCodesTable());
             statement.addBatch(Db.createDistributionHubsTable());
             statement.addBatch(Db.createPostalCodeDistributionHubsTable());
             statement.addBatch(Db.createHubRepairTable());
+            statement.addBatch(Db.createRepairLogCheckpointTable());
+            statement.addBatch(Db.createHubRepairRollupTable());
+            statement.addBatch(Db.createEmployeeRepairRollupTable());
+            statement.addBatch(Db.createRestorationRollupTable());
             //it is assumed that employees table is already created
             // employees table would be created with the script attached with the project
             // and would be initialised with dummy values present in the script
             statement.executeBatch();
-            statement.close();
-            connect.close();
+
+            // load the grid once, it is kept up to date by the methods that write to db
+            gridModel.load(connect, fetchSize);
         } catch (SQLException e) {
+            connectionPool.close();
             throw new RuntimeException(e.getMessage());
         }
+
+        // repairs left in the journal by the last run are written to db and grid model here
+        try {
+            repairLogWriter = new RepairLogWriter(connectionPool, gridModel,
+                    properties.getProperty(Constants.REPAIR_LOG_JOURNAL, Constants.DEFAULT_REPAIR_LOG_JOURNAL),
+                    intProperty(properties, Constants.REPAIR_LOG_BATCH_SIZE, Constants.DEFAULT_REPAIR_LOG_BATCH_SIZE),
+                    intProperty(properties, Constants.REPAIR_LOG_QUEUE_CAPACITY, Constants.DEFAULT_REPAIR_LOG_QUEUE_CAPACITY),
+                    Boolean.parseBoolean(properties.getProperty(Constants.REPAIR_LOG_SYNC_JOURNAL, "true")));
+        } catch (RuntimeException e) {
+            connectionPool.close();
+            throw e;
+        }
+
+        // pool threads are daemon threads and are started only when a parallel repair plan is requested
+        repairPlanPool = new ForkJoinPool(parallelism);
+
+        // periodically check the counters of grid model against db
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "power-service-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int reconciliationInterval = intProperty(properties, Constants.MODEL_RECONCILIATION_INTERVAL_MILLIS, Constants.DEFAULT_MODEL_RECONCILIATION_INTERVAL_MILLIS);
+        if (reconciliationInterval>0) {
+            maintenance.scheduleWithFixedDelay(this::reconcileGridModel, reconciliationInterval, reconciliationInterval, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            for (MetricsExporter metricsExporter : metricsExporters) {
+                metricsExporter.start(metrics);
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Release the connections held by the service
+     */
+    public void close() {
+        for (MetricsExporter metricsExporter : metricsExporters) {
+            metricsExporter.close();
+        }
+        maintenance.shutdownNow();
+        repairPlanPool.shutdownNow();
+        // repairs already accepted are written before connections are closed
+        repairLogWriter.close();
+        connectionPool.close();
     }
 
     /**
@@ -44,28 +251,32 @@ public class PowerService {
      * @return true if successful
      */
     public boolean addPostalCode (String postalCode, int population, int area ) {
-        // input validation
-        if (postalCode==null || postalCode.trim()=="" || postalCode.length()>Constants.POSTAL_CODE_LENGTH || population<=0 || area<=0) {
-            throw new IllegalArgumentException();
-        }
-        for (int i = 0; i < postalCode.length(); i++) {
-            if (Character.isLetterOrDigit(postalCode.charAt(i))==false) {
-                throw new IllegalArgumentException();
-            }
-        }
-
-        // insert/update postalCode in db
-        String query = Db.addPostalCodeQuery(postalCode, population, area);
-        Connection connect = getDbConnection();
-
+        long start = addPostalCodeTimer.start();
         try {
-            Statement statement = connect.createStatement();
-            statement.executeUpdate(query);
-            statement.close();
-            connect.close();
-            return true;
-        } catch (SQLException e) {
-            throw  new RuntimeException(e.getMessage());
+            // input validation
+            validatePostalCode(postalCode, population, area);
+
+            // insert/update postalCode in db
+            synchronized (writeLock(postalCode)) {
+                gridModel.beginWrite();
+                try (Connection connect = getDbConnection();
+                     PreparedStatement statement = connect.prepareStatement(Db.addPostalCodeQuery())) {
+                    statement.setString(1, postalCode);
+                    statement.setInt(2, population);
+                    statement.setInt(3, area);
+                    statement.setInt(4, population);
+                    statement.setInt(5, area);
+                    statement.executeUpdate();
+                    gridModel.addPostalCode(postalCode, population, area);
+                    return true;
+                } catch (SQLException e) {
+                    throw  new RuntimeException(e.getMessage());
+                } finally {
+                    gridModel.endWrite();
+                }
+            }
+        } finally {
+            addPostalCodeTimer.stop(start);
         }
     }
 
@@ -77,51 +288,108 @@ public class PowerService {
      * @return true if successful
      */
     public boolean addDistributionHub ( String hubIdentifier, Point location, Set<String> servicedAreas ) {
-        // input validation
-        if (hubIdentifier==null || hubIdentifier.trim()=="" || location==null || servicedAreas==null) {
-            throw new IllegalArgumentException();
-        }
-        for (int i = 0; i < hubIdentifier.length(); i++) {
-            if (Character.isLetterOrDigit(hubIdentifier.charAt(i))==false) {
-                throw new IllegalArgumentException();
+        long start = addDistributionHubTimer.start();
+        try {
+            // input validation
+            validateDistributionHub(hubIdentifier, location, servicedAreas);
+
+            synchronized (writeLock(hubIdentifier)) {
+                // repairs reported earlier are applied first
+                repairLogWriter.pending(hubIdentifier).join();
+
+                gridModel.beginWrite();
+                try (Connection connect = getDbConnection()) {
+                    connect.setAutoCommit(false);
+                    //check if postal codes in servicedAreas exist in db
+                    try (PreparedStatement statement = connect.prepareStatement(Db.doesPostalCodeExistQuery())) {
+                        for (String postalCode:servicedAreas) {
+                            if (doesKeyExist(statement, postalCode)==false) {
+                                throw new IllegalArgumentException("Invalid postal code:"+postalCode);
+                            }
+                        }
+                    }
+                    // insert/update hub in db
+                    try (PreparedStatement statement = connect.prepareStatement(Db.addDistributionHubQuery())) {
+                        statement.setString(1, hubIdentifier);
+                        statement.setInt(2, location.getX());
+                        statement.setInt(3, location.getY());
+                        statement.setInt(4, location.getX());
+                        statement.setInt(5, location.getY());
+                        statement.executeUpdate();
+                    }
+
+                    //remove previously serviced areas of hub if any
+                    try (PreparedStatement statement = connect.prepareStatement(Db.removeEntriesOfHubFromPostalCodeDistributionHubQuery())) {
+                        statement.setString(1, hubIdentifier);
+                        statement.executeUpdate();
+                    }
+
+                    //add new serviced areas of hub
+                    try (PreparedStatement statement = connect.prepareStatement(Db.addPostalCodeDistributionHubQuery())) {
+                        for (String postalCode : servicedAreas) {
+                            statement.setString(1, postalCode);
+                            statement.setString(2, hubIdentifier);
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                    }
+                    connect.commit();
+                    connect.setAutoCommit(true);
+                    gridModel.addDistributionHub(hubIdentifier, location, servicedAreas);
+                    return true;
+                } catch (SQLException e) {
+                    throw new RuntimeException(e.getMessage());
+                } finally {
+                    gridModel.endWrite();
+                }
             }
+        } finally {
+            addDistributionHubTimer.stop(start);
         }
+    }
 
-        String addDistributionHubQuery = Db.addDistributionHubQuery(hubIdentifier, location);
-        String addPostalCodeDistributionHubQuery = Db.addPostalCodeDistributionHubQuery(hubIdentifier, servicedAreas);
-        Connection connect = getDbConnection();
-
+    /**
+     * Add or update postal codes in bulk. Rows are inserted in batches and committed in chunks,
+     * a row that is invalid or rejected by db is reported in the result without aborting the load.
+     * A chunk holds the write locks of its postal codes till it is in db and in grid model.
+     * @param postalCodes postal codes to add, consumed one by one
+     * @return number of rows loaded and the rejected rows
+     */
+    public BulkLoadResult addPostalCodes ( Iterator<PostalCode> postalCodes ) {
+        long start = addPostalCodesTimer.start();
         try {
-            Statement statement = connect.createStatement();
-            String getPostalCodesQuery = Db.getPostalCodesQuery();
-
-            //fetch current postal codes in db
-            ResultSet resultSet = statement.executeQuery(getPostalCodesQuery);
-            Set curPostalCodes = new HashSet<>();
-            while (resultSet.next()) {
-                curPostalCodes.add(resultSet.getString(Db.POSTAL_CODE));
+            // input validation
+            if (postalCodes==null) {
+                throw new IllegalArgumentException();
             }
+            return bulkLoader.loadPostalCodes(postalCodes,
+                    row -> gridModel.addPostalCode(row.getPostalCode(), row.getPopulation(), row.getArea()));
+        } finally {
+            addPostalCodesTimer.stop(start);
+        }
+    }
 
-            //check if postal codes in servicedAreas exist in db
-            for (String postalCode:servicedAreas) {
-                if (curPostalCodes.contains(postalCode)==false) {
-                    throw new IllegalArgumentException("Invalid postal code:"+postalCode);
-                }
+    /**
+     * Add or update distribution hubs and their serviced areas in bulk. Serviced areas are checked against
+     * the postal codes present in db before the load starts. Rows are inserted in batches and committed in chunks,
+     * a row that is invalid or rejected by db is reported in the result without aborting the load.
+     * A chunk holds the write locks of its hubs till it is in db and in grid model.
+     * @param distributionHubs distribution hubs to add, consumed one by one
+     * @return number of rows loaded and the rejected rows
+     */
+    public BulkLoadResult addDistributionHubs ( Iterator<DistributionHub> distributionHubs ) {
+        long start = addDistributionHubsTimer.start();
+        try {
+            // input validation
+            if (distributionHubs==null) {
+                throw new IllegalArgumentException();
             }
-            // insert/update hub in db
-            statement.execute(addDistributionHubQuery);
-            String removeEntriesOfHubFromPostalCodeDistributionHubQuery = Db.removeEntriesOfHubFromPostalCodeDistributionHubQuery(hubIdentifier);
-
-            //remove previously serviced areas of hub if any
-            statement.addBatch(removeEntriesOfHubFromPostalCodeDistributionHubQuery);
-            //add new serviced areas of hub
-            statement.addBatch(addPostalCodeDistributionHubQuery);
-            statement.executeBatch();
-            statement.close();
-            connect.close();
-            return true;
-        } catch (SQLException e) {
-            throw new RuntimeException(e.getMessage());
+            // repairs reported earlier are applied first, as in addDistributionHub
+            return bulkLoader.loadDistributionHubs(distributionHubs,
+                    row -> repairLogWriter.pending(row.getHubID()),
+                    row -> gridModel.addDistributionHub(row.getHubID(), row.getLocation(), row.getServicedAreas()));
+        } finally {
+            addDistributionHubsTimer.stop(start);
         }
     }
 
@@ -131,65 +399,101 @@ public class PowerService {
      * @param repairEstimate
      */
     public void hubDamage ( String hubIdentifier, float repairEstimate ) {
-        // input validation
-        if (hubIdentifier==null || hubIdentifier.trim()=="" || repairEstimate<=0) {
-            throw new IllegalArgumentException();
-        }
-
-        if (doesHubExistInDb(hubIdentifier)==false) {
-            throw new IllegalArgumentException();
-        }
+        long start = hubDamageTimer.start();
+        try {
+            // input validation
+            if (hubIdentifier==null || hubIdentifier.trim()=="" || repairEstimate<=0) {
+                throw new IllegalArgumentException();
+            }
 
-        // insert/update repair estimate for a hub in db
-        String setHubDamageQuery = Db.setHubDamageQuery(hubIdentifier, repairEstimate);
-        Connection connect = getDbConnection();
+            if (doesHubExistInDb(hubIdentifier)==false) {
+                throw new IllegalArgumentException();
+            }
 
-        try {
-            Statement statement = connect.createStatement();
-            statement.execute(setHubDamageQuery);
-            statement.close();
-            connect.close();
-        } catch (SQLException e) {
-            throw new RuntimeException(e.getMessage());
+            synchronized (writeLock(hubIdentifier)) {
+                // repairs reported earlier are applied first
+                repairLogWriter.pending(hubIdentifier).join();
+
+                // insert/update repair estimate for a hub in db
+                // repair time logged for an earlier damage no longer counts against the new estimate
+                gridModel.beginWrite();
+                try (Connection connect = getDbConnection();
+                     PreparedStatement statement = connect.prepareStatement(Db.setHubDamageQuery());
+                     PreparedStatement resetOpenRepairTime = connect.prepareStatement(Db.resetOpenRepairTimeQuery())) {
+                    connect.setAutoCommit(false);
+                    statement.setFloat(1, repairEstimate);
+                    statement.setString(2, hubIdentifier);
+                    statement.executeUpdate();
+                    resetOpenRepairTime.setString(1, hubIdentifier);
+                    resetOpenRepairTime.executeUpdate();
+                    connect.commit();
+                    connect.setAutoCommit(true);
+                    gridModel.hubDamage(hubIdentifier, repairEstimate);
+                } catch (SQLException e) {
+                    throw new RuntimeException(e.getMessage());
+                } finally {
+                    gridModel.endWrite();
+                }
+            }
+        } finally {
+            hubDamageTimer.stop(start);
         }
     }
 
     /**
-     * Report that given employee has done repair to the hub and whether it is in service now
+     * Report that given employee has done repair to the hub and whether it is in service now,
+     * returns once the repair is in db
      * @param hubIdentifier
      * @param employeeId
      * @param repairTime
      * @param inService
      */
     public void hubRepair( String hubIdentifier, String employeeId, float repairTime, boolean inService ) {
-        // input validation
-        if (hubIdentifier==null || hubIdentifier.trim()=="" || employeeId==null || employeeId.trim()=="") {
-            throw new IllegalArgumentException();
-        }
-        if (repairTime<=0) {
-            throw new IllegalArgumentException();
-        }
-        if (doesHubExistInDb(hubIdentifier)==false || doesEmployeeExistInDb(employeeId)==false) {
-            throw new IllegalArgumentException();
+        long start = hubRepairTimer.start();
+        try {
+            try {
+                submitHubRepair(hubIdentifier, employeeId, repairTime, inService).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        } finally {
+            hubRepairTimer.stop(start);
         }
+    }
 
-        Connection connect = getDbConnection();
+    /**
+     * Report that given employee has done repair to the hub and whether it is in service now, without
+     * waiting for db. The repair is journaled before this method returns and is committed together with
+     * the other repairs reported meanwhile.
+     * @param hubIdentifier
+     * @param employeeId
+     * @param repairTime
+     * @param inService
+     * @return completes once the repair is in db and is seen by reports, wait on it to read your own write
+     */
+    public CompletableFuture<Void> submitHubRepair( String hubIdentifier, String employeeId, float repairTime, boolean inService ) {
+        long start = submitHubRepairTimer.start();
         try {
-            Statement statement = connect.createStatement();
-            connect.setAutoCommit(false);
-            // add hub repair info to db
-            statement.addBatch(Db.addHubRepairQuery(hubIdentifier, employeeId, repairTime, inService));
-            if (inService) {
-                // update in db that hub is in service and its repair estimate is 0
-                statement.addBatch(Db.setHubInServiceQuery(hubIdentifier));
+            // input validation
+            if (hubIdentifier==null || hubIdentifier.trim()=="" || employeeId==null || employeeId.trim()=="") {
+                throw new IllegalArgumentException();
             }
-            statement.executeBatch();
-            connect.commit();
-            connect.setAutoCommit(true);
-            statement.close();
-            connect.close();
-        } catch (SQLException e) {
-            throw new RuntimeException(e.getMessage());
+            if (repairTime<=0) {
+                throw new IllegalArgumentException();
+            }
+            if (doesHubExistInDb(hubIdentifier)==false || doesEmployeeExistInDb(employeeId)==false) {
+                throw new IllegalArgumentException();
+            }
+
+            // repairs of a hub are queued in the order of the other writes of the hub
+            synchronized (writeLock(hubIdentifier)) {
+                return repairLogWriter.submit(hubIdentifier, employeeId, repairTime, inService);
+            }
+        } finally {
+            submitHubRepairTimer.stop(start);
         }
     }
 
@@ -198,21 +502,12 @@ public class PowerService {
      * @return number of people who are out of service
      */
     public int peopleOutOfService () {
-        Connection connect = getDbConnection();
-        float peopleOutOfService = 0;
+        long start = peopleOutOfServiceTimer.start();
         try {
-            Statement statement = connect.createStatement();
-            //fetch number of people who are out of service from db
-            ResultSet resultSet = statement.executeQuery(Db.peopleOutOfServiceQuery());
-            //only 1 row with 1 column returned from the query
-            while (resultSet.next()) {
-                peopleOutOfService = Float.parseFloat(resultSet.getString(Db.PEOPLE_OUT_OF_SERVICE));
-            }
-            statement.close();
-            connect.close();
-            return (int)Math.ceil(peopleOutOfService);
-        } catch (SQLException e) {
-            throw new RuntimeException(e.getMessage());
+            // the count is maintained by grid model as hubs go out of and back in service
+            return roundPeople(gridModel.peopleOutOfService());
+        } finally {
+            peopleOutOfServiceTimer.stop(start);
         }
     }
 
@@ -223,34 +518,29 @@ public class PowerService {
      * @return
      */
     public List<DamagedPostalCodes> mostDamagedPostalCodes (int limit ) {
-        // input validation
-        if (limit<=0) {
-            throw new IllegalArgumentException();
-        }
-        Connection connect = getDbConnection();
+        long start = mostDamagedPostalCodesTimer.start();
         try {
-            Statement statement = connect.createStatement();
-            // fetch 'limit' number of postal codes and their repair estimate that need most repair
-            // in descending order of repair time from db
-            ResultSet resultSet = statement.executeQuery(Db.mostDamagedPostalCodesQuery(limit));
-            List<DamagedPostalCodes> damagedPostalCodes = new ArrayList<>();
-            DamagedPostalCodes damagedPostalCode;
-            String postalCode = "";
-            Float totalRepairs;
-            while (resultSet.next()) {
-                postalCode = resultSet.getString(Db.POSTAL_CODE);
-                totalRepairs = Float.parseFloat(resultSet.getString(Db.TOTAL_REPAIRS));
-                damagedPostalCode = new DamagedPostalCodes(postalCode, totalRepairs);
-                damagedPostalCodes.add(damagedPostalCode);
-            }
-            statement.close();
-            connect.close();
-            return damagedPostalCodes;
-        } catch (SQLException e) {
-            throw  new RuntimeException(e.getMessage());
+            // input validation
+            if (limit<=0) {
+                throw new IllegalArgumentException();
+            }
+            return gridModel.mostDamagedPostalCodes(limit);
+        } finally {
+            mostDamagedPostalCodesTimer.stop(start);
         }
     }
 
+    /**
+     * Report all postal codes with a repair estimate in descending order of repair time. The stream reads
+     * report.pageSize postal codes at a time, a postal code whose repair estimate changes while the stream
+     * is consumed may be missed or reported twice.
+     * Every page read is recorded by the timer named after the method
+     * @return
+     */
+    public Stream<DamagedPostalCodes> mostDamagedPostalCodesStream () {
+        return stream(gridModel.mostDamagedPostalCodesIterator(reportPageSize, mostDamagedPostalCodesStreamTimer));
+    }
+
     /**
      * Report 'limit' most significant hubs to fix and their impact in descending order where significance is number
      * of people who regain service per hour of repair
@@ -258,15 +548,28 @@ public class PowerService {
      * @return
      */
     public List<HubImpact> fixOrder ( int limit ) {
-        // input validation
-        if (limit<=0) {
-            throw new IllegalArgumentException();
+        long start = fixOrderTimer.start();
+        try {
+            // input validation
+            if (limit<=0) {
+                throw new IllegalArgumentException();
+            }
+            // get first limit damaged hubs to fix in descending order of significance
+            // (number of people who regain service per hour of repair)
+            return gridModel.fixOrder(limit);
+        } finally {
+            fixOrderTimer.stop(start);
         }
-        // get all damaged hubs to fix in descending order of significance
-        // (number of people who regain service per hour of repair)
-        List<HubImpact> hubImpacts = fixOrder();
-        // return first limit hubs
-        return hubImpacts.subList(0, Math.min(limit, hubImpacts.size()));
+    }
+
+    /**
+     * Report all damaged hubs in descending order of impact. The stream reads report.pageSize hubs at a time,
+     * a hub whose impact changes while the stream is consumed may be missed or reported twice.
+     * Every page read is recorded by the timer named after the method
+     * @return
+     */
+    public Stream<HubImpact> fixOrderStream () {
+        return stream(gridModel.fixOrderIterator(reportPageSize, fixOrderStreamTimer));
     }
 
     /**
@@ -275,115 +578,358 @@ public class PowerService {
      * @return
      */
     public List<Integer> rateOfServiceRestoration ( float increment ) {
-        // input validation
-        if (increment<=0) {
-            throw new IllegalArgumentException();
+        List<Integer> result = new ArrayList<>(); //result is the list containing the final answer
+        rateOfServiceRestoration(increment, result::add);
+        return  result;
+    }
+
+    /**
+     * Report the estimate with which people are restored to power if hubs are fixed according to fixOrder,
+     * passing the hours of every increment to consumer as soon as it is known
+     * @param increment percentage of population
+     * @param consumer receives hours needed to restore power to 0, increment, 2*increment, ... of population
+     */
+    public void rateOfServiceRestoration ( float increment, IntConsumer consumer ) {
+        long start = rateOfServiceRestorationTimer.start();
+        try {
+            // input validation
+            if (increment<=0 || consumer==null) {
+                throw new IllegalArgumentException();
+            }
+
+            // get damaged hubs in fix order with their impact and repair estimate, people out of service
+            // and total population from the same moment, in one call to grid model
+            GridModel.RestorationSnapshot snapshot = gridModel.restorationSnapshot();
+
+            // get total people who are out of service
+            int peopleOutOfService = roundPeople(snapshot.peopleOutOfService);
+            // get total population of province
+            int totalPopulation = (int) snapshot.totalPopulation;
+
+            consumer.accept(0); //time for 0% population to get to power
+            int resultSize = 1;
+            int lastResult = 0;
+
+            // percenatge population already having power
+            float curPopulationRestored = (float) (totalPopulation-peopleOutOfService)/totalPopulation;
+            float curIncrementSum = 0;
+            float repairTime = 0;
+
+            // update result according to people already in power
+            int x = (int)(curPopulationRestored/increment);
+            curIncrementSum = x*increment;
+            for (int i = 0; i < x; i++) {
+                lastResult = (int)Math.ceil(repairTime);
+                consumer.accept(lastResult);
+                resultSize++;
+            }
+
+            // update result as soon as the hubs get fixed in fix order
+
+            for (int i = 0; i < snapshot.impacts.length; i++) {
+                float hubImpact = snapshot.impacts[i];
+                float hubRepairEstimate = snapshot.repairEstimates[i];
+                curPopulationRestored += (hubImpact*hubRepairEstimate)/totalPopulation;
+                repairTime += hubRepairEstimate;
+                while ((curIncrementSum+increment)<=curPopulationRestored) {
+                    lastResult = (int)Math.ceil(repairTime);
+                    consumer.accept(lastResult);
+                    resultSize++;
+                    curIncrementSum += increment;
+                }
+            }
+
+            // total entries in result should be Math.ceil(1/increment)+1
+            // as we are using float the last entry of result may not get entered as
+            //population restored may become 99.something % instead of exact 100%
+            //so, we need to enter the last value of result if not already added
+            if (resultSize<(Math.ceil(1/increment)+1)) {
+                consumer.accept(lastResult);
+            }
+        } finally {
+            rateOfServiceRestorationTimer.stop(start);
         }
+    }
 
-        // get all damaged hubs to fix and their impact in descending order of significance
-        // (number of people who regain service per hour of repair)
-        List<HubImpact> fixOrder = fixOrder();
+    /**
+     *
+     * @param startHub
+     * @param maxDistance
+     * @param maxTime
+     * @return
+     */
+    public List<HubImpact> repairPlan ( String startHub, int maxDistance, float maxTime ) {
+        return repairPlan(startHub, maxDistance, maxTime, false);
+    }
 
-        // get repair estimate for each hub
-        Map<String, Float> hubsRepairEstimatesMap = getHubsRepairEstimates();
+    /**
+     * Find the repair plan, optionally searching for it on several threads.
+     * Both searches return the same plan.
+     * @param startHub
+     * @param maxDistance
+     * @param maxTime
+     * @param parallel true to search on the repair plan pool, sized by repairPlan.parallelism property
+     * @return
+     */
+    public List<HubImpact> repairPlan ( String startHub, int maxDistance, float maxTime, boolean parallel ) {
+        return repairPlanWithBound(startHub, maxDistance, maxTime, parallel).getRepairPath();
+    }
 
-        // get total people who are out of service
-        int peopleOutOfService = peopleOutOfService();
-        // get total population of province
-        int totalPopulation = getTotalPopulation();
+    /**
+     * Find the repair plan together with its impact sum and an upper bound on the impact sum of any plan.
+     * If repairPlan.approximate property is true, plans whose exact search would take more than
+     * repairPlan.exactMaxNodes nodes or half of repairPlan.deadlineMillis are found by beam search that returns
+     * within repairPlan.deadlineMillis, otherwise the best plan is searched.
+     * @param startHub
+     * @param maxDistance
+     * @param maxTime
+     * @param parallel true to run the exact search on the repair plan pool
+     * @return
+     */
+    public RepairPlanResult repairPlanWithBound ( String startHub, int maxDistance, float maxTime, boolean parallel ) {
+        long start = repairPlanTimer.start();
+        try {
+            // input validation
+            if (startHub==null || startHub.trim()=="" || maxDistance<=0 || maxTime<=0) {
+                throw new IllegalArgumentException();
+            }
 
-        List<Integer> result = new ArrayList<>(); //result is the list containing the final answer
-        result.add(0); //time for 0% population to get to power
+            // read hubs and impacts from one state of grid model, so that damages and repairs
+            // made meanwhile cannot mix into the plan
+            RepairPlanInput input = gridModel.read(model -> readRepairPlanInput(model, startHub, maxDistance));
+            if (input==null) {
+                // start hub should exist and should not be in service
+                throw new IllegalArgumentException();
+            }
 
-        // percenatge population already having power
-        float curPopulationRestored = (float) (totalPopulation-peopleOutOfService)/totalPopulation;
-        float curIncrementSum = 0;
-        float repairTime = 0;
-        int hubIndex = 0;
+            return findRepairPlan(input, maxTime, parallel);
+        } finally {
+            repairPlanTimer.stop(start);
+        }
+    }
 
-        // update result according to people already in power
-        int x = (int)(curPopulationRestored/increment);
-        curIncrementSum = x*increment;
-        for (int i = 0; i < x; i++) {
-            result.add((int)Math.ceil(repairTime));
+    /**
+     * Find disjoint repair plans for crews that start at the given hubs at the same time. Plans are searched
+     * in parallel over one state of grid model, a hub is repaired by at most one crew and the start hub
+     * of a crew is never in the plan of another crew.
+     *
+     * Plans are searched in rounds. In every round the crews without a plan are planned over the hubs not yet
+     * claimed, then their plans are taken in descending order of total impact and a plan is accepted if none of
+     * its hubs was claimed by a plan accepted before it. The crews whose plans were not accepted are planned
+     * again in the next round, so the crew with the best plan gets it and the others plan around it.
+     * @param startHubs start hub of every crew, all different
+     * @param maxDistance
+     * @param maxTime
+     * @return plan of every crew, in the order of start hubs
+     */
+    public List<List<HubImpact>> repairPlans ( List<String> startHubs, int maxDistance, float maxTime ) {
+        long start = repairPlansTimer.start();
+        try {
+            // input validation
+            if (startHubs==null || startHubs.isEmpty() || maxDistance<=0 || maxTime<=0) {
+                throw new IllegalArgumentException();
+            }
+            Set<String> claimedHubs = new HashSet<>();
+            for (String startHub : startHubs) {
+                if (startHub==null || startHub.trim()=="" || claimedHubs.add(startHub)==false) {
+                    throw new IllegalArgumentException();
+                }
+            }
+
+            // every crew plans over the same state of grid model
+            List<RepairPlanArea> areas = gridModel.read(model -> {
+                List<RepairPlanArea> crewAreas = new ArrayList<>();
+                for (String startHub : startHubs) {
+                    RepairPlanArea area = readRepairPlanArea(model, startHub, maxDistance);
+                    if (area==null) {
+                        // start hub should exist and should not be in service
+                        throw new IllegalArgumentException("Invalid start hub:" + startHub);
+                    }
+                    crewAreas.add(area);
+                }
+                return crewAreas;
+            });
+
+            List<List<HubImpact>> plans = new ArrayList<>(Collections.<List<HubImpact>>nCopies(startHubs.size(), null));
+            List<Integer> unplannedCrews = new ArrayList<>();
+            for (int crew = 0; crew < startHubs.size(); crew++) {
+                unplannedCrews.add(crew);
+            }
+            while (unplannedCrews.isEmpty()==false) {
+                List<ForkJoinTask<List<HubImpact>>> searches = new ArrayList<>();
+                for (int crew : unplannedCrews) {
+                    // hubs claimed by other crews are left out, the start hub of the crew is its own
+                    Set<String> excludedHubs = new HashSet<>(claimedHubs);
+                    excludedHubs.remove(startHubs.get(crew));
+                    RepairPlanInput input = repairPlanInput(areas.get(crew), excludedHubs);
+                    searches.add(repairPlanPool.submit(ForkJoinTask.adapt(() -> findRepairPlan(input, maxTime, false).getRepairPath())));
+                }
+                List<Integer> crewsByImpact = new ArrayList<>(unplannedCrews);
+                Map<Integer, List<HubImpact>> candidatePlans = new HashMap<>();
+                Map<Integer, Double> candidateImpacts = new HashMap<>();
+                for (int i = 0; i < unplannedCrews.size(); i++) {
+                    List<HubImpact> plan = searches.get(i).join();
+                    candidatePlans.put(unplannedCrews.get(i), plan);
+                    candidateImpacts.put(unplannedCrews.get(i), totalImpact(plan));
+                }
+                crewsByImpact.sort((c1, c2) -> {
+                    int compare = Double.compare(candidateImpacts.get(c2), candidateImpacts.get(c1));
+                    return compare!=0 ? compare : Integer.compare(c1, c2);
+                });
+
+                unplannedCrews.clear();
+                Set<String> claimedInRound = new HashSet<>();
+                for (int crew : crewsByImpact) {
+                    List<HubImpact> plan = candidatePlans.get(crew);
+                    if (isClaimed(plan, startHubs.get(crew), claimedInRound)) {
+                        unplannedCrews.add(crew);
+                        continue;
+                    }
+                    for (HubImpact hub : plan) {
+                        if (hub!=null) {
+                            claimedInRound.add(hub.getHubID());
+                        }
+                    }
+                    plans.set(crew, plan);
+                }
+                claimedHubs.addAll(claimedInRound);
+                Collections.sort(unplannedCrews);
+            }
+            return plans;
+        } finally {
+            repairPlansTimer.stop(start);
         }
+    }
 
-        String hubID = "";
-        Float hubImpact;
-        Float hubRepairEstimate;
+    /**
+     * Search the repair plan over the given input
+     * @param input
+     * @param maxTime
+     * @param parallel
+     * @return
+     */
+    private RepairPlanResult findRepairPlan(RepairPlanInput input, float maxTime, boolean parallel) {
+        if (input.faultyHubsWithinMaxDistCount==0) {
+            // no hubs found within max distance from start hub
+            // just return start hub, with impact 0 if it has none so that the plan never holds null
+            HubImpact startHubImpact = input.hubImpactMap.get(input.startHubId);
+            List<HubImpact> list = new ArrayList<>();
+            list.add(startHubImpact==null ? new HubImpact(input.startHubId, 0) : startHubImpact);
+            double impact = totalImpact(list);
+            return new RepairPlanResult(list, impact, impact, true);
+        }
 
-        // update result as soon as the hubs get fixed in fix order
+        // pass all info needed for finding repair path to the repairPlan.getRepairPlan method
+        if (approximateRepairPlan) {
+            return repairPlanner.getApproximateRepairPlan(input.startHubId, input.endHubId, input.faultyHubsInsideRectangleList,
+                    input.hubImpactMap, maxTime, parallel ? repairPlanPool : null);
+        }
+        return repairPlanner.getRepairPlan(input.startHubId, input.endHubId, input.faultyHubsInsideRectangleList,
+                input.hubImpactMap, maxTime, parallel ? repairPlanPool : null);
+    }
 
-        for (int i = 0; i < fixOrder.size(); i++) {
-            hubID = fixOrder.get(i).getHubID();
-            hubImpact = fixOrder.get(i).getImpact();
-            hubRepairEstimate = hubsRepairEstimatesMap.get(hubID);
-            curPopulationRestored += (hubImpact*hubRepairEstimate)/totalPopulation;
-            repairTime += hubRepairEstimate;
-            while ((curIncrementSum+increment)<=curPopulationRestored) {
-                result.add((int)Math.ceil(repairTime));
-                curIncrementSum += increment;
+    /**
+     * Get sum of impacts of the hubs of a plan
+     * @param plan
+     * @return
+     */
+    private static double totalImpact(List<HubImpact> plan) {
+        double impact = 0;
+        for (HubImpact hub : plan) {
+            if (hub!=null) {
+                impact += hub.getImpact();
             }
         }
+        return impact;
+    }
 
-        // total entries in result should be Math.ceil(1/increment)+1
-        // as we are using float the last entry of result may not get entered as
-        //population restored may become 99.something % instead of exact 100%
-        //so, we need to enter the last value of result if not already added
-        if (result.size()<(Math.ceil(1/increment)+1)) {
-            result.add(result.get(result.size()-1));
+    /**
+     * Check if a plan repairs any of the given hubs other than its start hub
+     * @param plan
+     * @param startHub
+     * @param claimedHubs
+     * @return
+     */
+    private static boolean isClaimed(List<HubImpact> plan, String startHub, Set<String> claimedHubs) {
+        for (HubImpact hub : plan) {
+            if (hub!=null && hub.getHubID().equals(startHub)==false && claimedHubs.contains(hub.getHubID())) {
+                return true;
+            }
         }
-        return  result;
+        return false;
     }
 
     /**
-     *
+     * Read everything the repair plan is searched over from grid model
+     * @param model grid model, which does not change while this method runs
      * @param startHub
      * @param maxDistance
-     * @param maxTime
-     * @return
+     * @return null if start hub does not exist or is in service
      */
-    public List<HubImpact> repairPlan ( String startHub, int maxDistance, float maxTime ) {
-        // input validation
-        if (startHub==null || startHub.trim()=="" || maxDistance<=0 || maxTime<=0) {
-            throw new IllegalArgumentException();
+    private RepairPlanInput readRepairPlanInput(GridModel model, String startHub, int maxDistance) {
+        RepairPlanArea area = readRepairPlanArea(model, startHub, maxDistance);
+        return area==null ? null : repairPlanInput(area, Collections.<String>emptySet());
+    }
+
+    /**
+     * Read the faulty hubs a crew can reach from the start hub and their impacts from grid model
+     * @param model grid model, which does not change while this method runs
+     * @param startHub
+     * @param maxDistance
+     * @return null if start hub does not exist or is in service
+     */
+    private RepairPlanArea readRepairPlanArea(GridModel model, String startHub, int maxDistance) {
+        HubInfo startHubInfo = model.hubInfo(startHub);
+        if (startHubInfo==null || startHubInfo.isInService()) {
+            return null;
         }
-        if (doesHubExistInDb(startHub)==false) {
-            throw new IllegalArgumentException();
+
+        // Get the HubInfo of all faulty hubs that are within max Distance (manhattan distance) from start hub
+        List<HubInfo> faultyHubsWithinMaxDistList = getFaultyHubsWithinMaxDist(startHubInfo, maxDistance);
+        List<String> faultyHubsWithinMaxDistIds = new ArrayList<>();
+        for (HubInfo hub : faultyHubsWithinMaxDistList) {
+            faultyHubsWithinMaxDistIds.add(hub.getHubID());
         }
 
-        HubInfo startHubInfo = getHubInfo(startHub);
-        String startHubId = startHubInfo.getHubID();
-        if (startHubInfo.isInService()) {
-            // start hub should not be in service
-            throw new IllegalArgumentException();
+        // store the hubs and their impacts in a map for start hub and all the hubs within max distance
+        Map<String, HubImpact> hubImpactMap = new HashMap<>();
+        hubImpactMap.put(startHubInfo.getHubID(), model.hubImpact(startHubInfo.getHubID()));
+        for (String hubID : faultyHubsWithinMaxDistIds) {
+            hubImpactMap.put(hubID, model.hubImpact(hubID));
         }
 
-        // get all damaged hubs to fix in descending order of significance
-        // (number of people who regain service per hour of repair)
-        List<HubImpact> fixOrder = fixOrder();
+        return new RepairPlanArea(startHubInfo, faultyHubsWithinMaxDistList, model.inFixOrder(faultyHubsWithinMaxDistIds), hubImpactMap);
+    }
 
-        // Get the HubInfo of all faulty hubs that are within max Distance (manhattan distance) from start hub
-        List<HubInfo> faultyHubsWithinMaxDistList = new ArrayList<>(getFaultyHubsWithinMaxDist(startHubInfo, maxDistance));
+    /**
+     * Make the input of a repair plan from the hubs a crew can reach, leaving out the given hubs
+     * @param area
+     * @param excludedHubs hubs the plan must not repair
+     * @return
+     */
+    private RepairPlanInput repairPlanInput(RepairPlanArea area, Set<String> excludedHubs) {
+        HubInfo startHubInfo = area.startHubInfo;
+        String startHubId = startHubInfo.getHubID();
 
-        // also store the hubs found above in hashset for fast retrieval
-        Set<String> faultyHubsWithinMaxDistSet = new HashSet<>();
-        for (HubInfo hub : faultyHubsWithinMaxDistList) {
-            faultyHubsWithinMaxDistSet.add(hub.getHubID());
+        List<HubInfo> faultyHubsWithinMaxDistList = new ArrayList<>();
+        for (HubInfo hub : area.faultyHubsWithinMaxDistList) {
+            if (excludedHubs.contains(hub.getHubID())==false) {
+                faultyHubsWithinMaxDistList.add(hub);
+            }
         }
 
+        // find the most significant hub to fix (number of people who regain service per hour of repair)
+        // among the hubs found above, this hub becomes the end hub
         String endHubId = "";
-        HubInfo endHubInfo = new HubInfo();
-        // find the most significant hub to fix from faultyHubsWithinMaxDistSet
-        // this hub becomes the end hub
-        for (HubImpact hubImpact : fixOrder) {
-            if (faultyHubsWithinMaxDistSet.contains(hubImpact.getHubID())) {
-                endHubId = hubImpact.getHubID();
+        for (String hubID : area.endHubCandidates) {
+            if (excludedHubs.contains(hubID)==false) {
+                endHubId = hubID;
                 break;
             }
         }
 
         // find end HubInfo from end hubID which will be used later
+        HubInfo endHubInfo = new HubInfo();
         for (HubInfo hubInfo : faultyHubsWithinMaxDistList) {
             if (hubInfo.getHubID().equals(endHubId)) {
                 endHubInfo = new HubInfo(hubInfo);
@@ -395,32 +941,119 @@ public class PowerService {
         faultyHubsInsideRectangleList.add(startHubInfo);
         faultyHubsInsideRectangleList.addAll(getFaultyHubsInsideRectangle(startHubInfo, endHubInfo, faultyHubsWithinMaxDistList));
 
-        // also store the hubs found above in hashset for fast retrieval
-        Set<String> faultyHubsInsideRectangleSet = new HashSet<>();
+        // store the hubs and their impacts in a map for all the hubs in inside rectangle
+        Map<String, HubImpact> hubImpactMap = new HashMap<>();
         for (HubInfo hub : faultyHubsInsideRectangleList) {
-            faultyHubsInsideRectangleSet.add(hub.getHubID());
+            hubImpactMap.put(hub.getHubID(), area.hubImpactMap.get(hub.getHubID()));
         }
 
-        // store the hubs and their impacts in a map for all the hubs in inside rectangle
-        Map<String, HubImpact> hubImpactMap = new HashMap<>();
+        return new RepairPlanInput(startHubId, endHubId, faultyHubsWithinMaxDistList.size(), faultyHubsInsideRectangleList, hubImpactMap);
+    }
 
-        for (HubImpact hubImpact : fixOrder) {
-            if (faultyHubsInsideRectangleSet.contains(hubImpact.getHubID())) {
-                hubImpactMap.put(hubImpact.getHubID(), hubImpact);
+    /**
+     * Report the actual and estimated repair time of the hubs that came back in service at least once,
+     * in descending order of the hours their repairs took beyond the estimate
+     * @param limit
+     * @return
+     */
+    public List<HubRepairStats> hubRepairStats ( int limit ) {
+        long start = hubRepairStatsTimer.start();
+        try {
+            // input validation
+            if (limit<=0) {
+                throw new IllegalArgumentException();
+            }
+            // totals are kept up to date by every repair, so the repairs are not scanned
+            try (Connection connect = getDbConnection();
+                 PreparedStatement statement = connect.prepareStatement(Db.hubRepairStatsQuery())) {
+                statement.setInt(1, limit);
+                return RowMapper.list(statement, resultSet -> new HubRepairStats(resultSet.getString(1),
+                        resultSet.getInt(2), resultSet.getDouble(3), resultSet.getInt(4), resultSet.getDouble(5), resultSet.getDouble(6)));
+            } catch (SQLException e) {
+                throw  new RuntimeException(e.getMessage());
             }
+        } finally {
+            hubRepairStatsTimer.stop(start);
         }
+    }
 
-        if (faultyHubsWithinMaxDistList.size()==0) {
-            // no hubs found within max distance from start hub
-            // just return start hub
-            List<HubImpact> list = new ArrayList<>();
-            list.add(new HubImpact(startHubId, hubImpactMap.get(startHubId).getImpact()));
-            return list;
+    /**
+     * Report repairs done by employees in descending order of hubs they brought back in service
+     * and then of repairs done
+     * @param limit
+     * @return
+     */
+    public List<EmployeeRepairStats> employeeRepairStats ( int limit ) {
+        long start = employeeRepairStatsTimer.start();
+        try {
+            // input validation
+            if (limit<=0) {
+                throw new IllegalArgumentException();
+            }
+            try (Connection connect = getDbConnection();
+                 PreparedStatement statement = connect.prepareStatement(Db.employeeRepairStatsQuery())) {
+                statement.setInt(1, limit);
+                return RowMapper.list(statement, resultSet -> new EmployeeRepairStats(resultSet.getString(1),
+                        resultSet.getInt(2), resultSet.getDouble(3), resultSet.getInt(4)));
+            } catch (SQLException e) {
+                throw  new RuntimeException(e.getMessage());
+            }
+        } finally {
+            employeeRepairStatsTimer.stop(start);
         }
+    }
+
+    /**
+     * Report hubs brought back in service and people who regained service per hour of wall clock time,
+     * with their totals since repairs were first recorded. A restoration counts in the hour its repair was
+     * submitted. Hours without restorations are left out.
+     * @param fromMillis start of the first hour, in milliseconds since epoch
+     * @param toMillis end of the last hour, in milliseconds since epoch
+     * @return
+     */
+    public List<RestorationPeriod> restorationOverTime ( long fromMillis, long toMillis ) {
+        long start = restorationOverTimeTimer.start();
+        try {
+            // input validation
+            if (fromMillis<0 || toMillis<=fromMillis) {
+                throw new IllegalArgumentException();
+            }
+            long fromPeriod = fromMillis - fromMillis%Constants.RESTORATION_PERIOD_MILLIS;
+            try (Connection connect = getDbConnection()) {
+                // totals of the hours before the first one give the start of the cumulative counts
+                double cumulativeRestorations;
+                double cumulativePeopleRestored;
+                try (PreparedStatement statement = connect.prepareStatement(Db.restorationBeforeQuery())) {
+                    statement.setLong(1, fromPeriod);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        cumulativeRestorations = resultSet.getDouble(1);
+                        cumulativePeopleRestored = resultSet.getDouble(2);
+                    }
+                }
 
-        // pass all info needed for finding repair path to the repairPlan.getRepairPath method
-        RepairPlan repairPlan = new RepairPlan();
-        return repairPlan.getRepairPath(startHubId, endHubId, faultyHubsInsideRectangleList, hubImpactMap, maxTime);
+                List<RestorationPeriod> restorationPeriods = new ArrayList<>();
+                try (PreparedStatement statement = connect.prepareStatement(Db.restorationRollupQuery())) {
+                    statement.setLong(1, fromPeriod);
+                    statement.setLong(2, toMillis);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            int restorations = resultSet.getInt(2);
+                            double peopleRestored = resultSet.getDouble(3);
+                            cumulativeRestorations += restorations;
+                            cumulativePeopleRestored += peopleRestored;
+                            restorationPeriods.add(new RestorationPeriod(resultSet.getLong(1), restorations,
+                                    roundPeople(peopleRestored), (int) cumulativeRestorations, roundPeople(cumulativePeopleRestored)));
+                        }
+                    }
+                }
+                return restorationPeriods;
+            } catch (SQLException e) {
+                throw  new RuntimeException(e.getMessage());
+            }
+        } finally {
+            restorationOverTimeTimer.stop(start);
+        }
     }
 
     /**
@@ -430,27 +1063,29 @@ public class PowerService {
      * @return
      */
     public List<String> underservedPostalByPopulation ( int limit ) {
-        // input validation
-        if (limit<=0) {
-            throw new IllegalArgumentException();
-        }
-        Connection connect = getDbConnection();
+        long start = underservedPostalByPopulationTimer.start();
         try {
-            Statement statement = connect.createStatement();
-            // fetch postal codes in ascending order of avg number of hubs per person in that postal code
-            ResultSet resultSet = statement.executeQuery(Db.underservedPostalByPopulationQuery(limit));
-            List<String> postalCodes = new ArrayList<>();
-            while (resultSet.next()) {
-                postalCodes.add(resultSet.getString(Db.POSTAL_CODE));
+            // input validation
+            if (limit<=0) {
+                throw new IllegalArgumentException();
             }
-            statement.close();
-            connect.close();
-            return postalCodes;
-        } catch (SQLException e) {
-            throw  new RuntimeException(e.getMessage());
+            return gridModel.underservedPostalByPopulation(limit);
+        } finally {
+            underservedPostalByPopulationTimer.stop(start);
         }
     }
 
+    /**
+     * Report all postal codes with at least one hub in descending order of services needed per population.
+     * The stream reads report.pageSize postal codes at a time, a postal code whose hubs or population change
+     * while the stream is consumed may be missed or reported twice.
+     * Every page read is recorded by the timer named after the method
+     * @return
+     */
+    public Stream<String> underservedPostalByPopulationStream () {
+        return stream(gridModel.underservedPostalByPopulationIterator(reportPageSize, underservedPostalByPopulationStreamTimer));
+    }
+
     /**
      *Report 'limit' number of postal codes in descending order of services needed
      *(ascending order of avg number of hubs per square meter in a postal code)
@@ -458,130 +1093,231 @@ public class PowerService {
      * @return
      */
     public List<String> underservedPostalByArea ( int limit ) {
-        // input validation
-        if (limit<=0) {
-            throw new IllegalArgumentException();
-        }
-        Connection connect = getDbConnection();
+        long start = underservedPostalByAreaTimer.start();
         try {
-            Statement statement = connect.createStatement();
-            // fetch postal codes in ascending order of avg number of hubs square meter in that postal code
-            ResultSet resultSet = statement.executeQuery(Db.underservedPostalByAreaQuery(limit));
-            List<String> postalCodes = new ArrayList<>();
-            while (resultSet.next()) {
-                postalCodes.add(resultSet.getString(Db.POSTAL_CODE));
+            // input validation
+            if (limit<=0) {
+                throw new IllegalArgumentException();
             }
-            statement.close();
-            connect.close();
-            return postalCodes;
-        } catch (SQLException e) {
-            throw  new RuntimeException(e.getMessage());
+            return gridModel.underservedPostalByArea(limit);
+        } finally {
+            underservedPostalByAreaTimer.stop(start);
         }
     }
 
     /**
-     * Get all the hubs to fix and their impact in descending order where order is determined by number
-     * of people who regain service per hour of repair
+     * Report all postal codes with at least one hub in descending order of services needed per area.
+     * The stream reads report.pageSize postal codes at a time, a postal code whose hubs or area change
+     * while the stream is consumed may be missed or reported twice.
+     * Every page read is recorded by the timer named after the method
      * @return
      */
-    private List<HubImpact> fixOrder () {
-        Connection connect = getDbConnection();
-        try {
-            Statement statement = connect.createStatement();
-            // get fix order from db
-            ResultSet resultSet = statement.executeQuery(Db.fixOrderQuery());
-            List<HubImpact> hubImpacts = new ArrayList<>();
-            HubImpact hubImpact;
-            String hubID = "";
-            Float impact;
-            while (resultSet.next()) {
-                hubID = resultSet.getString(Db.HUB_ID);
-                impact = Float.parseFloat(resultSet.getString(Db.HUB_IMPACT));
-                hubImpact = new HubImpact(hubID, impact);
-                hubImpacts.add(hubImpact);
-            }
-            statement.close();
-            connect.close();
-            return hubImpacts;
-        } catch (SQLException e) {
-            throw  new RuntimeException(e.getMessage());
-        }
+    public Stream<String> underservedPostalByAreaStream () {
+        return stream(gridModel.underservedPostalByAreaIterator(reportPageSize, underservedPostalByAreaStreamTimer));
     }
 
     /**
-     * Get the total population of province
-     * @return total population
+     * Get number of people who are out of service computed by db
+     * @return
      */
-    private int getTotalPopulation() {
-        Connection connect = getDbConnection();
-        int totalPopulation = 0;
-        try {
-            Statement statement = connect.createStatement();
-            // get the total population of province from db
-            ResultSet resultSet = statement.executeQuery(Db.totalPopulationQuery());
-            // we get just one row and column from result set
+    private double peopleOutOfServiceInDb() {
+        double peopleOutOfService = 0;
+        try (Connection connect = getDbConnection();
+             PreparedStatement statement = connect.prepareStatement(Db.peopleOutOfServiceQuery())) {
+            //fetch number of people who are out of service from db
+            ResultSet resultSet = statement.executeQuery();
+            //only 1 row with 1 column returned from the query
             while (resultSet.next()) {
-                totalPopulation = Integer.parseInt(resultSet.getString(Db.TOTAL_POPULATION));
+                peopleOutOfService = resultSet.getDouble(Db.PEOPLE_OUT_OF_SERVICE);
             }
-            statement.close();
-            connect.close();
-            return totalPopulation;
+            return peopleOutOfService;
         } catch (SQLException e) {
             throw new RuntimeException(e.getMessage());
         }
     }
 
     /**
-     * Get repair estimates for all damaged hubs
-     * @return map with key as hubID and value as repair estimate
+     * Compare people out of service maintained by grid model with db and reload grid model if they differ.
+     * A write may be committed to db just before grid model is updated, so grid model is reloaded only
+     * if the mismatch is seen by two consecutive reconciliations.
      */
-    private Map<String, Float> getHubsRepairEstimates() {
-        Connection connect = getDbConnection();
-        Map<String, Float> hubsRepairEstimatesMap = new HashMap<>();
+    private void reconcileGridModel() {
         try {
-            Statement statement = connect.createStatement();
-            // get repair estimates for all damaged hubs
-            ResultSet resultSet = statement.executeQuery(Db.hubsRepairEstimatesQuery());
-            String hubID = "";
-            Float repairEstimate;
-            while (resultSet.next()) {
-                hubID = resultSet.getString(Db.HUB_ID);
-                repairEstimate = Float.parseFloat(resultSet.getString(Db.REPAIR_ESTIMATE));
-                hubsRepairEstimatesMap.put(hubID, repairEstimate);
+            double expected = peopleOutOfServiceInDb();
+            double actual = gridModel.peopleOutOfService();
+            if (Math.abs(expected-actual)<=Constants.RECONCILIATION_TOLERANCE) {
+                reconciliationMismatches = 0;
+                return;
             }
-            statement.close();
-            connect.close();
-            return hubsRepairEstimatesMap;
-        } catch (SQLException e) {
-            throw new RuntimeException(e.getMessage());
+            reconciliationMismatches++;
+            LOGGER.warning("People out of service in grid model is " + actual + " but db has " + expected);
+            if (reconciliationMismatches>=2) {
+                // built apart from the model, which serves reads and writes meanwhile
+                try (Connection connect = getDbConnection()) {
+                    gridModel.reload(connect, fetchSize);
+                }
+                reconciliationMismatches = 0;
+            }
+        } catch (Exception e) {
+            // keep the schedule running, the next reconciliation will try again
+            LOGGER.warning("Reconciliation of grid model failed: " + e.getMessage());
         }
     }
 
     /**
-     * Get connection to db
+     * Get connection to db from the connection pool, the connection is returned to the pool when closed
      * @return Connection object having connection to db
      */
     private Connection getDbConnection() {
-        Properties identity = new Properties();
-        String username = "";
-        String password = "";
-        String path = "";
-
         try {
-            InputStream stream = new FileInputStream(Constants.PROPERTY_FILENAME);
-            identity.load(stream);
-            username = identity.getProperty(Constants.USERNAME);
-            password = identity.getProperty(Constants.PASSWORD);
-            path = identity.getProperty(Constants.DATABASE_PATH);
-        } catch (Exception e) {
+            return connectionPool.getConnection();
+        } catch (SQLException e) {
             throw new RuntimeException(e.getMessage());
         }
+    }
+
+    /**
+     * Get lock of the writes of a hub or postal code, the same key always gets the same lock
+     * @param key hub id or postal code
+     * @return
+     */
+    private Object writeLock(String key) {
+        return writeLocks[writeLockStripe(key, writeLocks.length)];
+    }
+
+    /**
+     * Get index of the lock of the writes of a hub or postal code
+     * @param key hub id or postal code
+     * @param stripes number of locks
+     * @return
+     */
+    static int writeLockStripe(String key, int stripes) {
+        return (key.hashCode() & Integer.MAX_VALUE) % stripes;
+    }
+
+    /**
+     * Check that postal code data is valid
+     * @param postalCode
+     * @param population
+     * @param area
+     * @throws IllegalArgumentException if data is not valid
+     */
+    static void validatePostalCode(String postalCode, int population, int area) {
+        if (postalCode==null || postalCode.trim()=="" || postalCode.length()>Constants.POSTAL_CODE_LENGTH || population<=0 || area<=0) {
+            throw new IllegalArgumentException("Invalid postal code data");
+        }
+        for (int i = 0; i < postalCode.length(); i++) {
+            if (Character.isLetterOrDigit(postalCode.charAt(i))==false) {
+                throw new IllegalArgumentException("Invalid postal code:"+postalCode);
+            }
+        }
+    }
+
+    /**
+     * Check that distribution hub data is valid, existence of serviced areas is not checked
+     * @param hubIdentifier
+     * @param location
+     * @param servicedAreas
+     * @throws IllegalArgumentException if data is not valid
+     */
+    static void validateDistributionHub(String hubIdentifier, Point location, Set<String> servicedAreas) {
+        if (hubIdentifier==null || hubIdentifier.trim()=="" || location==null || servicedAreas==null) {
+            throw new IllegalArgumentException("Invalid distribution hub data");
+        }
+        for (int i = 0; i < hubIdentifier.length(); i++) {
+            if (Character.isLetterOrDigit(hubIdentifier.charAt(i))==false) {
+                throw new IllegalArgumentException("Invalid hub id:"+hubIdentifier);
+            }
+        }
+    }
+
+    /**
+     * Round people counted by grid model to the precision of db division, so that an exact count is not ceiled up,
+     * and then ceil it to whole people
+     * @param people
+     * @return
+     */
+    private static int roundPeople(double people) {
+        return (int)Math.ceil(Math.round(people*Constants.QUERY_DIVISION_SCALE)/Constants.QUERY_DIVISION_SCALE);
+    }
 
+    /**
+     * Wrap an iterator of a report in a sequential stream
+     * @param iterator
+     * @return
+     */
+    private static <T> Stream<T> stream(Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Get the metrics recorded by the service, empty unless metrics.enabled is true
+     * @return
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Create the exporters configured in properties, none unless metrics.enabled is true
+     * @param properties
+     * @return
+     */
+    private static List<MetricsExporter> createMetricsExporters(Properties properties) {
+        List<MetricsExporter> metricsExporters = new ArrayList<>();
+        if (Boolean.parseBoolean(properties.getProperty(Constants.METRICS_ENABLED, "false"))==false) {
+            return metricsExporters;
+        }
+        if (Boolean.parseBoolean(properties.getProperty(Constants.METRICS_JMX, "false"))) {
+            metricsExporters.add(new JmxMetricsExporter());
+        }
+        int port = intProperty(properties, Constants.METRICS_HTTP_PORT, -1);
+        if (port>=0) {
+            metricsExporters.add(new HttpMetricsExporter(port));
+        }
+        for (String className : properties.getProperty(Constants.METRICS_EXPORTERS, "").split(",")) {
+            if (className.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                metricsExporters.add((MetricsExporter) Class.forName(className.trim()).getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalArgumentException("Invalid value for " + Constants.METRICS_EXPORTERS + ": " + className);
+            }
+        }
+        return metricsExporters;
+    }
+
+    /**
+     * Read int property, or return default value if it is not present
+     * @param properties
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    static int intProperty(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value==null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
         try {
-            Class.forName(Constants.JDBC);
-            Connection connect = DriverManager.getConnection(path, username, password );
-            return connect;
-        } catch (Exception e) {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+        }
+    }
+
+    /**
+     * Load properties from property file
+     * @param propertyFileName
+     * @return Properties
+     */
+    static Properties loadProperties(String propertyFileName) {
+        Properties identity = new Properties();
+        try (InputStream stream = new FileInputStream(propertyFileName)) {
+            identity.load(stream);
+            return identity;
+        } catch (IOException e) {
             throw new RuntimeException(e.getMessage());
         }
     }
@@ -592,20 +1328,9 @@ public class PowerService {
      * @return true if hub exists in db, false otherwise
      */
     private boolean doesHubExistInDb(String hubID) {
-        Connection connect = getDbConnection();
-        try {
-            Statement statement = connect.createStatement();
-            ResultSet resultSet = statement.executeQuery(Db.getDistributionHubsQuery());
-            Set curHubs = new HashSet<>();
-            while (resultSet.next()) {
-                curHubs.add(resultSet.getString(Db.HUB_ID));
-            }
-            statement.close();
-            connect.close();
-            if (curHubs.contains(hubID)==false) {
-                return false;
-            }
-            return true;
+        try (Connection connect = getDbConnection();
+             PreparedStatement statement = connect.prepareStatement(Db.doesHubExistQuery())) {
+            return doesKeyExist(statement, hubID);
         } catch (SQLException e) {
             throw new RuntimeException(e.getMessage());
         }
@@ -617,55 +1342,25 @@ public class PowerService {
      * @return
      */
     private boolean doesEmployeeExistInDb(String employeeID) {
-        Connection connect = getDbConnection();
-        try {
-            Statement statement = connect.createStatement();
-            ResultSet resultSet = statement.executeQuery(Db.getEmployeesQuery());
-            Set curEmployees = new HashSet<>();
-            while (resultSet.next()) {
-                curEmployees.add(resultSet.getString(Db.EMPLOYEE_ID));
-            }
-            statement.close();
-            connect.close();
-            if (curEmployees.contains(employeeID)==false) {
-                return false;
-            }
-            return true;
+        try (Connection connect = getDbConnection();
+             PreparedStatement statement = connect.prepareStatement(Db.doesEmployeeExistQuery())) {
+            return doesKeyExist(statement, employeeID);
         } catch (SQLException e) {
             throw new RuntimeException(e.getMessage());
         }
     }
 
     /**
-     * Get HubInfo object from hubID
-     * @param hubID
-     * @return
+     * Run an existence query that looks up a single primary key
+     * @param statement prepared existence query having the key as its only parameter
+     * @param key
+     * @return true if a row with the key exists, false otherwise
+     * @throws SQLException
      */
-    private HubInfo getHubInfo(String hubID) {
-        Connection connect = getDbConnection();
-        try {
-            Statement statement = connect.createStatement();
-            // fetch hub info from db
-            ResultSet resultSet = statement.executeQuery(Db.getHubInfoQuery(hubID));
-            int locationX = 0;
-            int locationY = 0;
-            boolean inService = true;
-            float repairEstimate = 0;
-
-            // resultSet contains one row
-            while (resultSet.next()) {
-                locationX = Integer.parseInt(resultSet.getString(Db.LOCATION_X));
-                locationY = Integer.parseInt(resultSet.getString(Db.LOCATION_Y));
-                inService = Boolean.parseBoolean(resultSet.getString(Db.IN_SERVICE));
-                repairEstimate = Float.parseFloat(resultSet.getString(Db.REPAIR_ESTIMATE));
-            }
-
-            statement.close();
-            connect.close();
-            return new HubInfo(hubID, locationX, locationY, inService, repairEstimate);
-
-        } catch (SQLException e) {
-            throw  new RuntimeException(e.getMessage());
+    private static boolean doesKeyExist(PreparedStatement statement, String key) throws SQLException {
+        statement.setString(1, key);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next();
         }
     }
 
@@ -676,34 +1371,8 @@ public class PowerService {
      * @return list of HubInfo objects
      */
     private List<HubInfo> getFaultyHubsWithinMaxDist(HubInfo startHub, int maxDist) {
-        Connection connect = getDbConnection();
-        try {
-            Statement statement = connect.createStatement();
-            // fetch hub info of faulty hubs from db that are within max Distance (manhattan distance) from start hub
-            ResultSet resultSet = statement.executeQuery(Db.getFaultyHubsWithinMaxDistQuery(startHub, maxDist));
-            String hubID;
-            int locationX = 0;
-            int locationY = 0;
-            boolean inService = true;
-            float repairEstimate = 0;
-            List faultyHubs = new ArrayList<>();
-
-            while (resultSet.next()) {
-                hubID = resultSet.getString(Db.HUB_ID);
-                locationX = Integer.parseInt(resultSet.getString(Db.LOCATION_X));
-                locationY = Integer.parseInt(resultSet.getString(Db.LOCATION_Y));
-                inService = Boolean.parseBoolean(resultSet.getString(Db.IN_SERVICE));
-                repairEstimate = Float.parseFloat(resultSet.getString(Db.REPAIR_ESTIMATE));
-                faultyHubs.add(new HubInfo(hubID, locationX, locationY, inService, repairEstimate));
-            }
-
-            statement.close();
-            connect.close();
-            return faultyHubs;
-
-        } catch (SQLException e) {
-            throw  new RuntimeException(e.getMessage());
-        }
+        // hubs out of service are indexed by location in grid model, so no table scan is needed
+        return gridModel.faultyHubsWithinDistance(startHub.getHubID(), startHub.getLocationX(), startHub.getLocationY(), maxDist);
     }
 
     /**
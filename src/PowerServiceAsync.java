@@ -0,0 +1,280 @@
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * PowerServiceAsync offers the methods of PowerService as methods that return a CompletableFuture
+ * instead of blocking the caller.
+ *
+ * Methods that query or write db run on the executor given to the constructor, so the caller can choose
+ * how many threads wait for db, for example a virtual thread per task executor on Java 21.
+ * Reports that are answered from the grid model of PowerService do not wait for db and complete in the
+ * calling thread. Invalid input is reported by completing the future exceptionally.
+ */
+
+public class PowerServiceAsync {
+
+    // internal attributes of the class
+    private final PowerService powerService; // service that does the work
+    private final Executor executor; // runs the methods that wait for db
+    private final boolean ownsService; // true if service and executor were created by this class and are closed by it
+
+    /**
+     * Constructor that runs the methods of the given service on the given executor,
+     * both are owned by the caller and are not closed by close()
+     * @param powerService
+     * @param executor
+     */
+    public PowerServiceAsync(PowerService powerService, Executor executor) {
+        if (powerService==null || executor==null) {
+            throw new IllegalArgumentException();
+        }
+        this.powerService = powerService;
+        this.executor = executor;
+        this.ownsService = false;
+    }
+
+    /**
+     * Constructor that creates the service from the given property file and a pool of async.threads threads,
+     * by default as many threads as there can be connections to db
+     * @param propertyFileName
+     */
+    public PowerServiceAsync(String propertyFileName) {
+        Properties properties = PowerService.loadProperties(propertyFileName);
+        int threads = PowerService.intProperty(properties, Constants.ASYNC_THREADS,
+                PowerService.intProperty(properties, Constants.POOL_MAX_SIZE, Constants.DEFAULT_POOL_MAX_SIZE));
+        if (threads<=0) {
+            throw new IllegalArgumentException("Invalid value for " + Constants.ASYNC_THREADS + ": " + threads);
+        }
+        this.powerService = new PowerService(propertyFileName);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "power-service-async-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ownsService = true;
+    }
+
+    /**
+     * Release the threads and connections held by the service if they were created by this class
+     */
+    public void close() {
+        if (ownsService) {
+            ((ExecutorService) executor).shutdown();
+            powerService.close();
+        }
+    }
+
+    /**
+     * Get the service that does the work, for calls that should block
+     * @return
+     */
+    public PowerService getPowerService() {
+        return powerService;
+    }
+
+    /**
+     * Add a new postal code to db or update if already present
+     * @param postalCode
+     * @param population
+     * @param area
+     * @return completes with true if successful
+     */
+    public CompletableFuture<Boolean> addPostalCodeAsync(String postalCode, int population, int area) {
+        return CompletableFuture.supplyAsync(() -> powerService.addPostalCode(postalCode, population, area), executor);
+    }
+
+    /**
+     * Add a new distribution hub to db or update if already present
+     * @param hubIdentifier
+     * @param location
+     * @param servicedAreas
+     * @return completes with true if successful
+     */
+    public CompletableFuture<Boolean> addDistributionHubAsync(String hubIdentifier, Point location, Set<String> servicedAreas) {
+        return CompletableFuture.supplyAsync(() -> powerService.addDistributionHub(hubIdentifier, location, servicedAreas), executor);
+    }
+
+    /**
+     * Add or update postal codes in bulk, the iterator is consumed on the executor
+     * @param postalCodes
+     * @return completes with number of rows loaded and the rejected rows
+     */
+    public CompletableFuture<BulkLoadResult> addPostalCodesAsync(Iterator<PostalCode> postalCodes) {
+        return CompletableFuture.supplyAsync(() -> powerService.addPostalCodes(postalCodes), executor);
+    }
+
+    /**
+     * Add or update distribution hubs and their serviced areas in bulk, the iterator is consumed on the executor
+     * @param distributionHubs
+     * @return completes with number of rows loaded and the rejected rows
+     */
+    public CompletableFuture<BulkLoadResult> addDistributionHubsAsync(Iterator<DistributionHub> distributionHubs) {
+        return CompletableFuture.supplyAsync(() -> powerService.addDistributionHubs(distributionHubs), executor);
+    }
+
+    /**
+     * Report a damaged hub and estimated hours to repair it
+     * @param hubIdentifier
+     * @param repairEstimate
+     * @return completes when the damage is recorded
+     */
+    public CompletableFuture<Void> hubDamageAsync(String hubIdentifier, float repairEstimate) {
+        return CompletableFuture.runAsync(() -> powerService.hubDamage(hubIdentifier, repairEstimate), executor);
+    }
+
+    /**
+     * Report that given employee has done repair to the hub and whether it is in service now
+     * @param hubIdentifier
+     * @param employeeId
+     * @param repairTime
+     * @param inService
+     * @return completes when the repair is recorded
+     */
+    public CompletableFuture<Void> hubRepairAsync(String hubIdentifier, String employeeId, float repairTime, boolean inService) {
+        // the executor only checks the repair, the write itself is grouped with other repairs by the service
+        return CompletableFuture.supplyAsync(() -> powerService.submitHubRepair(hubIdentifier, employeeId, repairTime, inService), executor)
+                .thenCompose(written -> written);
+    }
+
+    /**
+     * Report number of people who are out of service, completes in the calling thread
+     * @return
+     */
+    public CompletableFuture<Integer> peopleOutOfServiceAsync() {
+        return completed(powerService::peopleOutOfService);
+    }
+
+    /**
+     * Report 'limit' number of postal codes and their repair estimate that need most repair
+     * in descending order of repair time, completes in the calling thread
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<List<DamagedPostalCodes>> mostDamagedPostalCodesAsync(int limit) {
+        return completed(() -> powerService.mostDamagedPostalCodes(limit));
+    }
+
+    /**
+     * Report 'limit' number of hubs to fix in descending order of impact, completes in the calling thread
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<List<HubImpact>> fixOrderAsync(int limit) {
+        return completed(() -> powerService.fixOrder(limit));
+    }
+
+    /**
+     * Report the estimate with which people are restored to power if hubs are fixed according to fixOrder,
+     * completes in the calling thread
+     * @param increment percentage of population
+     * @return
+     */
+    public CompletableFuture<List<Integer>> rateOfServiceRestorationAsync(float increment) {
+        return completed(() -> powerService.rateOfServiceRestoration(increment));
+    }
+
+    /**
+     * Find the repair plan, the search runs on the executor
+     * @param startHub
+     * @param maxDistance
+     * @param maxTime
+     * @return
+     */
+    public CompletableFuture<List<HubImpact>> repairPlanAsync(String startHub, int maxDistance, float maxTime) {
+        return CompletableFuture.supplyAsync(() -> powerService.repairPlan(startHub, maxDistance, maxTime), executor);
+    }
+
+    /**
+     * Find the repair plan with its impact sum and upper bound, the search runs on the executor
+     * @param startHub
+     * @param maxDistance
+     * @param maxTime
+     * @return
+     */
+    public CompletableFuture<RepairPlanResult> repairPlanWithBoundAsync(String startHub, int maxDistance, float maxTime) {
+        return CompletableFuture.supplyAsync(() -> powerService.repairPlanWithBound(startHub, maxDistance, maxTime, false), executor);
+    }
+
+    /**
+     * Find disjoint repair plans for crews starting at the given hubs, the search runs on the executor
+     * @param startHubs
+     * @param maxDistance
+     * @param maxTime
+     * @return
+     */
+    public CompletableFuture<List<List<HubImpact>>> repairPlansAsync(List<String> startHubs, int maxDistance, float maxTime) {
+        return CompletableFuture.supplyAsync(() -> powerService.repairPlans(startHubs, maxDistance, maxTime), executor);
+    }
+
+    /**
+     * Report the actual and estimated repair time of the hubs that came back in service at least once
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<List<HubRepairStats>> hubRepairStatsAsync(int limit) {
+        return CompletableFuture.supplyAsync(() -> powerService.hubRepairStats(limit), executor);
+    }
+
+    /**
+     * Report repairs done by employees in descending order of hubs they brought back in service
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<List<EmployeeRepairStats>> employeeRepairStatsAsync(int limit) {
+        return CompletableFuture.supplyAsync(() -> powerService.employeeRepairStats(limit), executor);
+    }
+
+    /**
+     * Report hubs brought back in service and people who regained service per hour of wall clock time
+     * @param fromMillis
+     * @param toMillis
+     * @return
+     */
+    public CompletableFuture<List<RestorationPeriod>> restorationOverTimeAsync(long fromMillis, long toMillis) {
+        return CompletableFuture.supplyAsync(() -> powerService.restorationOverTime(fromMillis, toMillis), executor);
+    }
+
+    /**
+     * Report 'limit' number of postal codes in descending order of services needed per population,
+     * completes in the calling thread
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<List<String>> underservedPostalByPopulationAsync(int limit) {
+        return completed(() -> powerService.underservedPostalByPopulation(limit));
+    }
+
+    /**
+     * Report 'limit' number of postal codes in descending order of services needed per area,
+     * completes in the calling thread
+     * @param limit
+     * @return
+     */
+    public CompletableFuture<List<String>> underservedPostalByAreaAsync(int limit) {
+        return completed(() -> powerService.underservedPostalByArea(limit));
+    }
+
+    /**
+     * Run report in the calling thread and complete the future with its result or its exception
+     * @param report
+     * @return
+     */
+    private static <T> CompletableFuture<T> completed(Supplier<T> report) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(report.get());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
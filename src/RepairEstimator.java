@@ -0,0 +1,97 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RepairEstimator corrects the repair estimates reported for damaged hubs with what earlier repairs took.
+ *
+ * Every completed repair adds its actual and estimated hours to the totals of its hub. The correction factor of
+ * a hub is the ratio of actual to estimated hours, pulled towards the factor of all hubs by a prior worth
+ * ESTIMATE_PRIOR_HOURS of estimate, so that a hub with little history gets the factor of all hubs and a hub
+ * with a long history gets its own. The factor of all hubs is fixed between calls to refreshGlobalFactor,
+ * so a completed repair changes the factor of its own hub only.
+ *
+ * The time still needed for a damaged hub is its corrected estimate less the hours already logged for it,
+ * but never less than MIN_REMAINING_FRACTION of the corrected estimate, as an overrunning repair is not done yet.
+ *
+ * RepairEstimator is not thread safe, it is used under the lock of grid model.
+ */
+class RepairEstimator {
+
+    // internal attributes of the class
+    private final Map<String, double[]> hubTotals = new HashMap<>(); // actual and estimated hours of completed repairs per hub
+    private double totalActual; // actual hours of all completed repairs
+    private double totalEstimate; // estimated hours of all completed repairs
+    private double globalFactor = 1; // factor of all hubs as of the last refresh
+
+    /**
+     * Forget all completed repairs
+     */
+    void clear() {
+        hubTotals.clear();
+        totalActual = 0;
+        totalEstimate = 0;
+        globalFactor = 1;
+    }
+
+    /**
+     * Add completed repairs of a hub
+     * @param hubID
+     * @param actual hours the repairs took
+     * @param estimate hours the repairs were estimated to take
+     */
+    void observe(String hubID, double actual, double estimate) {
+        if (actual<=0 || estimate<=0) {
+            return;
+        }
+        double[] totals = hubTotals.get(hubID);
+        if (totals==null) {
+            totals = new double[2];
+            hubTotals.put(hubID, totals);
+        }
+        totals[0] += actual;
+        totals[1] += estimate;
+        totalActual += actual;
+        totalEstimate += estimate;
+    }
+
+    /**
+     * Recompute the factor of all hubs from the repairs completed till now
+     */
+    void refreshGlobalFactor() {
+        globalFactor = clampFactor((totalActual + Constants.ESTIMATE_PRIOR_HOURS) / (totalEstimate + Constants.ESTIMATE_PRIOR_HOURS));
+    }
+
+    /**
+     * Get correction factor of a hub
+     * @param hubID
+     * @return actual hours expected per estimated hour
+     */
+    double factor(String hubID) {
+        double[] totals = hubTotals.get(hubID);
+        if (totals==null) {
+            return globalFactor;
+        }
+        return clampFactor((totals[0] + Constants.ESTIMATE_PRIOR_HOURS*globalFactor) / (totals[1] + Constants.ESTIMATE_PRIOR_HOURS));
+    }
+
+    /**
+     * Get hours still needed to repair a hub
+     * @param hubID
+     * @param repairEstimate reported estimate of the damage
+     * @param repairTimeSpent hours logged for the damage till now
+     * @return
+     */
+    float remaining(String hubID, float repairEstimate, float repairTimeSpent) {
+        double corrected = repairEstimate * factor(hubID);
+        return (float) Math.max(corrected - repairTimeSpent, corrected * Constants.MIN_REMAINING_FRACTION);
+    }
+
+    /**
+     * Limit factor so that a few unusual repairs cannot make an estimate meaningless
+     * @param factor
+     * @return
+     */
+    private static double clampFactor(double factor) {
+        return Math.max(Constants.MIN_ESTIMATE_FACTOR, Math.min(Constants.MAX_ESTIMATE_FACTOR, factor));
+    }
+}
@@ -0,0 +1,723 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * RepairLogWriter writes hub repairs to db behind the caller. A repair is appended to a local journal and queued,
+ * a writer thread takes all the repairs queued meanwhile and commits them in one transaction, so that many
+ * repairs share one commit.
+ *
+ * Every repair has a sequence number. The sequence number of the last repair written is stored in db in the
+ * same transaction as the repairs, so on start the repairs of the journal that db does not have yet are written
+ * exactly once. A repair is appended to the journal under a lock and forced to disk outside of it before submit
+ * returns, one caller forces the journal for all the repairs appended meanwhile and the others wait for it, so
+ * a repair that was accepted survives a crash of the process or of the operating system while callers share
+ * the cost of forcing. The journal is emptied whenever all of its repairs are in db. If syncJournal is false
+ * the journal is only flushed to the operating system, which is faster but loses the repairs not yet in db if
+ * the operating system crashes.
+ *
+ * If db cannot be reached, the batch is retried with growing pauses and its callers keep waiting, the repairs a
+ * lost commit did write are recognised by the checkpoint in db. Only repairs that db rejects fail, they are
+ * recorded in the journal so that they are not written on next start either. Repairs still waiting for db when
+ * the writer is closed fail and stay in the journal, they are written on next start.
+ *
+ * The totals of the repairs per hub, per employee and per hour are updated in the same transaction as the
+ * repairs, so reports of repair history read these rollups and never scan the repairs. A restoration counts in
+ * the hour in which its repair was submitted, which the journal keeps, not in the hour in which it is committed.
+ */
+class RepairLogWriter {
+
+    private static final Logger LOGGER = Logger.getLogger(RepairLogWriter.class.getName());
+    private static final long POLL_MILLIS = 100; // how often an idle writer checks whether it is closed
+    private static final long MIN_RETRY_MILLIS = 100; // first pause before a batch is retried when db cannot be reached
+    private static final long MAX_RETRY_MILLIS = 30000; // pause doubles up to this
+    private static final long SUBMITTED_TAG = Long.MIN_VALUE; // journal record of a repair starts with this and its submit time
+
+    /**
+     * RepairEvent is a hub repair waiting to be written to db
+     */
+    static class RepairEvent {
+        final long sequence;
+        final String hubID;
+        final String employeeID;
+        final float repairTime;
+        final boolean inService;
+        final long submitMillis; // wall clock time at which the repair was submitted
+        final CompletableFuture<Void> written = new CompletableFuture<>(); // completes once the repair is in db
+
+        RepairEvent(long sequence, String hubID, String employeeID, float repairTime, boolean inService, long submitMillis) {
+            this.sequence = sequence;
+            this.hubID = hubID;
+            this.employeeID = employeeID;
+            this.repairTime = repairTime;
+            this.inService = inService;
+            this.submitMillis = submitMillis;
+        }
+    }
+
+    // internal attributes of the class
+    private final ConnectionPool connectionPool;
+    private final int batchSize;
+    private final GridModel gridModel; // gets every repair once it is committed, in order
+    private final Semaphore capacity; // free places in queue, callers wait for one when queue is full
+    private final BlockingQueue<RepairEvent> queue = new LinkedBlockingQueue<>();
+    private final Map<String, CompletableFuture<Void>> lastPending = new ConcurrentHashMap<>(); // last unwritten repair of a hub
+    private final Object journalLock = new Object(); // guards journal, appends, sequence numbers and closed
+    private final Object syncLock = new Object(); // guards syncedAppends and isSyncing
+    private final File journalFile;
+    private final FileOutputStream journalStream;
+    private final DataOutputStream journal;
+    private final boolean syncJournal; // true to force journal to disk before a repair is accepted
+    private long appends; // number of records appended to journal
+    private long syncedAppends; // number of records known to be on disk
+    private boolean isSyncing; // true while a caller forces journal to disk for the others
+    private long lastSequence; // sequence number of the last repair accepted
+    private long checkpoint; // sequence number of the last repair that db is known to have
+    private boolean closed;
+    private final Thread writer;
+
+    /**
+     * Constructor, writes the repairs of the journal that are not in db yet before it returns
+     * @param connectionPool
+     * @param journalFileName
+     * @param batchSize max number of repairs committed together
+     * @param queueCapacity max number of repairs waiting to be written
+     * @param syncJournal true to force journal to disk before a repair is accepted
+     * @param gridModel
+     */
+    RepairLogWriter(ConnectionPool connectionPool, GridModel gridModel, String journalFileName, int batchSize, int queueCapacity,
+                    boolean syncJournal) {
+        if (batchSize<=0) {
+            throw new IllegalArgumentException("Invalid repair log batch size: " + batchSize);
+        }
+        if (queueCapacity<=0) {
+            throw new IllegalArgumentException("Invalid repair log queue capacity: " + queueCapacity);
+        }
+        this.connectionPool = connectionPool;
+        this.batchSize = batchSize;
+        this.gridModel = gridModel;
+        this.capacity = new Semaphore(queueCapacity);
+        this.journalFile = new File(journalFileName);
+        this.syncJournal = syncJournal;
+
+        // journal is open while recovered repairs are written, as repairs that db rejects are recorded in it
+        try {
+            journalStream = new FileOutputStream(journalFile, true);
+            journal = new DataOutputStream(new BufferedOutputStream(journalStream));
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+
+        // write the repairs that were accepted before the last shutdown or crash but did not reach db
+        // and were not rejected by it
+        try {
+            checkpoint = readCheckpoint();
+        } catch (RuntimeException e) {
+            try {
+                journal.close();
+            } catch (IOException closeException) {
+                LOGGER.warning("Closing repair log journal failed: " + closeException.getMessage());
+            }
+            throw e;
+        }
+        lastSequence = checkpoint;
+        Set<Long> rejected = new HashSet<>();
+        List<RepairEvent> recovered = new ArrayList<>();
+        for (RepairEvent event : readJournal(rejected)) {
+            lastSequence = Math.max(lastSequence, event.sequence);
+            if (event.sequence>checkpoint && rejected.contains(event.sequence)==false) {
+                recovered.add(event);
+            }
+        }
+        for (int i = 0; i < recovered.size(); i += batchSize) {
+            write(recovered.subList(i, Math.min(i+batchSize, recovered.size())));
+        }
+        if (recovered.isEmpty()==false) {
+            LOGGER.info("Wrote " + recovered.size() + " hub repairs recovered from " + journalFile);
+        }
+
+        truncateJournalIfWritten();
+
+        writer = new Thread(this::run, "power-service-repair-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Accept a hub repair, waits while queue is full and until the repair is on disk
+     * @param hubID
+     * @param employeeID
+     * @param repairTime
+     * @param inService
+     * @return completes once the repair is in db and in grid model
+     */
+    CompletableFuture<Void> submit(String hubID, String employeeID, float repairTime, boolean inService) {
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage());
+        }
+        RepairEvent event;
+        long append;
+        synchronized (journalLock) {
+            if (closed) {
+                capacity.release();
+                throw new IllegalStateException("Repair log is closed");
+            }
+            event = new RepairEvent(lastSequence+1, hubID, employeeID, repairTime, inService, System.currentTimeMillis());
+            try {
+                writeEvent(journal, event);
+                journal.flush();
+            } catch (IOException e) {
+                capacity.release();
+                throw new RuntimeException(e.getMessage());
+            }
+            append = ++appends;
+            lastSequence = event.sequence;
+            lastPending.put(hubID, event.written);
+            event.written.whenComplete((result, e) -> lastPending.remove(hubID, event.written));
+            queue.add(event);
+        }
+        // forced to disk together with the repairs appended meanwhile, the repair is queued already so that
+        // repairs reach db in order of sequence number
+        try {
+            syncJournal(append);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+        return event.written;
+    }
+
+    /**
+     * Get the last repair of a hub that is not written yet
+     * @param hubID
+     * @return completes once all repairs of the hub accepted till now are written or have failed
+     */
+    CompletableFuture<Void> pending(String hubID) {
+        CompletableFuture<Void> pending = lastPending.get(hubID);
+        return pending==null ? CompletableFuture.completedFuture(null) : pending.exceptionally(e -> null);
+    }
+
+    /**
+     * Stop accepting repairs, write the repairs already accepted and close the journal
+     */
+    void close() {
+        synchronized (journalLock) {
+            closed = true;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long append;
+        synchronized (journalLock) {
+            append = appends;
+        }
+        try {
+            // waits for callers still forcing the journal, no record is appended any more
+            syncJournal(append);
+        } catch (IOException e) {
+            LOGGER.warning("Forcing repair log journal to disk failed: " + e.getMessage());
+        }
+        synchronized (journalLock) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOGGER.warning("Closing repair log journal failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Take the repairs queued while the previous batch was committed and write them, till closed and queue is empty
+     */
+    private void run() {
+        List<RepairEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            RepairEvent first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // keep writing, repairs are only dropped by a crash and the journal covers that
+                continue;
+            }
+            if (first==null) {
+                synchronized (journalLock) {
+                    if (closed && queue.isEmpty()) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize-1);
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                // keep the writer running and report the failure to the callers still waiting
+                LOGGER.warning("Writing hub repairs failed: " + e.getMessage());
+                for (RepairEvent event : batch) {
+                    event.written.completeExceptionally(e);
+                }
+            }
+            capacity.release(batch.size());
+            batch.clear();
+            truncateJournalIfWritten();
+        }
+    }
+
+    /**
+     * Write repairs to db, retrying with growing pauses while db cannot be reached, until written or closed.
+     * The batch is one write of grid model till all its repairs are applied, so that a reload of the model
+     * never starts between a commit whose answer was lost and the retry that applies it.
+     * @param events
+     */
+    private void write(List<RepairEvent> events) {
+        gridModel.beginWrite();
+        try {
+            writeUntilDone(events);
+        } finally {
+            gridModel.endWrite();
+        }
+    }
+
+    /**
+     * Write repairs to db, retrying with growing pauses while db cannot be reached, until written or closed
+     * @param events
+     */
+    private void writeUntilDone(List<RepairEvent> events) {
+        long retryMillis = MIN_RETRY_MILLIS;
+        boolean isRetry = false;
+        while (true) {
+            try (Connection connect = connectionPool.getConnection()) {
+                write(connect, events, isRetry);
+                return;
+            } catch (SQLException e) {
+                // no connection, or the connection broke: callers keep waiting and the batch is tried again
+                synchronized (journalLock) {
+                    if (closed) {
+                        LOGGER.warning("Db could not be reached before repair log was closed, hub repairs stay in journal: " + e.getMessage());
+                        for (RepairEvent event : events) {
+                            event.written.completeExceptionally(new RuntimeException(
+                                    "Db could not be reached, the repair is written on next start: " + e.getMessage()));
+                        }
+                        return;
+                    }
+                }
+                LOGGER.warning("Db could not be reached, retrying " + events.size() + " hub repairs in " + retryMillis + " ms: " + e.getMessage());
+            }
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                // keep writing, as in run
+            }
+            retryMillis = Math.min(retryMillis*2, MAX_RETRY_MILLIS);
+            isRetry = true;
+        }
+    }
+
+    /**
+     * Write repairs to db in one transaction, if db rejects it write them one by one so that only
+     * the rejected repairs fail
+     * @param connect
+     * @param events
+     * @param isRetry true if an earlier try may have committed some of the repairs
+     * @throws SQLException if db cannot be reached
+     */
+    private void write(Connection connect, List<RepairEvent> events, boolean isRetry) throws SQLException {
+        List<RepairEvent> unwritten = events;
+        if (isRetry) {
+            // a commit whose answer was lost may have written repairs, the checkpoint in db tells which
+            long dbCheckpoint = readCheckpoint(connect);
+            unwritten = new ArrayList<>();
+            for (RepairEvent event : events) {
+                if (event.written.isDone()) {
+                    continue;
+                }
+                if (event.sequence<=dbCheckpoint) {
+                    written(event);
+                } else {
+                    unwritten.add(event);
+                }
+            }
+            if (unwritten.isEmpty()) {
+                return;
+            }
+        }
+
+        connect.setAutoCommit(false);
+        try {
+            try {
+                writeEvents(connect, unwritten);
+                connect.commit();
+                written(unwritten);
+                return;
+            } catch (SQLException e) {
+                connect.rollback();
+                if (isUnreachable(e)) {
+                    throw e;
+                }
+            }
+            for (RepairEvent event : unwritten) {
+                try {
+                    writeEvents(connect, event);
+                    connect.commit();
+                    written(event);
+                } catch (SQLException e) {
+                    connect.rollback();
+                    if (isUnreachable(e)) {
+                        throw e;
+                    }
+                    rejected(event, e);
+                }
+            }
+            // rejected repairs are not retried, as a rejected synchronous write would not be either
+            long batchSequence = unwritten.get(unwritten.size()-1).sequence;
+            writeCheckpoint(connect, batchSequence);
+            connect.commit();
+            synchronized (journalLock) {
+                checkpoint = Math.max(checkpoint, batchSequence);
+            }
+        } finally {
+            connect.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Check if a failure means that db could not be reached, rather than that it rejected the statement
+     * @param e
+     * @return
+     */
+    private static boolean isUnreachable(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException || (state!=null && state.startsWith("08"));
+    }
+
+    /**
+     * Add repairs, their rollups and the new checkpoint to db using the given connection, without committing.
+     * Grid model has all the repairs written before these, so it tells which repairs bring a hub back
+     * in service, the estimate of the damage and the people who regain service.
+     * @param connect
+     * @param events
+     * @throws SQLException
+     */
+    private void writeEvents(Connection connect, List<RepairEvent> events) throws SQLException {
+        // restorations and people restored per start of the period in which the repair was submitted
+        Map<Long, double[]> periods = new LinkedHashMap<>();
+        Set<String> restoredHubs = new HashSet<>(); // hubs brought back in service by the repairs before the current one
+
+        try (PreparedStatement addRepair = connect.prepareStatement(Db.addHubRepairQuery());
+             PreparedStatement setInService = connect.prepareStatement(Db.setHubInServiceQuery());
+             PreparedStatement addHubRollup = connect.prepareStatement(Db.addHubRepairRollupQuery());
+             PreparedStatement addEmployeeRollup = connect.prepareStatement(Db.addEmployeeRepairRollupQuery())) {
+            boolean anyInService = false;
+            for (RepairEvent event : events) {
+                addRepair.setString(1, event.hubID);
+                addRepair.setString(2, event.employeeID);
+                addRepair.setFloat(3, event.repairTime);
+                addRepair.setBoolean(4, event.inService);
+                addRepair.addBatch();
+
+                // a repair restores the hub if it puts back in service a hub that is out of service
+                HubInfo hubInfo = gridModel.hubInfo(event.hubID);
+                boolean restores = event.inService && hubInfo!=null && hubInfo.isInService()==false
+                        && restoredHubs.contains(event.hubID)==false;
+                int restorations = restores ? 1 : 0;
+                float estimate = restores ? gridModel.reportedRepairEstimate(event.hubID) : 0;
+                if (restores) {
+                    restoredHubs.add(event.hubID);
+                    long periodStart = event.submitMillis - event.submitMillis%Constants.RESTORATION_PERIOD_MILLIS;
+                    double[] period = periods.computeIfAbsent(periodStart, start -> new double[2]);
+                    period[0]++;
+                    period[1] += gridModel.peopleRestoredBy(event.hubID);
+                }
+                addHubRollup.setString(1, event.hubID);
+                addHubRollup.setFloat(2, event.repairTime);
+                addHubRollup.setFloat(3, restores ? 0 : event.repairTime);
+                addHubRollup.setInt(4, restorations);
+                addHubRollup.setFloat(5, restores ? event.repairTime : 0);
+                addHubRollup.setFloat(6, estimate);
+                addHubRollup.addBatch();
+                addEmployeeRollup.setString(1, event.employeeID);
+                addEmployeeRollup.setFloat(2, event.repairTime);
+                addEmployeeRollup.setInt(3, restorations);
+                addEmployeeRollup.addBatch();
+
+                if (event.inService) {
+                    setInService.setString(1, event.hubID);
+                    setInService.addBatch();
+                    anyInService = true;
+                }
+            }
+            addRepair.executeBatch();
+            addHubRollup.executeBatch();
+            addEmployeeRollup.executeBatch();
+            if (anyInService) {
+                setInService.executeBatch();
+            }
+        }
+        if (periods.isEmpty()==false) {
+            try (PreparedStatement statement = connect.prepareStatement(Db.addRestorationRollupQuery())) {
+                for (Map.Entry<Long, double[]> period : periods.entrySet()) {
+                    statement.setLong(1, period.getKey());
+                    statement.setInt(2, (int) period.getValue()[0]);
+                    statement.setDouble(3, period.getValue()[1]);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+        writeCheckpoint(connect, events.get(events.size()-1).sequence);
+    }
+
+    /**
+     * Add one repair and the new checkpoint to db using the given connection, without committing
+     * @param connect
+     * @param event
+     * @throws SQLException
+     */
+    private void writeEvents(Connection connect, RepairEvent event) throws SQLException {
+        List<RepairEvent> events = new ArrayList<>(1);
+        events.add(event);
+        writeEvents(connect, events);
+    }
+
+    /**
+     * Set the sequence number of the last repair in db, without committing
+     * @param connect
+     * @param sequence
+     * @throws SQLException
+     */
+    private static void writeCheckpoint(Connection connect, long sequence) throws SQLException {
+        try (PreparedStatement statement = connect.prepareStatement(Db.setRepairLogCheckpointQuery())) {
+            statement.setLong(1, sequence);
+            statement.setLong(2, sequence);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Report committed repairs in order and advance the checkpoint
+     * @param events
+     */
+    private void written(List<RepairEvent> events) {
+        for (RepairEvent event : events) {
+            written(event);
+        }
+    }
+
+    /**
+     * Report a committed repair and advance the checkpoint
+     * @param event
+     */
+    private void written(RepairEvent event) {
+        try {
+            gridModel.hubRepair(event.hubID, event.repairTime, event.inService);
+        } finally {
+            synchronized (journalLock) {
+                checkpoint = Math.max(checkpoint, event.sequence);
+            }
+            event.written.complete(null);
+        }
+    }
+
+    /**
+     * Record in journal that db rejected a repair, so that it is not written on next start, and report it failed
+     * @param event
+     * @param e
+     */
+    private void rejected(RepairEvent event, SQLException e) {
+        try {
+            long append;
+            synchronized (journalLock) {
+                journal.writeLong(-event.sequence);
+                journal.flush();
+                append = ++appends;
+            }
+            syncJournal(append);
+        } catch (IOException journalException) {
+            // repair is tried again on next start
+            LOGGER.warning("Recording rejected hub repair in journal failed: " + journalException.getMessage());
+        }
+        event.written.completeExceptionally(new RuntimeException(e.getMessage()));
+    }
+
+    /**
+     * Force journal to disk if syncJournal is set, up to the given number of records that were flushed to the
+     * operating system. Called without journalLock: one caller forces the journal for all the records
+     * appended so far and the callers that come meanwhile wait for it, then one of them forces the next group.
+     * @param append
+     * @throws IOException
+     */
+    private void syncJournal(long append) throws IOException {
+        if (syncJournal==false) {
+            return;
+        }
+        synchronized (syncLock) {
+            while (syncedAppends<append && isSyncing) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e.getMessage());
+                }
+            }
+            if (syncedAppends>=append) {
+                return;
+            }
+            isSyncing = true;
+        }
+        long syncing;
+        synchronized (journalLock) {
+            syncing = appends; // records are flushed when appended, so the force covers all of them
+        }
+        boolean isSynced = false;
+        try {
+            journalStream.getFD().sync();
+            isSynced = true;
+        } finally {
+            synchronized (syncLock) {
+                isSyncing = false;
+                if (isSynced) {
+                    syncedAppends = Math.max(syncedAppends, syncing);
+                }
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Empty the journal if db has all the repairs in it
+     */
+    private void truncateJournalIfWritten() {
+        synchronized (journalLock) {
+            if (checkpoint<lastSequence) {
+                return;
+            }
+            try {
+                journal.flush();
+                journalStream.getChannel().truncate(0);
+            } catch (IOException e) {
+                // journal is read again on next start, repairs in db are skipped then
+                LOGGER.warning("Truncating repair log journal failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the sequence number of the last repair in db
+     * @return 0 if no repair was written through the journal yet
+     */
+    private long readCheckpoint() {
+        try (Connection connect = connectionPool.getConnection()) {
+            return readCheckpoint(connect);
+        } catch (SQLException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Get the sequence number of the last repair in db using the given connection
+     * @param connect
+     * @return 0 if no repair was written through the journal yet
+     * @throws SQLException
+     */
+    private static long readCheckpoint(Connection connect) throws SQLException {
+        try (PreparedStatement statement = connect.prepareStatement(Db.getRepairLogCheckpointQuery());
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(Db.LAST_SEQUENCE) : 0;
+        }
+    }
+
+    /**
+     * Read the repairs of the journal, a repair cut short by a crash ends the journal.
+     * A repair journaled without its submit time by an earlier version counts as submitted now.
+     * @param rejected gets the sequence numbers of the repairs that db rejected
+     * @return
+     */
+    private List<RepairEvent> readJournal(Set<Long> rejected) {
+        List<RepairEvent> events = new ArrayList<>();
+        if (journalFile.exists()==false) {
+            return events;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            while (true) {
+                // a rejected repair is recorded as its negated sequence number
+                long sequence = in.readLong();
+                if (sequence==SUBMITTED_TAG) {
+                    long submitMillis = in.readLong();
+                    events.add(readEvent(in, in.readLong(), submitMillis));
+                } else if (sequence<0) {
+                    rejected.add(-sequence);
+                } else {
+                    events.add(readEvent(in, sequence, System.currentTimeMillis()));
+                }
+            }
+        } catch (EOFException e) {
+            return events;
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Append a repair to journal
+     * @param out
+     * @param event
+     * @throws IOException
+     */
+    private static void writeEvent(DataOutputStream out, RepairEvent event) throws IOException {
+        out.writeLong(SUBMITTED_TAG);
+        out.writeLong(event.submitMillis);
+        out.writeLong(event.sequence);
+        out.writeUTF(event.hubID);
+        out.writeUTF(event.employeeID);
+        out.writeFloat(event.repairTime);
+        out.writeBoolean(event.inService);
+    }
+
+    /**
+     * Read the rest of a repair from journal
+     * @param in
+     * @param sequence sequence number already read
+     * @param submitMillis
+     * @return
+     * @throws IOException
+     */
+    private static RepairEvent readEvent(DataInputStream in, long sequence, long submitMillis) throws IOException {
+        String hubID = in.readUTF();
+        String employeeID = in.readUTF();
+        float repairTime = in.readFloat();
+        boolean inService = in.readBoolean();
+        return new RepairEvent(sequence, hubID, employeeID, repairTime, inService, submitMillis);
+    }
+}
@@ -1,61 +1,69 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * RepairClass helps in finding the path(intermediate hubs to repair) from start hub to end hub
+ *
+ * The search is a depth first search over the faulty hubs that skips two kinds of subtrees:
+ * - branch and bound: a subtree is skipped if even the optimistic bound on the impact that can still be
+ *   collected within the remaining time cannot beat the best path found so far
+ * - dominance: a subtree is skipped if an earlier state ended at the same hub with the same constraints and
+ *   the same visited hubs among those a path can still reach, in no more time and with at least the same impact,
+ *   as every path that can follow the state could follow the earlier state too
+ * A path stays monotonic in x or in y, so the hubs it can still reach are ahead of the current hub in that
+ * direction and the visited hubs it can still reach are the ones in line with the current hub. Both the bound
+ * and the dominance check only look at those hubs.
+ * Hubs are still expanded in list order, so the path returned is the same path that the plain depth first
+ * search returns, including the choice among paths with equal impact.
+ *
+ * In parallel mode the first hubs of the path are split into fork join tasks. Tasks share the best impact sum
+ * found so far, so that every task prunes with the paths found by the others. Results of tasks are merged in
+ * list order, so parallel search returns the same path as sequential search.
+ *
+ * Before the search starts, the faulty hubs are copied into arrays indexed by position in the list and the
+ * constraints of a path are packed into an int, so the search itself works on primitives only.
+ *
+ * Every call to getRepairPath searches on its own instance holding the arrays of that call, so a RepairPlan
+ * can be shared by threads.
+ *
+ * getApproximateRepairPlan trades the best path for a bounded search time when there are many faulty hubs.
+ * It estimates the size of the exact search by the number of sets of hubs that fit into max time. If that is
+ * at most exactMaxNodes it runs the exact search, which gives up after exactMaxNodes nodes or half of the
+ * deadline. Otherwise, or if the exact search gives up, it runs a beam search under the same constraints
+ * that grows the paths one hub at a time and keeps the beamWidth paths with the highest impact sum plus the
+ * impact the remaining time could collect at the best impact per hour of any hub. The search stops when the
+ * deadline passes, every path kept can end at the end hub, so the best of them is returned together with the
+ * gap to the fractional knapsack bound used to prune the exact search.
  */
 
 public class RepairPlan {
 
-    /**
-     * Value enum is used to categorise int value
-     */
-    private enum Value {
-        NEGATIVE,
-        ZERO,
-        POSITIVE;
-
-        static Value getValue(int n) {
-            if (n<0) return NEGATIVE;
-            if (n==0) return ZERO;
-            return POSITIVE;
-        }
-    }
+    /*
+     Constraints of a path are packed into an int:
+     - X_MONOTONIC: is path traversed till now x monotonic
+     - Y_MONOTONIC: is path traversed till now y monotonic
+     - DIAG_CROSSED: has diagonal been crossed in path traversed till now
+     - bits from SIDE_SHIFT: sideOfPreviousNonDiagonalPoint + 1
 
-    /**
-     * Constraints contains variables that represent constraints for the repair plan
+     sideOfPreviousNonDiagonalPoint helps in finding will diagonal be crossed now if
+     current point is traversed.
+     positive/negative value represents that on which side of the diagonal
+     the closest previous non-diagonal(point which did not lie on the diagonal) point was traversed
+     0 value means only the points that lie on diagonal have been traversed till now.
      */
-    private class Constraints {
-        float maxTime; // max time allowed at intermediate hubs
-        boolean isXMonotonic; // is path traversed till now x monotonic
-        boolean isYMonotonic; // is path traversed till now y monotonic
-        Value xDir; // difference b/w end hub and start hub x-coordinate to represent x-direction in which we need to move to reach end hub
-        Value yDir; // difference b/w end hub and start hub y-coordinate to represent y-direction in which we need to move to reach end hub
-
-        /*
-         sideOfPreviousNonDiagonalPoint helps in finding will diagonal be crossed now if
-         current point is traversed.
-         positive/negative value represents that on which side of the diagonal
-         the closest previous non-diagonal(point which did not lie on the diagonal) point was traversed
-         0 value means only the points that lie on diagonal have been traversed till now.
-         */
-        Value sideOfPreviousNonDiagonalPoint;
-
-        boolean isDiagCrossed; // has diagonal been crossed in path traversed till now
-
-        // constructor for constraints
-        Constraints(float maxTime, boolean isXMonotonic, boolean isYMonotonic, Value xDir, Value yDir, Value sideOfPreviousNonDiagonalPoint, boolean isDiagCrossed) {
-            this.maxTime = maxTime;
-            this.isXMonotonic = isXMonotonic;
-            this.isYMonotonic = isYMonotonic;
-            this.xDir = xDir;
-            this.yDir = yDir;
-            this.sideOfPreviousNonDiagonalPoint = sideOfPreviousNonDiagonalPoint;
-            this.isDiagCrossed = isDiagCrossed;
-        }
-    }
+    private static final int X_MONOTONIC = 1;
+    private static final int Y_MONOTONIC = 2;
+    private static final int DIAG_CROSSED = 4;
+    private static final int SIDE_SHIFT = 3;
+    private static final int NOT_ALLOWED = -1; // constraints of a move that breaks the constraints
 
     /**
      * Line class is used to store line constants a, b, c of line equation
@@ -79,221 +87,1136 @@ public class RepairPlan {
      */
     private class Result {
         float maxHubImpactSum;
-        List<HubImpact> maxImpactHubs;
+        int[] maxImpactHubs; // indexes of hubs in faultyHubsList
         Result() {
             maxHubImpactSum = 0;
-            maxImpactHubs = new ArrayList();
+            maxImpactHubs = new int[0];
+        }
+    }
+
+    /**
+     * SearchState identifies a path of beam search by the visited hubs, the current hub, the constraints and
+     * the time spent till now
+     */
+    private static class SearchState {
+        long[] visited;
+        int v;
+        int constraints;
+        int timeBits;
+        int hash;
+
+        SearchState set(long[] visited, int v, int constraints, float time) {
+            this.visited = visited;
+            this.v = v;
+            this.constraints = constraints;
+            this.timeBits = Float.floatToIntBits(time);
+            this.hash = 31*(31*(31*Arrays.hashCode(visited) + v) + constraints) + timeBits;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this==o) return true;
+            if (o instanceof SearchState==false) return false;
+            SearchState other = (SearchState) o;
+            return v==other.v && constraints==other.constraints && timeBits==other.timeBits && Arrays.equals(visited, other.visited);
+        }
+    }
+
+    /**
+     * BeamState is a path kept by beam search, linked to the path it extends
+     */
+    private static class BeamState {
+        final BeamState previous; // path without its last hub, null for the path of start hub only
+        final int v; // last hub of path
+        final long[] visited; // hubs of path as bitmask
+        final float impactSum; // sum of impacts of hubs of path
+        final float time; // time spent at hubs of path
+        final int constraints;
+        final double score; // impact sum plus the impact the remaining time could collect
+
+        BeamState(BeamState previous, int v, long[] visited, float impactSum, float time, int constraints, double score) {
+            this.previous = previous;
+            this.v = v;
+            this.visited = visited;
+            this.impactSum = impactSum;
+            this.time = time;
+            this.constraints = constraints;
+            this.score = score;
+        }
+    }
+
+    /**
+     * StateTable remembers the states seen by the searches of one repair path. A state is keyed by the current
+     * hub, the constraints and the visited hubs that the paths following it can still reach, and for every key
+     * the table keeps a list of the time spent and impact sum of the states seen and the search that saw them,
+     * dropping a state once another state with the same key is seen in no more time with at least the same impact.
+     * Keys and states live in open addressing and pooled arrays, so a lookup allocates nothing and the arrays
+     * only grow while the table fills up. A table shared by the tasks of a parallel search is used under its lock.
+     */
+    private final class StateTable {
+        final boolean shared;
+        final int maxSize; // max number of states
+        int keyCount;
+        int mask;
+        int[] hashes;
+        int[] hubs; // current hub + 1, 0 for an empty slot
+        int[] constraints;
+        long[] keys; // reachable visited hubs, words longs per slot
+        int[] firstStates; // first state of the key, -1 for none
+        int stateCount; // states in the pool, including free ones
+        int freeState = -1; // first state of the list of free states
+        float[] times;
+        float[] impactSums;
+        Search[] searches;
+        int[] nextStates; // next state of the same key or of the free list, -1 for none
+
+        StateTable(boolean shared, int maxSize) {
+            this.shared = shared;
+            this.maxSize = maxSize;
+            allocateKeys(64);
+            times = new float[64];
+            impactSums = new float[64];
+            searches = new Search[64];
+            nextStates = new int[64];
+        }
+
+        /**
+         * Check if the state is dominated by a state seen before, otherwise remember it.
+         * A state seen by another search counts only if that search comes first in list order.
+         * @param search
+         * @param hash
+         * @param v
+         * @param constraints
+         * @param key reachable visited hubs
+         * @param time
+         * @param impactSum
+         * @return true if the state is dominated and need not be explored
+         */
+        boolean isDominated(Search search, int hash, int v, int constraints, long[] key, float time, float impactSum) {
+            if (shared) {
+                synchronized (this) {
+                    return checkAndAdd(search, hash, v, constraints, key, time, impactSum);
+                }
+            }
+            return checkAndAdd(search, hash, v, constraints, key, time, impactSum);
+        }
+
+        private boolean checkAndAdd(Search search, int hash, int v, int constraints, long[] key, float time, float impactSum) {
+            int slot = hash & mask;
+            while (hubs[slot]!=0 && (hashes[slot]!=hash || hubs[slot]!=v+1 || this.constraints[slot]!=constraints || hasKey(slot, key)==false)) {
+                slot = (slot+1) & mask;
+            }
+            if (hubs[slot]==0) {
+                if (stateCount>=maxSize && freeState<0) {
+                    return false;
+                }
+                hashes[slot] = hash;
+                hubs[slot] = v+1;
+                this.constraints[slot] = constraints;
+                System.arraycopy(key, 0, keys, slot*words, words);
+                firstStates[slot] = -1;
+                if (++keyCount*4 > hubs.length*3) {
+                    growKeys();
+                    return checkAndAdd(search, hash, v, constraints, key, time, impactSum);
+                }
+            }
+
+            int previous = -1;
+            for (int state = firstStates[slot]; state>=0; ) {
+                int next = nextStates[state];
+                if (times[state]<=time && impactSums[state]>=impactSum && (searches[state]==search || searches[state].isBefore(search))) {
+                    return true;
+                }
+                if (times[state]>=time && impactSums[state]<=impactSum && (searches[state]==search || search.isBefore(searches[state]))) {
+                    // every state it dominates is dominated by the new state too
+                    if (previous<0) {
+                        firstStates[slot] = next;
+                    } else {
+                        nextStates[previous] = next;
+                    }
+                    nextStates[state] = freeState;
+                    freeState = state;
+                } else {
+                    previous = state;
+                }
+                state = next;
+            }
+
+            int state;
+            if (freeState>=0) {
+                state = freeState;
+                freeState = nextStates[state];
+            } else if (stateCount<maxSize) {
+                if (stateCount==times.length) {
+                    growStates();
+                }
+                state = stateCount++;
+            } else {
+                return false;
+            }
+            times[state] = time;
+            impactSums[state] = impactSum;
+            searches[state] = search;
+            nextStates[state] = firstStates[slot];
+            firstStates[slot] = state;
+            return false;
+        }
+
+        private boolean hasKey(int slot, long[] key) {
+            for (int w = 0, base = slot*words; w < words; w++) {
+                if (keys[base+w]!=key[w]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void allocateKeys(int capacity) {
+            mask = capacity-1;
+            hashes = new int[capacity];
+            hubs = new int[capacity];
+            constraints = new int[capacity];
+            keys = new long[capacity*words];
+            firstStates = new int[capacity];
+        }
+
+        private void growKeys() {
+            int[] oldHashes = hashes;
+            int[] oldHubs = hubs;
+            int[] oldConstraints = constraints;
+            long[] oldKeys = keys;
+            int[] oldFirstStates = firstStates;
+            allocateKeys(oldHubs.length*2);
+            for (int i = 0; i < oldHubs.length; i++) {
+                if (oldHubs[i]!=0) {
+                    int slot = oldHashes[i] & mask;
+                    while (hubs[slot]!=0) {
+                        slot = (slot+1) & mask;
+                    }
+                    hashes[slot] = oldHashes[i];
+                    hubs[slot] = oldHubs[i];
+                    constraints[slot] = oldConstraints[i];
+                    System.arraycopy(oldKeys, i*words, keys, slot*words, words);
+                    firstStates[slot] = oldFirstStates[i];
+                }
+            }
+        }
+
+        private void growStates() {
+            int capacity = times.length*2;
+            times = Arrays.copyOf(times, capacity);
+            impactSums = Arrays.copyOf(impactSums, capacity);
+            searches = Arrays.copyOf(searches, capacity);
+            nextStates = Arrays.copyOf(nextStates, capacity);
+        }
+    }
+
+    // relative slack added to the optimistic bound so that float rounding of path sums never prunes a better path
+    private static final double BOUND_SLACK = 1e-4;
+
+    // max number of search states remembered, memoisation stops when it is reached
+    private static final int MAX_MEMO_SIZE = 1 << 20;
+
+    // number of state tables a parallel search spreads its states over, so that tasks rarely wait for a lock
+    private static final int MEMO_SEGMENT_BITS = 6;
+
+    // number of hubs at the beginning of the path for which parallel search forks a task per next hub
+    private static final int SPLIT_DEPTH = 2;
+
+    // a search checks whether the exact search has to give up every this many nodes, a power of 2
+    private static final int CUT_OFF_CHECK_INTERVAL = 1024;
+
+    /**
+     * Search holds the state of one depth first search over a part of the search tree.
+     * A search starts below a fixed prefix of the path and only sees the paths that begin with it.
+     */
+    private class Search {
+        final boolean isVisited[]; // array containing whether hub has been visited
+        final long[] visitedBits; // visited hubs as bitmask, used for memoisation
+        final long[] key; // reachable visited hubs of the current state, used to look up memo
+        final int[] curPath; // hubs currently in repair path
+        int curPathLength;
+        final int[] startPath; // hubs of the path up to the hub the search starts from
+        final StateTable[] memo; // states seen, shared by searches
+        final Result maxResult = new Result(); // repair path having the max impact among the paths of this search
+        final AtomicInteger bestImpactSum; // best impact sum found by any search, as float bits
+        long nodesExpanded; // hubs whose next hubs were traversed
+        long nodesPruned; // hubs and remaining next hubs skipped because they cannot beat the best path
+
+        /**
+         * Constructor
+         * @param prefix hubs of the path before the hub the search starts from
+         * @param v hub the search starts from
+         * @param memo
+         * @param bestImpactSum
+         */
+        Search(int[] prefix, int v, StateTable[] memo, AtomicInteger bestImpactSum) {
+            this.isVisited = new boolean[hubCount];
+            this.visitedBits = new long[words];
+            this.key = new long[words];
+            this.curPath = new int[hubCount];
+            this.startPath = Arrays.copyOf(prefix, prefix.length+1);
+            this.startPath[prefix.length] = v;
+            this.memo = memo;
+            this.bestImpactSum = bestImpactSum;
+            for (int hub : prefix) {
+                isVisited[hub] = true;
+                visitedBits[hub >> 6] |= 1L << hub;
+                curPath[curPathLength++] = hub;
+            }
+        }
+
+        /**
+         * Depth first search is used to traverse the faulty hubs by considering the constraints
+         * @param v current hub
+         * @param curHubImpactSum sum of impacts of hubs traversed till now
+         * @param curTime time spent at intermediate hubs till now
+         * @param constraints constraints of the path traversed till now
+         */
+        void dfs(int v, float curHubImpactSum, float curTime, int constraints) {
+
+            if (isCutOff) {
+                return;
+            }
+
+            curHubImpactSum += impact[v];
+
+            // mark v hub as visited
+            isVisited[v] = true;
+            visitedBits[v >> 6] |= 1L << v;
+
+            if (isDominated(v, constraints, curTime, curHubImpactSum)) {
+                nodesPruned++;
+                isVisited[v] = false;
+                visitedBits[v >> 6] &= ~(1L << v);
+                return;
+            }
+
+            // add v to current path
+            curPath[curPathLength++] = v;
+            nodesExpanded++;
+            if ((nodesExpanded & (CUT_OFF_CHECK_INTERVAL-1))==0) {
+                checkCutOff();
+            }
+
+            // highest impact sum that any path through v can reach
+            double pathImpactBound = ((double) curHubImpactSum + remainingImpactBound(isVisited, v, constraints, maxTime-curTime))*(1+BOUND_SLACK);
+
+            // traverse other hubs in list
+            for (int i = 1; i < hubCount; i++) {
+
+                if (i==endHubIndex) {
+                    // if hub is end hub then check if it is the best path
+
+                    if (curHubImpactSum>maxResult.maxHubImpactSum) {
+                        maxResult.maxHubImpactSum = curHubImpactSum;
+                        maxResult.maxImpactHubs = Arrays.copyOf(curPath, curPathLength);
+                        publish(bestImpactSum, curHubImpactSum);
+                    }
+                } else if (isVisited[i]==false) {
+
+                    // ignore remaining hubs if no path through them can beat the best path found till now
+                    // best path only grows, so once bound fails it fails for all remaining hubs
+                    // a path of another search is only beaten by a higher sum, equal sums are settled when results are merged
+                    if (pathImpactBound<=maxResult.maxHubImpactSum || pathImpactBound<Float.intBitsToFloat(bestImpactSum.get())) {
+                        nodesPruned++;
+                        if (endHubIndex>i) {
+                            // path ending at v still needs to be checked
+                            i = endHubIndex-1;
+                            continue;
+                        }
+                        break;
+                    }
+
+                    //ignore hub if maxTime exceeds
+                    if ((curTime+repairEstimate[i])>maxTime) {
+                        continue;
+                    }
+
+                    int newConstraints = nextConstraints(v, i, constraints);
+                    if (newConstraints==NOT_ALLOWED) {
+                        continue;
+                    }
+                    dfs(i, curHubImpactSum, curTime+repairEstimate[i], newConstraints);
+
+                }
+            }
+            // before getting removed from stack, bring curPath and isVisited to previous state
+            curPathLength--;
+            isVisited[v] = false;
+            visitedBits[v >> 6] &= ~(1L << v);
+        }
+
+        /**
+         * Add the node counts of this search to the counters of the planner
+         */
+        void report() {
+            nodesExpandedCounter.add(nodesExpanded);
+            nodesPrunedCounter.add(nodesPruned);
         }
 
-        Result(Result c) {
-            this.maxHubImpactSum = c.maxHubImpactSum;
-            this.maxImpactHubs = new ArrayList<>(c.maxImpactHubs);
+        /**
+         * Check if the current search state is dominated by a state explored before, otherwise remember it.
+         * Hubs are expanded in list order, so the earlier state found every path that can follow it,
+         * and each of them collects at least as much as the same path following the current state.
+         * @param v
+         * @param constraints
+         * @param curTime
+         * @param curHubImpactSum
+         * @return true if the state is dominated and need not be explored
+         */
+        private boolean isDominated(int v, int constraints, float curTime, float curHubImpactSum) {
+            boolean isXMonotonic = (constraints & X_MONOTONIC)!=0;
+            boolean isYMonotonic = (constraints & Y_MONOTONIC)!=0;
+            int hash = 31*v + constraints;
+            long[] column = sameX[v];
+            long[] row = sameY[v];
+            for (int w = 0; w < words; w++) {
+                long inLine = (isXMonotonic ? column[w] : 0) | (isYMonotonic ? row[w] : 0);
+                key[w] = visitedBits[w] & inLine;
+                hash = 31*hash + Long.hashCode(key[w]);
+            }
+            hash *= 0x9E3779B9;
+            StateTable table = memo[(hash >>> (32-MEMO_SEGMENT_BITS)) & (memo.length-1)];
+            return table.isDominated(this, hash, v, constraints, key, curTime, curHubImpactSum);
+        }
+
+        /**
+         * Check if the paths of this search come before the paths of the other search in list order
+         * @param other
+         * @return
+         */
+        boolean isBefore(Search other) {
+            for (int i = 0; i < startPath.length && i < other.startPath.length; i++) {
+                if (startPath[i]!=other.startPath[i]) {
+                    return startPath[i]<other.startPath[i];
+                }
+            }
+            return startPath.length<other.startPath.length;
+        }
+    }
+
+    /**
+     * SplitTask explores the paths that begin with a prefix in parallel. For the first SPLIT_DEPTH hubs of the
+     * path every next hub becomes a task of its own, below that a task runs a sequential Search.
+     */
+    private class SplitTask extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        final int v; // current hub
+        final int[] prefix; // hubs of the path before v
+        final float curHubImpactSum; // sum of impacts of hubs in prefix
+        final float curTime; // time spent at hubs of prefix
+        final int constraints;
+        final StateTable[] memo; // memo shared by the searches of all tasks
+        final AtomicInteger bestImpactSum; // best impact sum found by any task, as float bits
+
+        SplitTask(int v, int[] prefix, float curHubImpactSum, float curTime, int constraints,
+                  StateTable[] memo, AtomicInteger bestImpactSum) {
+            this.v = v;
+            this.prefix = prefix;
+            this.curHubImpactSum = curHubImpactSum;
+            this.curTime = curTime;
+            this.constraints = constraints;
+            this.memo = memo;
+            this.bestImpactSum = bestImpactSum;
+        }
+
+        @Override
+        protected Result compute() {
+            if (isCutOff) {
+                return new Result();
+            }
+            if (prefix.length>=SPLIT_DEPTH) {
+                Search search = new Search(prefix, v, memo, bestImpactSum);
+                search.dfs(v, curHubImpactSum, curTime, constraints);
+                search.report();
+                return search.maxResult;
+            }
+
+            float hubImpactSum = curHubImpactSum + impact[v];
+            int[] path = Arrays.copyOf(prefix, prefix.length+1);
+            path[prefix.length] = v;
+            boolean isVisited[] = new boolean[hubCount];
+            for (int hub : path) {
+                isVisited[hub] = true;
+            }
+            double pathImpactBound = ((double) hubImpactSum + remainingImpactBound(isVisited, v, constraints, maxTime-curTime))*(1+BOUND_SLACK);
+
+            // candidates in the order the sequential search meets them, null stands for the path ending at v
+            List<SplitTask> candidates = new ArrayList<>();
+            List<SplitTask> tasks = new ArrayList<>();
+            for (int i = 1; i < hubCount; i++) {
+                if (i==endHubIndex) {
+                    candidates.add(null);
+                    publish(bestImpactSum, hubImpactSum);
+                } else if (isVisited[i]==false) {
+                    if (pathImpactBound<Float.intBitsToFloat(bestImpactSum.get())) {
+                        nodesPrunedCounter.increment();
+                        continue;
+                    }
+                    if ((curTime+repairEstimate[i])>maxTime) {
+                        continue;
+                    }
+                    int newConstraints = nextConstraints(v, i, constraints);
+                    if (newConstraints==NOT_ALLOWED) {
+                        continue;
+                    }
+                    SplitTask task = new SplitTask(i, path, hubImpactSum, curTime+repairEstimate[i], newConstraints, memo, bestImpactSum);
+                    candidates.add(task);
+                    tasks.add(task);
+                }
+            }
+            nodesExpandedCounter.increment();
+            invokeAll(tasks);
+
+            // merge in the order of the sequential search, so a later path replaces the best only with a higher sum
+            Result maxResult = new Result();
+            for (SplitTask task : candidates) {
+                Result result;
+                if (task==null) {
+                    result = new Result();
+                    result.maxHubImpactSum = hubImpactSum;
+                    result.maxImpactHubs = path;
+                } else {
+                    result = task.join();
+                }
+                if (result.maxHubImpactSum>maxResult.maxHubImpactSum) {
+                    maxResult = result;
+                }
+            }
+            return maxResult;
         }
     }
 
     /**
      * internal attributes of RepairPlan class
      */
-    String startHubID;
-    String endHubID;
-    List<HubInfo> faultyHubsList; // all faulty hubs inside rectangle, first hub is the startHub in the list
-    Map<String, HubImpact> hubImpactMap; // map storing hubs and their impacts
+    private String startHubID;
+    private String endHubID;
+    private List<HubInfo> faultyHubsList; // all faulty hubs inside rectangle, first hub is the startHub in the list
+    private Map<String, HubImpact> hubImpactMap; // map storing hubs and their impacts
 
-    public List<HubImpact> getRepairPath(String startHubID, String endHubID, List<HubInfo> faultyHubsList, Map<String, HubImpact> hubImpactMap, float maxTime) {
+    // faulty hubs compiled for the search, indexed by position in faultyHubsList
+    private int hubCount;
+    private int[] x;
+    private int[] y;
+    private float[] repairEstimate;
+    private float[] impact; // impact of hub, 0 if hub has no impact
+    private HubImpact[] hubImpacts;
+    private int[] diagonalSide; // side of diagonal on which hub exists (-1, 0, 1)
+    private int endHubIndex; // index of end hub in faultyHubsList
+    private int xDir; // difference b/w end hub and start hub x-coordinate to represent x-direction in which we need to move to reach end hub
+    private int yDir; // difference b/w end hub and start hub y-coordinate to represent y-direction in which we need to move to reach end hub
+    private float maxTime; // max time allowed at intermediate hubs
+    private int[] boundOrder; // hubs in descending order of impact per hour of repair, used for bound
+    private int words; // longs in a bitmask of hubs
+    private long[][] sameX; // hubs with the same x as hub v as bitmask, shared by the hubs of a column
+    private long[][] sameY; // hubs with the same y as hub v as bitmask, shared by the hubs of a row
+    private Metrics.Counter nodesExpandedCounter; // counters of the planner, shared by all its searches
+    private Metrics.Counter nodesPrunedCounter;
+    private Metrics.Counter approximateSearchesCounter;
+    private Metrics.Counter approximateTimeoutsCounter;
+    private Metrics.Counter exactCutOffsCounter;
+    private long exactMaxNodes; // max number of nodes of the exact search of an approximate plan
+    private int beamWidth; // number of paths kept by beam search
+    private long deadlineNanos; // time after which approximate plan returns the best path found
+
+    // limits of the exact search of an approximate plan, none for getRepairPlan
+    private long maxNodes = Long.MAX_VALUE; // nodes after which the exact search gives up
+    private long cutOffNanos; // System.nanoTime after which the exact search gives up
+    private boolean isTimeLimited; // true if cutOffNanos is set
+    private final AtomicLong nodesSearched = new AtomicLong(); // nodes expanded by all searches, counted in intervals
+    private volatile boolean isCutOff; // true once the exact search gave up
+
+    /**
+     * Constructor of a planner, the state of a search lives in the instance created by getRepairPath
+     */
+    public RepairPlan() {
+        this(Metrics.DISABLED);
+    }
 
+    /**
+     * Constructor of a planner that counts the nodes its searches expand and prune into the given registry
+     * @param metrics
+     */
+    public RepairPlan(Metrics metrics) {
+        this(metrics, Constants.DEFAULT_REPAIR_PLAN_EXACT_MAX_NODES, Constants.DEFAULT_REPAIR_PLAN_BEAM_WIDTH,
+                Constants.DEFAULT_REPAIR_PLAN_DEADLINE_MILLIS);
+    }
+
+    /**
+     * Constructor of a planner with the settings of approximate plans
+     * @param metrics
+     * @param exactMaxNodes max estimated and actual number of nodes of the exact search of an approximate plan
+     * @param beamWidth number of paths kept by beam search
+     * @param deadlineMillis time after which approximate plan returns the best path found
+     */
+    public RepairPlan(Metrics metrics, long exactMaxNodes, int beamWidth, long deadlineMillis) {
+        if (exactMaxNodes<0 || beamWidth<=0 || deadlineMillis<=0) {
+            throw new IllegalArgumentException("Invalid approximate repair plan settings: " + exactMaxNodes + ", " + beamWidth + ", " + deadlineMillis);
+        }
+        this.exactMaxNodes = exactMaxNodes;
+        this.beamWidth = beamWidth;
+        this.deadlineNanos = deadlineMillis*1000000;
+        this.approximateSearchesCounter = metrics.counter("repairPlan.approximateSearches");
+        this.approximateTimeoutsCounter = metrics.counter("repairPlan.approximateTimeouts");
+        this.exactCutOffsCounter = metrics.counter("repairPlan.exactCutOffs");
+        this.nodesExpandedCounter = metrics.counter("repairPlan.nodesExpanded");
+        this.nodesPrunedCounter = metrics.counter("repairPlan.nodesPruned");
+        metrics.gauge("repairPlan.pruneRate", () -> {
+            long nodes = nodesExpandedCounter.get() + nodesPrunedCounter.get();
+            return nodes==0 ? 0 : (double) nodesPrunedCounter.get() / nodes;
+        });
+    }
+
+    /**
+     * Constructor of the instance that searches one repair path
+     * @param planner planner whose counters the search records into
+     * @param startHubID
+     * @param endHubID
+     * @param faultyHubsList
+     * @param hubImpactMap
+     * @param maxTime
+     */
+    private RepairPlan(RepairPlan planner, String startHubID, String endHubID, List<HubInfo> faultyHubsList, Map<String, HubImpact> hubImpactMap, float maxTime) {
+        this.nodesExpandedCounter = planner.nodesExpandedCounter;
+        this.nodesPrunedCounter = planner.nodesPrunedCounter;
+        this.approximateSearchesCounter = planner.approximateSearchesCounter;
+        this.approximateTimeoutsCounter = planner.approximateTimeoutsCounter;
+        this.exactCutOffsCounter = planner.exactCutOffsCounter;
+        this.exactMaxNodes = planner.exactMaxNodes;
+        this.beamWidth = planner.beamWidth;
+        this.deadlineNanos = planner.deadlineNanos;
         this.startHubID = startHubID;
         this.endHubID = endHubID;
         this.faultyHubsList = new ArrayList<>(faultyHubsList);
         this.hubImpactMap = new HashMap<>(hubImpactMap);
+        this.maxTime = maxTime;
+        prepareSearch();
+    }
 
-        boolean isVisited[] = new boolean[faultyHubsList.size()];
-        Result result =  new Result();
-        HubInfo startHubInfo = new HubInfo();
-        HubInfo endHubInfo = new HubInfo();
+    public List<HubImpact> getRepairPath(String startHubID, String endHubID, List<HubInfo> faultyHubsList, Map<String, HubImpact> hubImpactMap, float maxTime) {
+        return getRepairPath(startHubID, endHubID, faultyHubsList, hubImpactMap, maxTime, null);
+    }
 
-        // get start and end hub info
-        for (HubInfo hubInfo : faultyHubsList) {
-            if (hubInfo.getHubID().equals(startHubID)) {
-                startHubInfo = hubInfo;
-            } else if (hubInfo.getHubID().equals(endHubID)) {
-                endHubInfo = hubInfo;
+    /**
+     * Find the repair path, searching in parallel if a pool is given.
+     * Parallel search returns the same path as sequential search.
+     * @param startHubID
+     * @param endHubID
+     * @param faultyHubsList
+     * @param hubImpactMap
+     * @param maxTime
+     * @param pool pool that runs the search tasks, null to search in the calling thread
+     * @return
+     */
+    public List<HubImpact> getRepairPath(String startHubID, String endHubID, List<HubInfo> faultyHubsList, Map<String, HubImpact> hubImpactMap, float maxTime, ForkJoinPool pool) {
+        return getRepairPlan(startHubID, endHubID, faultyHubsList, hubImpactMap, maxTime, pool).getRepairPath();
+    }
+
+    /**
+     * Find the best repair path and its impact sum, searching in parallel if a pool is given
+     * @param startHubID
+     * @param endHubID
+     * @param faultyHubsList
+     * @param hubImpactMap
+     * @param maxTime
+     * @param pool pool that runs the search tasks, null to search in the calling thread
+     * @return
+     */
+    public RepairPlanResult getRepairPlan(String startHubID, String endHubID, List<HubInfo> faultyHubsList, Map<String, HubImpact> hubImpactMap, float maxTime, ForkJoinPool pool) {
+        return new RepairPlan(this, startHubID, endHubID, faultyHubsList, hubImpactMap, maxTime).search(pool);
+    }
+
+    /**
+     * Find a repair path within the deadline of the planner. If the exact search is estimated to need at most
+     * exactMaxNodes nodes the best path is searched for up to half of the deadline, otherwise or if the search
+     * gives up beam search finds a path whose distance from the best path is bounded by the gap of the result.
+     * @param startHubID
+     * @param endHubID
+     * @param faultyHubsList
+     * @param hubImpactMap
+     * @param maxTime
+     * @param pool pool that runs the exact search tasks, null to search in the calling thread
+     * @return
+     */
+    public RepairPlanResult getApproximateRepairPlan(String startHubID, String endHubID, List<HubInfo> faultyHubsList, Map<String, HubImpact> hubImpactMap, float maxTime, ForkJoinPool pool) {
+        long deadline = System.nanoTime() + deadlineNanos;
+        RepairPlan plan = new RepairPlan(this, startHubID, endHubID, faultyHubsList, hubImpactMap, maxTime);
+        if (plan.estimatedSearchSize()<=exactMaxNodes) {
+            // exact search leaves half of the deadline to beam search in case it gives up
+            plan.maxNodes = exactMaxNodes;
+            plan.cutOffNanos = deadline - deadlineNanos/2;
+            plan.isTimeLimited = true;
+            RepairPlanResult result = plan.search(pool);
+            if (result!=null) {
+                return result;
             }
+            exactCutOffsCounter.increment();
         }
-        int diffX = endHubInfo.getLocationX()-startHubInfo.getLocationX();
-        int diffY = endHubInfo.getLocationY()-startHubInfo.getLocationY();
+        return plan.beamSearch(deadline);
+    }
 
-        // find direction between start and end hub
-        Value xDir = Value.getValue(diffX);
-        Value yDir = Value.getValue(diffY);
+    /**
+     * Search the repair path over the hubs compiled by the constructor
+     * @param pool pool that runs the search tasks, null to search in the calling thread
+     * @return null if the search gave up at maxNodes nodes or at cutOffNanos
+     */
+    private RepairPlanResult search(ForkJoinPool pool) {
+        prepareMemo();
 
          /*
          initialize constrains
          initially:
-         maxTime will be equal to maxTime and will never change
          isXMonotonic and isYMonotonic will be true
-         xDir and yDir will never change
          sideOfPreviousNonDiagonalPoint will be 0 as start hub lies on diagonal
          isDiagCrossed will be false
           */
-        Constraints constraints = new Constraints(maxTime, true, true, xDir, yDir, Value.ZERO, false);
-
-        // get diagonal line constants from start and end points
-        Point startPoint = new Point(startHubInfo.getLocationX(), startHubInfo.getLocationY());
-        Point endPoint = new Point(endHubInfo.getLocationX(), endHubInfo.getLocationY());
-        Line line = new Line(startPoint, endPoint);
+        int constraints = X_MONOTONIC | Y_MONOTONIC | (1 << SIDE_SHIFT);
 
         // call depth first search on the start hub
-        dfs(0, isVisited, 0, 0, result, new ArrayList<>(), constraints, line);
+        AtomicInteger bestImpactSum = new AtomicInteger(Float.floatToIntBits(0));
+        Result result;
+        if (pool==null) {
+            Search search = new Search(new int[0], 0, new StateTable[] {new StateTable(false, MAX_MEMO_SIZE)}, bestImpactSum);
+            search.dfs(0, 0, 0, constraints);
+            search.report();
+            result = search.maxResult;
+        } else {
+            StateTable[] memo = new StateTable[1 << MEMO_SEGMENT_BITS];
+            for (int i = 0; i < memo.length; i++) {
+                memo[i] = new StateTable(true, MAX_MEMO_SIZE >> MEMO_SEGMENT_BITS);
+            }
+            result = pool.invoke(new SplitTask(0, new int[0], 0, 0, constraints, memo, bestImpactSum));
+        }
+        if (isCutOff) {
+            return null;
+        }
 
         // return the final repair order list
+        List<HubImpact> repairOrderList = repairOrderList(result.maxImpactHubs);
+        double impactSum = impactSum(repairOrderList);
+        return new RepairPlanResult(repairOrderList, impactSum, impactSum, true);
+    }
+
+    /**
+     * Search a repair path with beam search until all paths end or the deadline passes
+     * @param deadline System.nanoTime at which the best path found is returned
+     * @return
+     */
+    private RepairPlanResult beamSearch(long deadline) {
+        approximateSearchesCounter.increment();
+
+        // impact per hour of the hub that collects most, bound order starts with it
+        double maxImpactRate = 0;
+        for (int i : boundOrder) {
+            double impactRate = (double) impact[i]/repairEstimate[i];
+            if (Double.isInfinite(impactRate)==false) {
+                maxImpactRate = impactRate;
+                break;
+            }
+        }
+
+        // the path of start hub only is a path too, every path kept can go on to the end hub
+        long[] startVisited = new long[(hubCount+63)/64];
+        startVisited[0] = 1L;
+        BeamState best = new BeamState(null, 0, startVisited, impact[0], 0, X_MONOTONIC | Y_MONOTONIC | (1 << SIDE_SHIFT), 0);
+        List<BeamState> beam = new ArrayList<>();
+        beam.add(best);
+        long nodesExpanded = 0;
+        long nodesPruned = 0;
+        boolean timedOut = false;
+        while (beam.isEmpty()==false && timedOut==false) {
+            // paths that visit the same hubs and end at the same hub with the same constraints are kept once
+            Map<SearchState, BeamState> next = new LinkedHashMap<>();
+            for (BeamState state : beam) {
+                if (System.nanoTime()-deadline>=0) {
+                    timedOut = true;
+                    break;
+                }
+                nodesExpanded++;
+                for (int i = 1; i < hubCount; i++) {
+                    if (i==endHubIndex || (state.visited[i >> 6] & (1L << i))!=0) {
+                        continue;
+                    }
+                    float time = state.time + repairEstimate[i];
+                    if (time>maxTime) {
+                        continue;
+                    }
+                    int constraints = nextConstraints(state.v, i, state.constraints);
+                    if (constraints==NOT_ALLOWED) {
+                        continue;
+                    }
+                    long[] visited = state.visited.clone();
+                    visited[i >> 6] |= 1L << i;
+                    float impactSum = state.impactSum + impact[i];
+                    BeamState child = new BeamState(state, i, visited, impactSum, time, constraints,
+                            impactSum + (maxTime-time)*maxImpactRate);
+                    if (child.impactSum>best.impactSum) {
+                        best = child;
+                    }
+                    next.merge(new SearchState().set(visited, i, constraints, time), child,
+                            (previous, current) -> current.impactSum>previous.impactSum ? current : previous);
+                }
+            }
+
+            if (timedOut) {
+                break;
+            }
+
+            // keep the paths that look best, the sort is stable so ties keep the order of list
+            beam = new ArrayList<>(next.values());
+            beam.sort((s1, s2) -> Double.compare(s2.score, s1.score));
+            if (beam.size()>beamWidth) {
+                nodesPruned += beam.size()-beamWidth;
+                beam = beam.subList(0, beamWidth);
+            }
+        }
+        nodesExpandedCounter.add(nodesExpanded);
+        nodesPrunedCounter.add(nodesPruned);
+        if (timedOut) {
+            approximateTimeoutsCounter.increment();
+        }
+
+        // hubs of best path from start hub on
+        int pathLength = 0;
+        for (BeamState state = best; state!=null; state = state.previous) {
+            pathLength++;
+        }
+        int[] path = new int[pathLength];
+        for (BeamState state = best; state!=null; state = state.previous) {
+            path[--pathLength] = state.v;
+        }
+        List<HubImpact> repairOrderList = repairOrderList(path);
+        double impactSum = impactSum(repairOrderList);
+
+        // no path collects more than start hub, end hub and the fractional knapsack bound of the hubs between
+        boolean isVisited[] = new boolean[hubCount];
+        isVisited[0] = true;
+        HubImpact endHubImpact = hubImpactMap.get(endHubID);
+        double upperBound = impact[0] + remainingImpactBound(isVisited, 0, X_MONOTONIC | Y_MONOTONIC, maxTime)
+                + (endHubImpact==null ? 0 : endHubImpact.getImpact());
+        return new RepairPlanResult(repairOrderList, impactSum, Math.max(upperBound, impactSum), false);
+    }
+
+    /**
+     * Count the nodes of a search and give up the exact search if it reached maxNodes nodes or cutOffNanos.
+     * Searches count their nodes in intervals, so maxNodes is reached to within an interval per search.
+     */
+    private void checkCutOff() {
+        if (nodesSearched.addAndGet(CUT_OFF_CHECK_INTERVAL)>maxNodes || (isTimeLimited && System.nanoTime()-cutOffNanos>=0)) {
+            isCutOff = true;
+        }
+    }
+
+    /**
+     * Estimate the number of nodes of the exact search by the number of states the dominance check keeps apart:
+     * for every hub the sets of visited hubs in line with it, of no more hubs than fit into max time
+     * @return
+     */
+    private double estimatedSearchSize() {
+        prepareMemo();
+        float[] estimates = new float[hubCount];
+        int count = 0;
+        for (int i = 1; i < hubCount; i++) {
+            if (i!=endHubIndex) {
+                estimates[count++] = repairEstimate[i];
+            }
+        }
+        Arrays.sort(estimates, 0, count);
+
+        // no set of hubs that fits has more hubs than the cheapest hubs that fit
+        int maxSetSize = 0;
+        float time = 0;
+        while (maxSetSize<count && time+estimates[maxSetSize]<=maxTime) {
+            time += estimates[maxSetSize++];
+        }
+
+        double size = 0;
+        for (int v = 0; v < hubCount; v++) {
+            int inLine = -1; // v itself is in both lines
+            for (int w = 0; w < words; w++) {
+                inLine += Long.bitCount(sameX[v][w]) + Long.bitCount(sameY[v][w]);
+            }
+            double sets = 1;
+            for (int k = 0; k <= Math.min(maxSetSize, inLine); k++) {
+                size += sets;
+                sets = sets*(inLine-k)/(k+1);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the hubs of a path followed by the end hub
+     * @param path indexes of hubs in faultyHubsList, from start hub on
+     * @return
+     */
+    private List<HubImpact> repairOrderList(int[] path) {
         List<HubImpact> repairOrderList = new ArrayList<>();
-        repairOrderList.addAll(result.maxImpactHubs);
+        for (int hub : path) {
+            repairOrderList.add(hubImpacts[hub]);
+        }
         repairOrderList.add(hubImpactMap.get(endHubID));
         return repairOrderList;
     }
 
     /**
-     * Depth first search is used to traverse the faultyHubsList by considering the constraints
-     * @param v current hub
-     * @param isVisited array containing whether hub has been visited
-     * @param curHubImpactSum sum of impacts of hubs traversed till now
-     * @param curTime time spent at intermediate hubs till now
-     * @param maxResult Result storing repair path having the max impact among all the traversed paths
-     * @param curRepairOrderList hubs currently in repair path
-     * @param constraints constraints of the problem
-     * @param diagonal Line representing diagonal of rectangle
+     * Get sum of impacts of hubs
+     * @param hubs
+     * @return
      */
-    private void dfs(int v, boolean isVisited[], float curHubImpactSum, float curTime, Result maxResult, List<HubImpact> curRepairOrderList, Constraints constraints, Line diagonal) {
-
-        // mark v hub as visited
-        isVisited[v] = true;
-        String curHubID = faultyHubsList.get(v).getHubID();
-        // add v to current hub list
-        curHubImpactSum += hubImpactMap.get(curHubID).getImpact();
-        curRepairOrderList.add(hubImpactMap.get(curHubID));
-        Point pointV = new Point(faultyHubsList.get(v).getLocationX(), faultyHubsList.get(v).getLocationY());
-        // determine on which side of diagonal hub v exists
-        Value vSide = getPointSideOnLine(diagonal, pointV);
-
-        // traverse other hubs in list
-        for (int i = 1; i < faultyHubsList.size(); i++) {
-
-            if (faultyHubsList.get(i).getHubID().equals(endHubID)) {
-                // if hub is end hub then check if it is the best path
-
-                if (curHubImpactSum>maxResult.maxHubImpactSum) {
-                    maxResult.maxHubImpactSum = curHubImpactSum;
-                    maxResult.maxImpactHubs = new ArrayList<>(curRepairOrderList);
-                }
-            } else if (isVisited[i]==false) {
+    private static double impactSum(List<HubImpact> hubs) {
+        double impactSum = 0;
+        for (HubImpact hub : hubs) {
+            if (hub!=null) {
+                impactSum += hub.getImpact();
+            }
+        }
+        return impactSum;
+    }
 
-                //ignore hub if maxTime exceeds
-                if ((curTime+faultyHubsList.get(i).getRepairEstimate())>constraints.maxTime) {
-                    continue;
-                }
+    /**
+     * Copy faulty hubs into arrays and set up the data used to prune the search
+     */
+    private void prepareSearch() {
+        hubCount = faultyHubsList.size();
+        x = new int[hubCount];
+        y = new int[hubCount];
+        repairEstimate = new float[hubCount];
+        impact = new float[hubCount];
+        hubImpacts = new HubImpact[hubCount];
+        diagonalSide = new int[hubCount];
+        endHubIndex = -1;
 
-                Point pointI = new Point(faultyHubsList.get(i).getLocationX(), faultyHubsList.get(i).getLocationY());
+        HubInfo startHubInfo = new HubInfo();
+        HubInfo endHubInfo = new HubInfo();
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < hubCount; i++) {
+            HubInfo hubInfo = faultyHubsList.get(i);
+            x[i] = hubInfo.getLocationX();
+            y[i] = hubInfo.getLocationY();
+            repairEstimate[i] = hubInfo.getRepairEstimate();
+            hubImpacts[i] = hubImpactMap.get(hubInfo.getHubID());
+            impact[i] = hubImpacts[i]==null ? 0 : hubImpacts[i].getImpact();
 
-                boolean isXMonotonicNow;
-                boolean isYMonotonicNow;
+            // get start and end hub info
+            if (hubInfo.getHubID().equals(startHubID)) {
+                startHubInfo = hubInfo;
+            } else if (hubInfo.getHubID().equals(endHubID)) {
+                endHubInfo = hubInfo;
+            }
+            if (hubInfo.getHubID().equals(endHubID)) {
+                endHubIndex = i;
+            } else if (i>0) {
+                candidates.add(i);
+            }
+        }
 
-                //check for xMonotonic
-                if (constraints.isXMonotonic==false) {
-                    // path is already not xMonotonic
-                    isXMonotonicNow = false;
-                } else {
-                    // path is xMonotonic till before traversing i
+        // find direction between start and end hub
+        xDir = Integer.signum(endHubInfo.getLocationX()-startHubInfo.getLocationX());
+        yDir = Integer.signum(endHubInfo.getLocationY()-startHubInfo.getLocationY());
 
-                    Value xCompare = Value.getValue(pointI.getX()-pointV.getX());
-                    if (xCompare.equals(Value.ZERO)) {
-                        // hubs v and i have same x, so xMonotonic property remains as before
-                        isXMonotonicNow = constraints.isXMonotonic;
-                    } else {
-                        // xMonotonic depends on if path from v to i is in xDir or not
-                        isXMonotonicNow = xCompare.equals(constraints.xDir);
-                    }
-                }
+        // get diagonal line constants from start and end points
+        Point startPoint = new Point(startHubInfo.getLocationX(), startHubInfo.getLocationY());
+        Point endPoint = new Point(endHubInfo.getLocationX(), endHubInfo.getLocationY());
+        Line diagonal = new Line(startPoint, endPoint);
+        for (int i = 0; i < hubCount; i++) {
+            diagonalSide[i] = getPointSideOnLine(diagonal, x[i], y[i]);
+        }
 
-                //check for yMonotonic
-                if (constraints.isYMonotonic==false) {
-                    // path is already not yMonotonic
-                    isYMonotonicNow = false;
-                } else {
-                    // path is yMonotonic till before traversing i
-                    Value yCompare = Value.getValue(pointI.getY()-pointV.getY());
-                    if (yCompare.equals(Value.ZERO)) {
-                        // hubs v and i have same y, so yMonotonic property remains as before
-                        isYMonotonicNow = constraints.isYMonotonic;
-                    } else {
-                        // xMonotonic depends on if path from v to i is in xDir or not
-                        isYMonotonicNow = yCompare.equals(constraints.yDir);
-                    }
-                }
+        words = (hubCount+63)/64;
 
-                // ignore hub i if both property fail
-                if (isXMonotonicNow==false && isYMonotonicNow==false) {
-                    continue;
-                }
+        // order hubs by impact collected per hour of repair, which gives the fractional knapsack bound
+        candidates.sort((i, j) -> Double.compare(
+                (double) impact[j]/repairEstimate[j],
+                (double) impact[i]/repairEstimate[i]));
+        boundOrder = new int[candidates.size()];
+        for (int i = 0; i < boundOrder.length; i++) {
+            boundOrder[i] = candidates.get(i);
+        }
+    }
 
-                // determine on which side of diagonal hub i exists
-                Value iSide = getPointSideOnLine(diagonal, pointI);
-                boolean willPathCrossDiagNow = false;
-
-                // check for diagonal constraint
-                //is diagonal crossing now?
-
-                if (iSide.equals(Value.ZERO)==false && iSide.equals(vSide)==false) {
-                    // hub i does not lie on diagonal and hubs i and v have different values
-                    // so, diagonal may get crossed
-                    if (vSide.equals(Value.ZERO)) {
-                        // hub v lies on diagonal
-                        // so diagonal will be crossed only if the immediate previous non-diagonal hub traversed was on opposite side to hub i
-                        if (constraints.sideOfPreviousNonDiagonalPoint.equals(Value.ZERO)==false && constraints.sideOfPreviousNonDiagonalPoint.equals(iSide) == false) {
-                                willPathCrossDiagNow = true;
-                        }
-                    } else {
-                        // hubs i and v lie on different side of diagonal
-                        willPathCrossDiagNow = true;
-                    }
-                }
+    /**
+     * Find the hubs in line with every hub, the only visited hubs a monotonic path can still reach from it,
+     * once per search instance
+     */
+    private void prepareMemo() {
+        if (sameX!=null) {
+            return;
+        }
+        sameX = inLine(x);
+        sameY = inLine(y);
+    }
 
-                // ignore hub if causes the diagonal to be crossed again
-                if (constraints.isDiagCrossed && willPathCrossDiagNow) {
-                    continue;
-                }
+    /**
+     * Group hubs by coordinate
+     * @param coordinates coordinate of every hub
+     * @return bitmask of the hubs with the same coordinate as hub v at index v
+     */
+    private long[][] inLine(int[] coordinates) {
+        Map<Integer, long[]> lines = new HashMap<>();
+        long[][] inLine = new long[hubCount][];
+        for (int i = 0; i < hubCount; i++) {
+            long[] line = lines.computeIfAbsent(coordinates[i], coordinate -> new long[words]);
+            line[i >> 6] |= 1L << i;
+            inLine[i] = line;
+        }
+        return inLine;
+    }
 
-                boolean isDiagCrossedNow = willPathCrossDiagNow || constraints.isDiagCrossed;
+    /**
+     * Optimistic bound on the impact that can be added to the current path within the remaining time.
+     * Only hubs ahead of the current hub in a direction the path is still monotonic in are counted, the order
+     * among them and the diagonal constraint are ignored and the last hub may be repaired partially,
+     * so no path can collect more impact than this.
+     * @param isVisited
+     * @param v current hub
+     * @param constraints constraints of the path till now
+     * @param remainingTime
+     * @return
+     */
+    private double remainingImpactBound(boolean isVisited[], int v, int constraints, float remainingTime) {
+        boolean isXMonotonic = (constraints & X_MONOTONIC)!=0;
+        boolean isYMonotonic = (constraints & Y_MONOTONIC)!=0;
+        double bound = 0;
+        double capacity = remainingTime;
+        for (int i : boundOrder) {
+            if (isVisited[i]) {
+                continue;
+            }
+            if ((isXMonotonic==false || isAhead(x[v], x[i], xDir)==false) && (isYMonotonic==false || isAhead(y[v], y[i], yDir)==false)) {
+                // hub cannot follow v without breaking both monotonic constraints
+                continue;
+            }
+            if (repairEstimate[i]>remainingTime) {
+                // hub cannot be repaired within remaining time
+                continue;
+            }
+            if (repairEstimate[i]<=capacity) {
+                bound += impact[i];
+                capacity -= repairEstimate[i];
+            } else {
+                bound += impact[i]*(capacity/repairEstimate[i]);
+                break;
+            }
+        }
+        return bound;
+    }
 
-                Value sideOfPreviousNonDiagonalPointNow;
+    /**
+     * Check if a coordinate can follow another one on a path monotonic in the given direction
+     * @param from
+     * @param to
+     * @param dir -1, 0 or 1, with 0 only the same coordinate follows
+     * @return
+     */
+    private static boolean isAhead(int from, int to, int dir) {
+        return dir==0 ? to==from : Integer.signum(to-from)!=-dir;
+    }
 
-                if (iSide.equals(Value.ZERO)) {
-                    // if hub i lies on diagonal, keep value as before
-                    sideOfPreviousNonDiagonalPointNow = constraints.sideOfPreviousNonDiagonalPoint;
-                } else {
-                    // update to side of hub i
-                    sideOfPreviousNonDiagonalPointNow = iSide;
-                }
+    /**
+     * Raise the best impact sum shared by all searches to the given sum if it is higher.
+     * Impact sums are never negative, so float bits compare in the same order as the floats.
+     * @param bestImpactSum
+     * @param impactSum
+     */
+    private static void publish(AtomicInteger bestImpactSum, float impactSum) {
+        bestImpactSum.accumulateAndGet(Float.floatToIntBits(impactSum), Math::max);
+    }
+
+    /**
+     * Find the constraints after moving from hub v to hub i
+     * @param v current hub
+     * @param i next hub
+     * @param constraints constraints before moving to hub i
+     * @return new constraints, or NOT_ALLOWED if moving to hub i breaks the constraints
+     */
+    private int nextConstraints(int v, int i, int constraints) {
+        boolean isXMonotonicNow = (constraints & X_MONOTONIC)!=0;
+        boolean isYMonotonicNow = (constraints & Y_MONOTONIC)!=0;
+        boolean isDiagCrossed = (constraints & DIAG_CROSSED)!=0;
+        int sideOfPreviousNonDiagonalPoint = (constraints >> SIDE_SHIFT)-1;
 
-                // setup new constraints before recursive call to the hub i
-                // constraints maxTime, xDir, yDir always remain same as set in the beginning
-                Constraints newConstraints = new Constraints(constraints.maxTime, isXMonotonicNow, isYMonotonicNow, constraints.xDir, constraints.yDir, sideOfPreviousNonDiagonalPointNow, isDiagCrossedNow);
-                dfs(i, isVisited, curHubImpactSum, curTime+faultyHubsList.get(i).getRepairEstimate(), maxResult, curRepairOrderList, newConstraints, diagonal);
+        //check for xMonotonic
+        if (isXMonotonicNow) {
+            // path is xMonotonic till before traversing i
+            int xCompare = Integer.signum(x[i]-x[v]);
+            if (xCompare!=0) {
+                // xMonotonic depends on if path from v to i is in xDir or not
+                // if hubs v and i have same x, xMonotonic property remains as before
+                isXMonotonicNow = xCompare==xDir;
+            }
+        }
 
+        //check for yMonotonic
+        if (isYMonotonicNow) {
+            // path is yMonotonic till before traversing i
+            int yCompare = Integer.signum(y[i]-y[v]);
+            if (yCompare!=0) {
+                // yMonotonic depends on if path from v to i is in yDir or not
+                // if hubs v and i have same y, yMonotonic property remains as before
+                isYMonotonicNow = yCompare==yDir;
             }
         }
-        // before getting removed from stack, bring curRepairOrderList and isVisited to previous state
-        curRepairOrderList.remove(curRepairOrderList.size()-1);
-        isVisited[v] = false;
+
+        // ignore hub i if both property fail
+        if (isXMonotonicNow==false && isYMonotonicNow==false) {
+            return NOT_ALLOWED;
+        }
+
+        int vSide = diagonalSide[v];
+        int iSide = diagonalSide[i];
+        boolean willPathCrossDiagNow = false;
+
+        // check for diagonal constraint
+        //is diagonal crossing now?
+
+        if (iSide!=0 && iSide!=vSide) {
+            // hub i does not lie on diagonal and hubs i and v have different values
+            // so, diagonal may get crossed
+            if (vSide==0) {
+                // hub v lies on diagonal
+                // so diagonal will be crossed only if the immediate previous non-diagonal hub traversed was on opposite side to hub i
+                if (sideOfPreviousNonDiagonalPoint!=0 && sideOfPreviousNonDiagonalPoint!=iSide) {
+                    willPathCrossDiagNow = true;
+                }
+            } else {
+                // hubs i and v lie on different side of diagonal
+                willPathCrossDiagNow = true;
+            }
+        }
+
+        // ignore hub if causes the diagonal to be crossed again
+        if (isDiagCrossed && willPathCrossDiagNow) {
+            return NOT_ALLOWED;
+        }
+
+        // if hub i lies on diagonal, keep side as before, otherwise update to side of hub i
+        int sideOfPreviousNonDiagonalPointNow = iSide==0 ? sideOfPreviousNonDiagonalPoint : iSide;
+
+        return (isXMonotonicNow ? X_MONOTONIC : 0)
+                | (isYMonotonicNow ? Y_MONOTONIC : 0)
+                | (willPathCrossDiagNow || isDiagCrossed ? DIAG_CROSSED : 0)
+                | ((sideOfPreviousNonDiagonalPointNow+1) << SIDE_SHIFT);
     }
 
     /**
      * Find on which side of line does point exists
      * @param line
-     * @param p
-     * @return Value (NEGATIVE, ZERO, POSITIVE)
+     * @param x
+     * @param y
+     * @return -1, 0 or 1
      */
-    private Value getPointSideOnLine(Line line, Point p) {
-        int res = line.a* p.getX() + line.b* p.getY() - line.c;
-        return Value.getValue(res);
+    private int getPointSideOnLine(Line line, int x, int y) {
+        int res = line.a* x + line.b* y - line.c;
+        return Integer.signum(res);
     }
 }
@@ -0,0 +1,70 @@
+import java.util.List;
+
+/**
+ * RepairPlanResult contains setters/getters of a repair plan together with how far it can be from the best plan:
+ * the impact collected by the plan and an upper bound on the impact that any plan can collect
+ */
+
+public class RepairPlanResult {
+
+    // internal attributes of the class
+    private List<HubImpact> repairPath;
+    private double impactSum;
+    private double upperBound;
+    private boolean exact;
+
+    /**
+     * Constructor with parameters
+     * @param repairPath hubs to repair in order, from start hub to end hub
+     * @param impactSum sum of impacts of the hubs of the plan
+     * @param upperBound no plan collects more impact than this
+     * @param exact true if the plan was found by exact search, then upper bound is the impact sum
+     */
+    public RepairPlanResult(List<HubImpact> repairPath, double impactSum, double upperBound, boolean exact) {
+        this.repairPath = repairPath;
+        this.impactSum = impactSum;
+        this.upperBound = upperBound;
+        this.exact = exact;
+    }
+
+    /**
+     * Get the part of the upper bound that the plan may miss
+     * @return 0 for a plan known to be the best, at most 1
+     */
+    public double getGap() {
+        return upperBound<=0 ? 0 : Math.max(0, (upperBound-impactSum)/upperBound);
+    }
+
+    // Getters and Setters
+    public List<HubImpact> getRepairPath() {
+        return repairPath;
+    }
+
+    public void setRepairPath(List<HubImpact> repairPath) {
+        this.repairPath = repairPath;
+    }
+
+    public double getImpactSum() {
+        return impactSum;
+    }
+
+    public void setImpactSum(double impactSum) {
+        this.impactSum = impactSum;
+    }
+
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    public void setUpperBound(double upperBound) {
+        this.upperBound = upperBound;
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    public void setExact(boolean exact) {
+        this.exact = exact;
+    }
+}
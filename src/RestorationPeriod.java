@@ -0,0 +1,71 @@
+/**
+ * RestorationPeriod contains setters/getters of the hubs that came back in service and the people
+ * who regained service in a period of wall clock time, and their totals up to the end of the period
+ */
+
+public class RestorationPeriod {
+
+    // internal attributes of the class
+    private long periodStart;
+    private int restorations;
+    private int peopleRestored;
+    private int cumulativeRestorations;
+    private int cumulativePeopleRestored;
+
+    /**
+     * Constructor with parameters
+     * @param periodStart start of the period in milliseconds since epoch
+     * @param restorations number of hubs that came back in service in the period
+     * @param peopleRestored number of people who regained service in the period
+     * @param cumulativeRestorations number of hubs that came back in service up to the end of the period
+     * @param cumulativePeopleRestored number of people who regained service up to the end of the period
+     */
+    public RestorationPeriod(long periodStart, int restorations, int peopleRestored, int cumulativeRestorations, int cumulativePeopleRestored) {
+        this.periodStart = periodStart;
+        this.restorations = restorations;
+        this.peopleRestored = peopleRestored;
+        this.cumulativeRestorations = cumulativeRestorations;
+        this.cumulativePeopleRestored = cumulativePeopleRestored;
+    }
+
+    // Getters and Setters
+    public long getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(long periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public int getRestorations() {
+        return restorations;
+    }
+
+    public void setRestorations(int restorations) {
+        this.restorations = restorations;
+    }
+
+    public int getPeopleRestored() {
+        return peopleRestored;
+    }
+
+    public void setPeopleRestored(int peopleRestored) {
+        this.peopleRestored = peopleRestored;
+    }
+
+    public int getCumulativeRestorations() {
+        return cumulativeRestorations;
+    }
+
+    public void setCumulativeRestorations(int cumulativeRestorations) {
+        this.cumulativeRestorations = cumulativeRestorations;
+    }
+
+    public int getCumulativePeopleRestored() {
+        return cumulativePeopleRestored;
+    }
+
+    public void setCumulativePeopleRestored(int cumulativePeopleRestored) {
+        this.cumulativePeopleRestored = cumulativePeopleRestored;
+    }
+}
@@ -0,0 +1,57 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RowMapper turns the current row of a result set into a value. Mappers read columns by their position in the
+ * select list, which Db documents for every query as "Columns:", with the getter of the column type, so that no
+ * number is read as a string and no column name is looked up per row.
+ * A mapper that fills state it already holds returns null.
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+
+    /**
+     * Map the current row
+     * @param resultSet
+     * @return
+     * @throws SQLException
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Run query and collect the values of all its rows
+     * @param statement statement with all parameters set
+     * @param mapper
+     * @return
+     * @throws SQLException
+     */
+    static <T> List<T> list(PreparedStatement statement, RowMapper<T> mapper) throws SQLException {
+        List<T> values = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                values.add(mapper.mapRow(resultSet));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Run query and map its rows one at a time without collecting them. Rows are fetched fetchSize at a time,
+     * so that a scan of a large table holds one batch of rows if the driver fetches with a cursor
+     * @param statement statement with all parameters set
+     * @param fetchSize number of rows fetched per round trip to db, 0 to leave it to the driver
+     * @param mapper
+     * @throws SQLException
+     */
+    static void forEach(PreparedStatement statement, int fetchSize, RowMapper<?> mapper) throws SQLException {
+        statement.setFetchSize(fetchSize);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                mapper.mapRow(resultSet);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * SpatialIndex finds the items that lie within a manhattan distance of a point.
+ * Items are stored by rotated coordinates u=x+y and v=x-y. The points within manhattan distance d of (x, y)
+ * are exactly the points with |u-u0|<=d and |v-v0|<=d, so a query reads a range of u and inside it a range of v
+ * instead of testing every item.
+ */
+class SpatialIndex<T> {
+
+    // internal attributes of the class
+    private final TreeMap<Long, TreeMap<Long, Set<T>>> items = new TreeMap<>(); // u -> v -> items at (u, v)
+    private int size;
+
+    /**
+     * Add item at location (x, y)
+     * @param item
+     * @param x
+     * @param y
+     */
+    void add(T item, int x, int y) {
+        long u = (long) x + y;
+        long v = (long) x - y;
+        TreeMap<Long, Set<T>> column = items.get(u);
+        if (column==null) {
+            column = new TreeMap<>();
+            items.put(u, column);
+        }
+        Set<T> point = column.get(v);
+        if (point==null) {
+            point = new LinkedHashSet<>();
+            column.put(v, point);
+        }
+        if (point.add(item)) {
+            size++;
+        }
+    }
+
+    /**
+     * Remove item from location (x, y), the location must be the one the item was added at
+     * @param item
+     * @param x
+     * @param y
+     */
+    void remove(T item, int x, int y) {
+        long u = (long) x + y;
+        long v = (long) x - y;
+        TreeMap<Long, Set<T>> column = items.get(u);
+        if (column==null) {
+            return;
+        }
+        Set<T> point = column.get(v);
+        if (point==null || point.remove(item)==false) {
+            return;
+        }
+        size--;
+        if (point.isEmpty()) {
+            column.remove(v);
+            if (column.isEmpty()) {
+                items.remove(u);
+            }
+        }
+    }
+
+    /**
+     * Get items whose manhattan distance from (x, y) is at most maxDist
+     * @param x
+     * @param y
+     * @param maxDist
+     * @return
+     */
+    List<T> withinDistance(int x, int y, int maxDist) {
+        List<T> result = new ArrayList<>();
+        if (maxDist<0) {
+            return result;
+        }
+        long u = (long) x + y;
+        long v = (long) x - y;
+        for (TreeMap<Long, Set<T>> column : items.subMap(u-maxDist, true, u+maxDist, true).values()) {
+            for (Set<T> point : column.subMap(v-maxDist, true, v+maxDist, true).values()) {
+                result.addAll(point);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove all items
+     */
+    void clear() {
+        items.clear();
+        size = 0;
+    }
+
+    /**
+     * Get number of items in index
+     * @return
+     */
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,124 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * BulkLoaderTest checks that a bulk load reports every row it rejects, whether the row is invalid or db refuses it,
+ * with its index and key, and loads the other rows of the chunk
+ */
+public class BulkLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestDatabase database;
+    private PowerService powerService;
+
+    @Before
+    public void createService() {
+        database = new TestDatabase(folder.getRoot());
+        powerService = new PowerService(database.getPropertyFileName());
+    }
+
+    @After
+    public void dropService() {
+        powerService.close();
+        database.drop();
+    }
+
+    @Test
+    public void invalidPostalCodesAreRejectedWithTheirIndex() throws SQLException {
+        BulkLoadResult result = powerService.addPostalCodes(Arrays.asList(
+                new PostalCode("A1A1A1", 1000, 10),
+                null,
+                new PostalCode("B2B2B2", 0, 10),
+                new PostalCode("C3-C3C", 100, 10),
+                new PostalCode("D4D4D4", 500, 20)).iterator());
+
+        assertEquals(2, result.getLoaded());
+        List<BulkLoadResult.Reject> rejects = result.getRejects();
+        assertEquals(3, rejects.size());
+        assertReject(rejects.get(0), 1, null);
+        assertReject(rejects.get(1), 2, "B2B2B2");
+        assertReject(rejects.get(2), 3, "C3-C3C");
+        assertEquals(Arrays.asList("A1A1A1", "D4D4D4"), postalCodesInDb());
+    }
+
+    @Test
+    public void hubsRejectedByDbDoNotFailTheirChunk() {
+        powerService.addPostalCode("A1A1A1", 1000, 10);
+        String longHubID = String.join("", Collections.nCopies(300, "H"));
+        BulkLoadResult result = powerService.addDistributionHubs(Arrays.asList(
+                new DistributionHub("H1", new Point(0, 0), areas("A1A1A1")),
+                new DistributionHub("H2", new Point(1, 1), areas("Z9Z9Z9")),
+                new DistributionHub(longHubID, new Point(2, 2), areas("A1A1A1")),
+                new DistributionHub("H4", new Point(3, 3), areas("A1A1A1"))).iterator());
+
+        assertEquals(2, result.getLoaded());
+        List<BulkLoadResult.Reject> rejects = result.getRejects();
+        assertEquals(2, rejects.size());
+        // invalid rows are rejected while the chunk is read, rows db refuses once the chunk is written
+        assertReject(rejects.get(0), 1, "H2");
+        assertReject(rejects.get(1), 2, longHubID);
+
+        // loaded hubs reach the grid model
+        powerService.hubDamage("H1", 1);
+        powerService.hubDamage("H4", 2);
+        assertEquals(1000, powerService.peopleOutOfService());
+    }
+
+    /**
+     * Check index and key of a rejected row and that it has a reason
+     * @param reject
+     * @param rowIndex
+     * @param key
+     */
+    private static void assertReject(BulkLoadResult.Reject reject, int rowIndex, String key) {
+        assertEquals(rowIndex, reject.getRowIndex());
+        if (key==null) {
+            assertNull(reject.getKey());
+        } else {
+            assertEquals(key, reject.getKey());
+        }
+        assertNotNull(reject.getReason());
+    }
+
+    private static Set<String> areas(String... postalCodes) {
+        return new HashSet<>(Arrays.asList(postalCodes));
+    }
+
+    /**
+     * Get the postal codes in db in order
+     * @return
+     * @throws SQLException
+     */
+    private List<String> postalCodesInDb() throws SQLException {
+        List<String> postalCodes = new ArrayList<>();
+        try (Connection connect = database.connect();
+             PreparedStatement statement = connect.prepareStatement("SELECT "+Db.POSTAL_CODE+" FROM "+Db.POSTAL_CODES_TABLE+
+                     " ORDER BY "+Db.POSTAL_CODE+";");
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                postalCodes.add(resultSet.getString(1));
+            }
+        }
+        return postalCodes;
+    }
+}
@@ -0,0 +1,187 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * GridModelTest checks the counters and report indexes that GridModel keeps against what db holds,
+ * after damages, repairs and reloads made through PowerService
+ */
+public class GridModelTest {
+
+    private static final double EPSILON = 1e-6;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestDatabase database;
+    private PowerService powerService;
+
+    @Before
+    public void createGrid() throws Exception {
+        database = new TestDatabase(folder.getRoot());
+        powerService = new PowerService(database.getPropertyFileName());
+        powerService.addPostalCode("A1A1A1", 1000, 10);
+        powerService.addPostalCode("B2B2B2", 600, 40);
+        powerService.addPostalCode("C3C3C3", 300, 5);
+        powerService.addPostalCode("D4D4D4", 50, 80);
+        powerService.addDistributionHub("H1", new Point(0, 0), areas("A1A1A1", "B2B2B2"));
+        powerService.addDistributionHub("H2", new Point(2, 1), areas("A1A1A1"));
+        powerService.addDistributionHub("H3", new Point(3, 3), areas("B2B2B2", "C3C3C3"));
+        powerService.addDistributionHub("H4", new Point(5, 2), areas("C3C3C3", "D4D4D4"));
+        powerService.addDistributionHub("H5", new Point(6, 6), areas("D4D4D4"));
+        powerService.addDistributionHub("H6", new Point(1, 5), areas("A1A1A1", "C3C3C3", "D4D4D4"));
+    }
+
+    @After
+    public void dropGrid() {
+        powerService.close();
+        database.drop();
+    }
+
+    @Test
+    public void countersMatchDbAfterDamageAndRepair() throws Exception {
+        powerService.hubDamage("H1", 4);
+        powerService.hubDamage("H3", 2);
+        powerService.hubDamage("H4", 6);
+        powerService.hubDamage("H6", 3);
+        assertMatchesDb();
+
+        powerService.hubRepair("H4", TestDatabase.EMPLOYEE_ID, 2, false);
+        powerService.hubRepair("H3", TestDatabase.EMPLOYEE_ID, 1, true);
+        assertMatchesDb();
+
+        powerService.hubRepair("H1", TestDatabase.EMPLOYEE_ID, 5, true);
+        powerService.hubDamage("H3", 1);
+        powerService.addDistributionHub("H6", new Point(1, 5), areas("B2B2B2"));
+        assertMatchesDb();
+    }
+
+    @Test
+    public void reloadMatchesFreshLoad() throws Exception {
+        try (Connection connect = database.connect()) {
+            GridModel model = new GridModel();
+            model.load(connect, 0);
+
+            // writes that reach db but not this model, as if its updates were lost
+            powerService.hubDamage("H2", 5);
+            powerService.hubDamage("H5", 1);
+            powerService.hubRepair("H2", TestDatabase.EMPLOYEE_ID, 2, false);
+            powerService.hubRepair("H5", TestDatabase.EMPLOYEE_ID, 1, true);
+            assertEquals(0, model.peopleOutOfService(), EPSILON);
+
+            model.reload(connect, 0);
+            GridModel fresh = new GridModel();
+            fresh.load(connect, 0);
+            assertEquals(fresh.peopleOutOfService(), model.peopleOutOfService(), EPSILON);
+            assertEquals(impacts(fresh.fixOrder(10)), impacts(model.fixOrder(10)));
+            assertEquals(fresh.underservedPostalByPopulation(10), model.underservedPostalByPopulation(10));
+            assertEquals(fresh.underservedPostalByArea(10), model.underservedPostalByArea(10));
+            assertEquals(postalCodes(fresh.mostDamagedPostalCodes(10)), postalCodes(model.mostDamagedPostalCodes(10)));
+            assertFalse(model.hubInfo("H2").isInService());
+            assertTrue(model.hubInfo("H5").isInService());
+        }
+    }
+
+    @Test
+    public void streamOpenedBeforeReloadReadsReloadedIndex() throws Exception {
+        powerService.hubDamage("H1", 1);
+        powerService.hubDamage("H2", 2);
+        try (Connection connect = database.connect()) {
+            GridModel model = new GridModel();
+            model.load(connect, 0);
+            Iterator<HubImpact> fixOrder = model.fixOrderIterator(1, new Metrics.Timer(false));
+            assertEquals("H1", fixOrder.next().getHubID());
+
+            // a hub of lower impact is damaged and the model is reloaded while the stream is open
+            powerService.hubDamage("H5", 100);
+            model.reload(connect, 0);
+
+            assertEquals("H2", fixOrder.next().getHubID());
+            assertTrue(fixOrder.hasNext());
+            assertEquals("H5", fixOrder.next().getHubID());
+            assertFalse(fixOrder.hasNext());
+        }
+    }
+
+    /**
+     * Check the reports of the service against db and against a model loaded afresh from db
+     * @throws SQLException
+     */
+    private void assertMatchesDb() throws SQLException {
+        try (Connection connect = database.connect()) {
+            // population of a postal code times the share of its hubs that are out of service
+            double peopleOutOfService = 0;
+            try (PreparedStatement statement = connect.prepareStatement("SELECT P."+Db.POPULATION+", COUNT(*),\n" +
+                    "SUM(CASE WHEN D."+Db.IN_SERVICE+" THEN 0 ELSE 1 END)\n" +
+                    "FROM "+Db.POSTAL_CODES_TABLE+" P JOIN "+Db.POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+" J ON P."+Db.POSTAL_CODE+"=J."+Db.POSTAL_CODE+"\n" +
+                    "JOIN "+Db.DISTRIBUTION_HUBS_TABLE+" D ON D."+Db.HUB_ID+"=J."+Db.HUB_ID+"\n" +
+                    "GROUP BY P."+Db.POSTAL_CODE+", P."+Db.POPULATION+";");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    peopleOutOfService += (double) resultSet.getInt(1) * resultSet.getInt(3) / resultSet.getInt(2);
+                }
+            }
+            assertEquals((int) Math.round(peopleOutOfService), powerService.peopleOutOfService());
+
+            // damaged hubs that service at least one postal code are in fix order
+            Set<String> damagedHubs = new TreeSet<>();
+            try (PreparedStatement statement = connect.prepareStatement("SELECT DISTINCT D."+Db.HUB_ID+"\n" +
+                    "FROM "+Db.DISTRIBUTION_HUBS_TABLE+" D JOIN "+Db.POSTAL_CODES_DISTRIBUTION_HUBS_TABLE+" J ON D."+Db.HUB_ID+"=J."+Db.HUB_ID+"\n" +
+                    "WHERE D."+Db.IN_SERVICE+"=FALSE;");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    damagedHubs.add(resultSet.getString(1));
+                }
+            }
+            Set<String> fixOrderHubs = new TreeSet<>();
+            powerService.fixOrderStream().forEach(hub -> fixOrderHubs.add(hub.getHubID()));
+            assertEquals(damagedHubs, fixOrderHubs);
+
+            GridModel fresh = new GridModel();
+            fresh.load(connect, 0);
+            assertEquals(fresh.peopleOutOfService(), powerService.peopleOutOfService(), 0.5);
+            assertEquals(fresh.underservedPostalByPopulation(10), powerService.underservedPostalByPopulation(10));
+            assertEquals(fresh.underservedPostalByArea(10), powerService.underservedPostalByArea(10));
+            assertEquals(new TreeSet<>(postalCodes(fresh.mostDamagedPostalCodes(10))),
+                    new TreeSet<>(postalCodes(powerService.mostDamagedPostalCodes(10))));
+        }
+    }
+
+    private static Set<String> areas(String... postalCodes) {
+        return new HashSet<>(Arrays.asList(postalCodes));
+    }
+
+    private static List<String> impacts(List<HubImpact> hubs) {
+        List<String> impacts = new ArrayList<>();
+        for (HubImpact hub : hubs) {
+            impacts.add(hub.getHubID() + "=" + hub.getImpact());
+        }
+        return impacts;
+    }
+
+    private static List<String> postalCodes(List<DamagedPostalCodes> damagedPostalCodes) {
+        List<String> postalCodes = new ArrayList<>();
+        for (DamagedPostalCodes damagedPostalCode : damagedPostalCodes) {
+            postalCodes.add(damagedPostalCode.getPostalCode());
+        }
+        return postalCodes;
+    }
+}
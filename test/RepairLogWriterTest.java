@@ -0,0 +1,189 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * RepairLogWriterTest checks that the repairs left in the journal are written once on start, skipping the ones
+ * the checkpoint in db covers and the ones db rejected, and that repairs submitted together all reach db
+ */
+public class RepairLogWriterTest {
+
+    private static final long PERIOD = Constants.RESTORATION_PERIOD_MILLIS;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestDatabase database;
+    private PowerService powerService;
+
+    @Before
+    public void createGrid() {
+        database = new TestDatabase(folder.getRoot());
+        powerService = new PowerService(database.getPropertyFileName());
+        powerService.addPostalCode("A1A1A1", 1000, 10);
+        powerService.addPostalCode("B2B2B2", 600, 40);
+        for (int i = 1; i <= 4; i++) {
+            powerService.addDistributionHub("H" + i, new Point(i, i), new HashSet<>(Arrays.asList("A1A1A1", "B2B2B2")));
+            powerService.hubDamage("H" + i, i);
+        }
+    }
+
+    @After
+    public void dropGrid() {
+        if (powerService!=null) {
+            powerService.close();
+        }
+        database.drop();
+    }
+
+    @Test
+    public void recoveryWritesJournaledRepairsOnce() throws Exception {
+        powerService.close();
+        powerService = null;
+        long submitMillis = System.currentTimeMillis() - 3*PERIOD;
+
+        // as left by a crash: db has the first repair, db rejected the third
+        try (Connection connect = database.connect();
+             PreparedStatement statement = connect.prepareStatement(Db.setRepairLogCheckpointQuery())) {
+            statement.setLong(1, 1);
+            statement.setLong(2, 1);
+            statement.executeUpdate();
+        }
+        try (DataOutputStream journal = new DataOutputStream(new FileOutputStream(database.getJournalFile()))) {
+            writeRepair(journal, submitMillis, 1, "H1", TestDatabase.EMPLOYEE_ID, 1, true);
+            writeRepair(journal, submitMillis, 2, "H2", TestDatabase.EMPLOYEE_ID, 2, true);
+            writeRepair(journal, submitMillis, 3, "H1", TestDatabase.EMPLOYEE_ID, 1, true);
+            journal.writeLong(-3);
+            // repair journaled before submit times were kept
+            journal.writeLong(4);
+            journal.writeUTF("H4");
+            journal.writeUTF(TestDatabase.EMPLOYEE_ID);
+            journal.writeFloat(1);
+            journal.writeBoolean(false);
+            // a repair that db rejects on recovery does not stop the ones after it
+            writeRepair(journal, submitMillis, 5, "H3", "nobody", 1, true);
+            writeRepair(journal, submitMillis, 6, "H3", TestDatabase.EMPLOYEE_ID, 3, true);
+            // a repair cut short by the crash ends the journal
+            journal.writeLong(Long.MIN_VALUE);
+            journal.writeLong(submitMillis);
+        }
+
+        powerService = new PowerService(database.getPropertyFileName());
+
+        assertEquals(Arrays.asList("H2=" + TestDatabase.EMPLOYEE_ID, "H3=" + TestDatabase.EMPLOYEE_ID, "H4=" + TestDatabase.EMPLOYEE_ID),
+                repairsInDb());
+        assertEquals(6, checkpointInDb());
+        assertEquals(0, database.getJournalFile().length());
+
+        // H1 was never repaired, its journaled repairs were covered by the checkpoint or rejected
+        Set<String> fixOrderHubs = new TreeSet<>();
+        powerService.fixOrderStream().forEach(hub -> fixOrderHubs.add(hub.getHubID()));
+        assertEquals(new TreeSet<>(Arrays.asList("H1", "H4")), fixOrderHubs);
+
+        // restorations count in the hour the repairs were submitted
+        List<RestorationPeriod> periods = powerService.restorationOverTime(submitMillis - PERIOD, System.currentTimeMillis() + PERIOD);
+        assertEquals(1, periods.size());
+        assertEquals(submitMillis - submitMillis%PERIOD, periods.get(0).getPeriodStart());
+        assertEquals(2, periods.get(0).getRestorations());
+    }
+
+    @Test
+    public void repairsSubmittedTogetherAllReachDb() throws Exception {
+        int threads = 8;
+        int repairsPerThread = 25;
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        List<Thread> submitters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String hubID = "H" + (1 + t%4);
+            Thread submitter = new Thread(() -> {
+                for (int i = 0; i < repairsPerThread; i++) {
+                    CompletableFuture<Void> repair = powerService.submitHubRepair(hubID, TestDatabase.EMPLOYEE_ID, 0.1f, false);
+                    synchronized (written) {
+                        written.add(repair);
+                    }
+                }
+            });
+            submitters.add(submitter);
+            submitter.start();
+        }
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+        CompletableFuture.allOf(written.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(threads*repairsPerThread, repairsInDb().size());
+        assertEquals(threads*repairsPerThread, checkpointInDb());
+    }
+
+    /**
+     * Append a repair to a journal in the format RepairLogWriter writes
+     * @param journal
+     * @param submitMillis
+     * @param sequence
+     * @param hubID
+     * @param employeeID
+     * @param repairTime
+     * @param inService
+     * @throws IOException
+     */
+    private static void writeRepair(DataOutputStream journal, long submitMillis, long sequence, String hubID, String employeeID,
+                                    float repairTime, boolean inService) throws IOException {
+        journal.writeLong(Long.MIN_VALUE);
+        journal.writeLong(submitMillis);
+        journal.writeLong(sequence);
+        journal.writeUTF(hubID);
+        journal.writeUTF(employeeID);
+        journal.writeFloat(repairTime);
+        journal.writeBoolean(inService);
+    }
+
+    /**
+     * Get hub and employee of the repairs in db, in order of hub
+     * @return
+     * @throws SQLException
+     */
+    private List<String> repairsInDb() throws SQLException {
+        List<String> repairs = new ArrayList<>();
+        try (Connection connect = database.connect();
+             PreparedStatement statement = connect.prepareStatement("SELECT "+Db.HUB_ID+", "+Db.EMPLOYEE_ID+" FROM "+Db.HUB_REPAIR_TABLE+
+                     " ORDER BY "+Db.HUB_ID+";");
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                repairs.add(resultSet.getString(1) + "=" + resultSet.getString(2));
+            }
+        }
+        return repairs;
+    }
+
+    /**
+     * Get the sequence number of the last repair in db
+     * @return
+     * @throws SQLException
+     */
+    private long checkpointInDb() throws SQLException {
+        try (Connection connect = database.connect();
+             PreparedStatement statement = connect.prepareStatement(Db.getRepairLogCheckpointQuery());
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(Db.LAST_SEQUENCE) : 0;
+        }
+    }
+}
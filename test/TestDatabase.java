@@ -0,0 +1,104 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TestDatabase prepares an in-memory H2 db in MySQL mode for a test and the property file that points
+ * PowerService at it. Every db gets its own name, so tests do not see each other's rows.
+ */
+class TestDatabase {
+
+    static final String EMPLOYEE_ID = "e1";
+
+    private static final AtomicInteger DB_COUNT = new AtomicInteger();
+
+    // internal attributes of the class
+    private final Properties properties = new Properties();
+    private final String propertyFileName;
+
+    /**
+     * Constructor, creates the db with the employees table that PowerService.sql would create
+     * and writes the property file and journal of the service to the given directory
+     * @param directory
+     */
+    TestDatabase(File directory) {
+        properties.setProperty(Constants.DATABASE_PATH, "jdbc:h2:mem:test" + DB_COUNT.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.setProperty(Constants.USERNAME, "sa");
+        properties.setProperty(Constants.PASSWORD, "");
+        properties.setProperty(Constants.DRIVER, "org.h2.Driver");
+        properties.setProperty(Constants.POOL_MAX_SIZE, "4");
+        properties.setProperty(Constants.MODEL_RECONCILIATION_INTERVAL_MILLIS, "0");
+        properties.setProperty(Constants.REPAIR_LOG_JOURNAL, new File(directory, "hubRepair.journal").getPath());
+        File propertyFile = new File(directory, "test.prop");
+        try (OutputStream stream = new FileOutputStream(propertyFile)) {
+            properties.store(stream, null);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+        propertyFileName = propertyFile.getPath();
+
+        try (Connection connect = connect();
+             Statement statement = connect.createStatement()) {
+            statement.execute("CREATE TABLE "+Db.EMPLOYEES_TABLE+"(\n" +
+                    Db.EMPLOYEE_ID+" VARCHAR(256) PRIMARY KEY,\n" +
+                    "FIRST_NAME VARCHAR(256) NOT NULL,\n" +
+                    "LAST_NAME VARCHAR(256));");
+            statement.execute("INSERT INTO "+Db.EMPLOYEES_TABLE+" VALUES ('"+EMPLOYEE_ID+"', 'Employee', '1');");
+        } catch (SQLException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Get the properties of the service
+     * @return
+     */
+    Properties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Get the name of the property file of the service
+     * @return
+     */
+    String getPropertyFileName() {
+        return propertyFileName;
+    }
+
+    /**
+     * Get the journal file of the repair log of the service
+     * @return
+     */
+    File getJournalFile() {
+        return new File(properties.getProperty(Constants.REPAIR_LOG_JOURNAL));
+    }
+
+    /**
+     * Open a connection to the db, outside of the pool of the service
+     * @return
+     * @throws SQLException
+     */
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection(properties.getProperty(Constants.DATABASE_PATH),
+                properties.getProperty(Constants.USERNAME), properties.getProperty(Constants.PASSWORD));
+    }
+
+    /**
+     * Drop the db and all its rows
+     */
+    void drop() {
+        try (Connection connect = connect();
+             Statement statement = connect.createStatement()) {
+            statement.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+}